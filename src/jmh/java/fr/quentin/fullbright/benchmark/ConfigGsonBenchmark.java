@@ -0,0 +1,70 @@
+package fr.quentin.fullbright.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import fr.quentin.fullbright.config.FullbrightConfig;
+import fr.quentin.fullbright.config.NoteConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks JSON round trips of the mod configuration files, without touching the disk.
+ * Uses reflective Gson, the path the configuration classes used before the streaming codec,
+ * see ConfigCodecBenchmark for the comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigGsonBenchmark {
+    /**
+     * Gson instance matching the one the configuration classes used before the codec.
+     */
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * A serialized default fullbright configuration.
+     */
+    private String fullbrightJson;
+
+    /**
+     * A serialized note configuration holding a note at the maximum length.
+     */
+    private String noteJson;
+
+    /**
+     * Prepares the serialized files once per trial.
+     */
+    @Setup(Level.Trial)
+    public void createFiles() {
+        fullbrightJson = gson.toJson(new FullbrightConfig());
+
+        JsonObject note = new JsonObject();
+        note.addProperty("note", "Coordinates: 120 64 -300\n".repeat(400));
+        noteJson = gson.toJson(note);
+    }
+
+    /**
+     * Parses and writes back the fullbright configuration.
+     */
+    @Benchmark
+    public String fullbrightRoundTrip() {
+        return gson.toJson(gson.fromJson(fullbrightJson, FullbrightConfig.class));
+    }
+
+    /**
+     * Parses and writes back the note configuration.
+     */
+    @Benchmark
+    public String noteRoundTrip() {
+        return gson.toJson(gson.fromJson(noteJson, NoteConfig.class));
+    }
+}
@@ -0,0 +1,103 @@
+package fr.quentin.fullbright.benchmark;
+
+import fr.quentin.fullbright.widget.EditBox;
+import org.lwjgl.glfw.GLFW;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the editing operations of the note editor widget.
+ * The widget is used without a running client, only its text model is exercised.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EditBoxBenchmark {
+    /**
+     * Length of every line of the document, in characters.
+     */
+    @Param({"80", "2000"})
+    public int lineLength;
+
+    /**
+     * Number of lines of the document.
+     */
+    @Param({"100", "5000"})
+    public int lineCount;
+
+    /**
+     * The widget under test.
+     */
+    private EditBox editBox;
+
+    /**
+     * A document of {@code lineCount} lines of {@code lineLength} characters.
+     */
+    private String document;
+
+    /**
+     * Builds the document once per trial.
+     */
+    @Setup(Level.Trial)
+    public void createDocument() {
+        StringBuilder builder = new StringBuilder();
+        String line = "x".repeat(lineLength);
+        for (int i = 0; i < lineCount; i++) {
+            if (i > 0) builder.append('\n');
+            builder.append(line);
+        }
+        document = builder.toString();
+        editBox = new EditBox(0, 0, 300, 150);
+    }
+
+    /**
+     * Resets the widget to the document before every call, so each call starts from the same state.
+     */
+    @Setup(Level.Invocation)
+    public void resetText() {
+        editBox.setText(document);
+    }
+
+    /**
+     * Types a character at the start of a long line.
+     */
+    @Benchmark
+    public boolean charTypedLongLine() {
+        return editBox.charTyped('a', 0);
+    }
+
+    /**
+     * Pastes the whole document at the cursor.
+     */
+    @Benchmark
+    public void insertLargePaste() {
+        editBox.insertText(document);
+    }
+
+    /**
+     * Selects every line and deletes the selection.
+     */
+    @Benchmark
+    public boolean deleteSelectedTextManyLines() {
+        editBox.keyPressed(GLFW.GLFW_KEY_A, 0, GLFW.GLFW_MOD_CONTROL);
+        return editBox.keyPressed(GLFW.GLFW_KEY_BACKSPACE, 0, 0);
+    }
+
+    /**
+     * Loads the document into the widget and reads it back.
+     */
+    @Benchmark
+    public String textRoundTrip() {
+        editBox.setText(document);
+        return editBox.getText();
+    }
+}
@@ -0,0 +1,114 @@
+package fr.quentin.fullbright.benchmark;
+
+import fr.quentin.fullbright.widget.RowTextCache;
+import net.minecraft.text.CharacterVisitor;
+import net.minecraft.text.Style;
+import net.minecraft.text.TextVisitFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks preparing a full screen of editor rows for drawing, once per frame, without a running client.
+ * The glyphs are handed to a visitor as the text renderer would consume them, so only the text side of a
+ * frame is measured. Run with the gc profiler to compare the allocation of both paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EditorRenderBenchmark {
+    /**
+     * Number of rows shown by the editor.
+     */
+    private static final int VISIBLE_ROWS = 10;
+
+    /**
+     * Number of characters wrapped into a row.
+     */
+    private static final int ROW_LENGTH = 48;
+
+    /**
+     * Length of every line, in characters. Lines longer than a row are wrapped.
+     */
+    @Param({"40", "400"})
+    public int lineLength;
+
+    /**
+     * The lines shown on screen, enough to fill every row.
+     */
+    private String[] lines;
+
+    /**
+     * The column where each row of a line starts, the same for every line.
+     */
+    private int[] rowStarts;
+
+    /**
+     * The cache under test, filled by the first frame.
+     */
+    private RowTextCache cache;
+
+    /**
+     * Receives the glyphs, as the text renderer would.
+     */
+    private CharacterVisitor visitor;
+
+    /**
+     * Builds the lines and their rows once per trial.
+     *
+     * @param blackhole Consumes the visited glyphs
+     */
+    @Setup(Level.Trial)
+    public void createLines(Blackhole blackhole) {
+        rowStarts = new int[(lineLength + ROW_LENGTH - 1) / ROW_LENGTH];
+        for (int i = 0; i < rowStarts.length; i++) {
+            rowStarts[i] = i * ROW_LENGTH;
+        }
+        lines = new String[(VISIBLE_ROWS + rowStarts.length - 1) / rowStarts.length];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = ("Coordinates " + i + ": 120 64 -300 ").repeat(lineLength).substring(0, lineLength);
+        }
+        cache = new RowTextCache();
+        visitor = (index, style, codePoint) -> {
+            blackhole.consume(codePoint);
+            return true;
+        };
+    }
+
+    /**
+     * Draws the rows from Strings, parsing each row again, as the editor did before the cache.
+     */
+    @Benchmark
+    public void drawStrings() {
+        int row = 0;
+        for (String line : lines) {
+            for (int i = 0; i < rowStarts.length && row < VISIBLE_ROWS; i++, row++) {
+                int end = i + 1 < rowStarts.length ? rowStarts[i + 1] : line.length();
+                String text = rowStarts.length == 1 ? line : line.substring(rowStarts[i], end);
+                TextVisitFactory.visitFormatted(text, Style.EMPTY, visitor);
+            }
+        }
+    }
+
+    /**
+     * Draws the rows from the cache, as an idle editor frame does.
+     */
+    @Benchmark
+    public void drawCachedRows() {
+        int row = 0;
+        for (String line : lines) {
+            for (int i = 0; i < rowStarts.length && row < VISIBLE_ROWS; i++, row++) {
+                cache.get(line, rowStarts, i).accept(visitor);
+            }
+        }
+    }
+}
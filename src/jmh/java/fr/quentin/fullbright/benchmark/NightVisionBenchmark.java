@@ -0,0 +1,77 @@
+package fr.quentin.fullbright.benchmark;
+
+import com.google.gson.Gson;
+import fr.quentin.fullbright.config.FullbrightConfig;
+import fr.quentin.fullbright.light.NightVisionController;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.entity.effect.StatusEffectInstance;
+import net.minecraft.entity.effect.StatusEffects;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the per-tick decision of the Night Vision mode.
+ * Compares the steady-state tick of the controller with the work the original
+ * tick handler did on every tick: building an effect and comparing its duration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NightVisionBenchmark {
+    /**
+     * A player instance that is never initialized, the steady-state tick only compares its identity.
+     */
+    private ClientPlayerEntity player;
+
+    /**
+     * The configuration passed to the controller.
+     */
+    private FullbrightConfig config;
+
+    /**
+     * Bootstraps the registries and brings the controller to steady state.
+     *
+     * @throws ReflectiveOperationException If the player instance cannot be allocated
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        Field field = Unsafe.class.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        player = (ClientPlayerEntity) ((Unsafe) field.get(null)).allocateInstance(ClientPlayerEntity.class);
+
+        config = new Gson().fromJson("{}", FullbrightConfig.class); // Defaults, without writing a file
+        NightVisionController.tick(player, config); // First sight of the player, no effect work while disabled
+    }
+
+    /**
+     * A tick of the controller when nothing changed.
+     */
+    @Benchmark
+    public void controllerSteadyState() {
+        NightVisionController.tick(player, config);
+    }
+
+    /**
+     * The decision the original tick handler made on every tick while enabled.
+     */
+    @Benchmark
+    public boolean legacyDecision() {
+        StatusEffectInstance effect = new StatusEffectInstance(StatusEffects.NIGHT_VISION, -1, 0, false, false, false);
+        return effect.getDuration() < 210;
+    }
+}
@@ -0,0 +1,108 @@
+package fr.quentin.fullbright.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the startup parse cost of the configuration files through the streaming codec
+ * and through the reflective Gson path it replaced.
+ * Lives in the config package so it can reach the package-private parse methods.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigCodecBenchmark {
+    /**
+     * Gson instance matching the one the configuration classes used before the codec.
+     */
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    /**
+     * A fullbright configuration with a few dimension profiles, as written by the codec.
+     */
+    private String currentJson;
+
+    /**
+     * The same configuration as written by Gson before versioning.
+     */
+    private String legacyJson;
+
+    /**
+     * A note configuration holding a note at the maximum length, as written by the codec.
+     */
+    private String noteJson;
+
+    /**
+     * Prepares the serialized files once per trial.
+     */
+    @Setup(Level.Trial)
+    public void createFiles() {
+        legacyJson = """
+                {
+                  "enabled": true,
+                  "showOverlay": true,
+                  "mode": "LIGHTMAP",
+                  "level": 80,
+                  "fade": true,
+                  "dimensions": {
+                    "minecraft:the_nether": { "behavior": "OFF", "level": -1 },
+                    "minecraft:the_end": { "behavior": "ON", "level": 60 },
+                    "minecraft:overworld": { "behavior": "DEFAULT", "level": 100 }
+                  }
+                }""";
+        currentJson = FullbrightConfig.parse(legacyJson).toJson();
+
+        String note = "Coordinates: 120 64 -300\n".repeat(400);
+        noteJson = ConfigCodec.encode(2, json -> json.name("note").value(note));
+    }
+
+    /**
+     * Parses the fullbright configuration through the codec fast path.
+     */
+    @Benchmark
+    public FullbrightConfig codecParse() {
+        return FullbrightConfig.parse(currentJson);
+    }
+
+    /**
+     * Parses an unversioned fullbright configuration through the codec migration path.
+     */
+    @Benchmark
+    public FullbrightConfig codecMigrate() {
+        return FullbrightConfig.parse(legacyJson);
+    }
+
+    /**
+     * Parses the same configuration through reflective Gson.
+     */
+    @Benchmark
+    public FullbrightConfig gsonParse() {
+        return gson.fromJson(legacyJson, FullbrightConfig.class);
+    }
+
+    /**
+     * Parses the note configuration through the codec.
+     */
+    @Benchmark
+    public NoteConfig codecParseNote() {
+        return NoteConfig.parse(noteJson);
+    }
+
+    /**
+     * Parses the note configuration through reflective Gson.
+     */
+    @Benchmark
+    public NoteConfig gsonParseNote() {
+        return gson.fromJson(noteJson, NoteConfig.class);
+    }
+}
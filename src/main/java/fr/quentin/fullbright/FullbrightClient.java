@@ -1,13 +1,24 @@
 package fr.quentin.fullbright;
 
+import fr.quentin.fullbright.api.FullbrightEntrypoint;
 import fr.quentin.fullbright.command.FullbrightCommand;
-import fr.quentin.fullbright.config.NoteConfig;
+import fr.quentin.fullbright.config.ConfigPersistence;
+import fr.quentin.fullbright.config.ConfigWatcher;
+import fr.quentin.fullbright.config.FullbrightConfig;
+import fr.quentin.fullbright.light.ActiveProfile;
+import fr.quentin.fullbright.metrics.Metrics;
+import fr.quentin.fullbright.note.NoteStore;
 import fr.quentin.fullbright.option.KeyBindings;
 import fr.quentin.fullbright.overlay.FullbrightOverlay;
 import fr.quentin.fullbright.screen.FullbrightOptionsScreen;
-import fr.quentin.fullbright.screen.SimpleTextEditorScreen;
+import fr.quentin.fullbright.screen.NotePickerScreen;
+import fr.quentin.fullbright.widget.GlyphWidths;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.entrypoint.EntrypointContainer;
+import net.minecraft.client.MinecraftClient;
 
 /**
  * Client-side initializer for the Fullbright mod.
@@ -20,6 +31,12 @@ public class FullbrightClient implements ClientModInitializer {
      */
     @Override
     public void onInitializeClient() {
+        long initStart = System.nanoTime();
+
+        // Start reading the configuration files in the background, defaults are served until they are loaded
+        FullbrightConfig.loadAsync();
+        NoteStore.loadAsync();
+
         // Register commands specific to the Fullbright mod
         FullbrightCommand.register();
 
@@ -29,12 +46,59 @@ public class FullbrightClient implements ClientModInitializer {
         // Register key bindings for the mod
         KeyBindings.register();
 
+        // Measure the editor's glyphs again when the fonts are reloaded
+        GlyphWidths.register();
+
+        // Hand the loaded configuration off once, on the client thread, before the first tick can read it
+        ClientLifecycleEvents.CLIENT_STARTED.register(client -> {
+            long waitStart = System.nanoTime();
+            FullbrightConfig.finishLoading();
+            NoteStore.finishLoading();
+            Fullbright.LOGGER.info("Fullbright configuration handed off, waited {} ms", (System.nanoTime() - waitStart) / 1_000_000);
+
+            // Reload the configuration files when they are edited outside of the game
+            ConfigWatcher.start();
+        });
+
+        // Write any configuration change still waiting in the debounce window before the game exits
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            ConfigWatcher.stop();
+            ConfigPersistence.flush();
+        });
+
         // Register an event listener for client tick events
-        ClientTickEvents.END_CLIENT_TICK.register(client -> {
-            // Apply the Fullbright effect to the player if enabled
-            if (client.player != null) {
-                FullbrightCommand.applyFullbrightEffect(client.player);
+        ClientTickEvents.END_CLIENT_TICK.register(FullbrightClient::onEndTick);
+
+        // Let integrating mods register their listeners
+        for (EntrypointContainer<FullbrightEntrypoint> container
+                : FabricLoader.getInstance().getEntrypointContainers(Fullbright.MOD_ID, FullbrightEntrypoint.class)) {
+            try {
+                container.getEntrypoint().onFullbrightInitialized();
+            } catch (RuntimeException e) {
+                Fullbright.LOGGER.error("Fullbright entrypoint of " + container.getProvider().getMetadata().getId() + " failed", e);
             }
+        }
+
+        Fullbright.LOGGER.info("Fullbright client initialized in {} ms", (System.nanoTime() - initStart) / 1_000_000);
+    }
+
+    /**
+     * Runs the per-tick work of the mod, timed by {@link Metrics#CLIENT_TICK}.
+     * Every step is a no-op unless something changed, so a steady-state tick does not allocate.
+     *
+     * @param client The game client
+     */
+    static void onEndTick(MinecraftClient client) {
+        long start = Metrics.CLIENT_TICK.start();
+        try {
+            // Install configuration files edited outside of the game, this is a no-op unless one changed
+            ConfigWatcher.applyPending();
+
+            // Re-resolve the dimension profile, this is a no-op unless the world or configuration changed
+            ActiveProfile.update(client.world, FullbrightCommand.getConfig());
+
+            // Reconcile the Fullbright effect, this is a no-op unless something changed
+            FullbrightCommand.applyFullbrightEffect(client.player);
 
             // Check if the configuration key binding was pressed
             if (client.player != null && KeyBindings.configurationKey.wasPressed()) {
@@ -44,9 +108,11 @@ public class FullbrightClient implements ClientModInitializer {
 
             // Check if the text editor key binding was pressed
             if (client.player != null && KeyBindings.textEditorKey.wasPressed()) {
-                // Open the SimpleTextEditorScreen with the current note
-                client.setScreen(new SimpleTextEditorScreen(NoteConfig.getInstance().getNote()));
+                // Open the note picker, the selected note is loaded when opened
+                client.setScreen(new NotePickerScreen(client.currentScreen));
             }
-        });
+        } finally {
+            Metrics.CLIENT_TICK.stop(start);
+        }
     }
 }
@@ -0,0 +1,63 @@
+package fr.quentin.fullbright.api;
+
+import fr.quentin.fullbright.config.FullbrightConfig;
+import fr.quentin.fullbright.light.ActiveProfile;
+import fr.quentin.fullbright.light.StateListeners;
+
+/**
+ * Read-only access to the Fullbright state for other mods.
+ * Every read is a volatile load of a published value, so it is safe from any thread and never blocks.
+ * Subscribe with {@link #addListener(FullbrightListener)} instead of polling every frame.
+ */
+public final class FullbrightApi {
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private FullbrightApi() {
+    }
+
+    /**
+     * Gets the global settings.
+     *
+     * @return The current settings snapshot
+     */
+    public static FullbrightState getState() {
+        return FullbrightConfig.getInstance().getState();
+    }
+
+    /**
+     * Checks whether fullbright is active in the current dimension, dimension profiles included.
+     *
+     * @return True if fullbright is active, false otherwise
+     */
+    public static boolean isActive() {
+        return ActiveProfile.isEnabled();
+    }
+
+    /**
+     * Gets the brightness level in effect in the current dimension, dimension profiles included.
+     *
+     * @return The brightness level, from 0 to 100
+     */
+    public static int getActiveLevel() {
+        return ActiveProfile.getLevel();
+    }
+
+    /**
+     * Registers a listener notified of state changes.
+     *
+     * @param listener The listener to register
+     */
+    public static void addListener(FullbrightListener listener) {
+        StateListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener to unregister
+     */
+    public static void removeListener(FullbrightListener listener) {
+        StateListeners.remove(listener);
+    }
+}
@@ -0,0 +1,14 @@
+package fr.quentin.fullbright.api;
+
+/**
+ * Entrypoint for mods integrating with Fullbright, declared under {@code "fullbright"}
+ * in their {@code fabric.mod.json}. Called once on the client when Fullbright has initialized,
+ * which is the place to register {@link FullbrightListener}s.
+ */
+@FunctionalInterface
+public interface FullbrightEntrypoint {
+    /**
+     * Called once Fullbright has initialized on the client.
+     */
+    void onFullbrightInitialized();
+}
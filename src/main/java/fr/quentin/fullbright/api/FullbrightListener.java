@@ -0,0 +1,26 @@
+package fr.quentin.fullbright.api;
+
+/**
+ * Receives changes to the Fullbright state.
+ * Called on the client thread, at most once per tick, after the change has been applied.
+ */
+public interface FullbrightListener {
+    /**
+     * Called when the global settings changed.
+     *
+     * @param previous The settings before the change
+     * @param current The settings after the change
+     */
+    default void onStateChanged(FullbrightState previous, FullbrightState current) {
+    }
+
+    /**
+     * Called when the brightness in effect in the current dimension changed,
+     * because of a setting, a dimension profile or a change of dimension.
+     *
+     * @param active Whether fullbright is active in the current dimension
+     * @param level The brightness level in effect, from 0 to 100
+     */
+    default void onActiveChanged(boolean active, int level) {
+    }
+}
@@ -0,0 +1,16 @@
+package fr.quentin.fullbright.api;
+
+import fr.quentin.fullbright.config.BrightnessMode;
+
+/**
+ * Immutable snapshot of the global Fullbright settings.
+ * A new snapshot is published whenever a setting changes, so it can be read from any thread without locking.
+ *
+ * @param enabled Whether fullbright is toggled on globally
+ * @param showOverlay Whether the status overlay is displayed
+ * @param mode The strategy used to brighten the world, never null
+ * @param level The brightness level used by the lightmap mode, from 0 to 100
+ * @param fade Whether the lightmap mode fades in and out when toggled
+ */
+public record FullbrightState(boolean enabled, boolean showOverlay, BrightnessMode mode, int level, boolean fade) {
+}
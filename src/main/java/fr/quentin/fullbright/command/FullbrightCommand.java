@@ -1,12 +1,39 @@
 package fr.quentin.fullbright.command;
 
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import fr.quentin.fullbright.config.BrightnessMode;
+import fr.quentin.fullbright.config.DimensionProfile;
 import fr.quentin.fullbright.config.FullbrightConfig;
+import fr.quentin.fullbright.light.FullbrightLightmap;
+import fr.quentin.fullbright.light.NightVisionController;
+import fr.quentin.fullbright.metrics.Metrics;
+import fr.quentin.fullbright.metrics.Timer;
+import fr.quentin.fullbright.note.NoteEntry;
+import fr.quentin.fullbright.note.NoteSearchIndex;
+import fr.quentin.fullbright.note.NoteSearchResult;
+import fr.quentin.fullbright.note.NoteStore;
+import fr.quentin.fullbright.screen.SimpleTextEditorScreen;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
-import net.minecraft.entity.effect.StatusEffectInstance;
-import net.minecraft.entity.effect.StatusEffects;
+import net.minecraft.command.CommandSource;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.text.ClickEvent;
+import net.minecraft.text.HoverEvent;
 import net.minecraft.text.Text;
+import net.minecraft.world.World;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Manages the Fullbright command functionality.
@@ -14,10 +41,9 @@ import net.minecraft.text.Text;
  */
 public class FullbrightCommand {
     /**
-     * The configuration instance for the mod.
-     * Loaded once and reused throughout the mod's lifecycle.
+     * Maximum number of notes listed by a search.
      */
-    private static final FullbrightConfig CONFIG = FullbrightConfig.load();
+    private static final int MAX_SEARCH_RESULTS = 10;
 
     /**
      * Registers all command-related functionality.
@@ -35,8 +61,8 @@ public class FullbrightCommand {
                     // Subcommand to enable the fullbright effect
                     .then(ClientCommandManager.literal("on")
                             .executes(context -> {
-                                if (!CONFIG.isEnabled()) {
-                                    CONFIG.setEnabled(true);
+                                if (!getConfig().isEnabled()) {
+                                    getConfig().setEnabled(true);
                                     context.getSource().sendFeedback(Text.translatable("fullbright.on"));
                                 } else {
                                     context.getSource().sendFeedback(Text.translatable("fullbright.already_on"));
@@ -46,8 +72,8 @@ public class FullbrightCommand {
                     // Subcommand to disable the fullbright effect
                     .then(ClientCommandManager.literal("off")
                             .executes(context -> {
-                                if (CONFIG.isEnabled()) {
-                                    CONFIG.setEnabled(false);
+                                if (getConfig().isEnabled()) {
+                                    getConfig().setEnabled(false);
                                     context.getSource().sendFeedback(Text.translatable("fullbright.off"));
                                 } else {
                                     context.getSource().sendFeedback(Text.translatable("fullbright.already_off"));
@@ -59,8 +85,8 @@ public class FullbrightCommand {
                             // Enable overlay
                             .then(ClientCommandManager.literal("on")
                                     .executes(context -> {
-                                        if (!CONFIG.isShowOverlay()) {
-                                            CONFIG.setShowOverlay(true);
+                                        if (!getConfig().isShowOverlay()) {
+                                            getConfig().setShowOverlay(true);
                                             context.getSource().sendFeedback(Text.translatable("fullbright.overlay.on"));
                                         } else {
                                             context.getSource().sendFeedback(Text.translatable("fullbright.overlay.already_on"));
@@ -70,14 +96,162 @@ public class FullbrightCommand {
                             // Disable overlay
                             .then(ClientCommandManager.literal("off")
                                     .executes(context -> {
-                                        if (CONFIG.isShowOverlay()) {
-                                            CONFIG.setShowOverlay(false);
+                                        if (getConfig().isShowOverlay()) {
+                                            getConfig().setShowOverlay(false);
                                             context.getSource().sendFeedback(Text.translatable("fullbright.overlay.off"));
                                         } else {
                                             context.getSource().sendFeedback(Text.translatable("fullbright.overlay.already_off"));
                                         }
                                         return 1;
                                     })))
+                    // Subcommand to select the brightness mode
+                    .then(ClientCommandManager.literal("mode")
+                            // Night Vision status effect
+                            .then(ClientCommandManager.literal(BrightnessMode.NIGHT_VISION.getName())
+                                    .executes(context -> setMode(context, BrightnessMode.NIGHT_VISION)))
+                            // Direct lightmap override
+                            .then(ClientCommandManager.literal(BrightnessMode.LIGHTMAP.getName())
+                                    .executes(context -> setMode(context, BrightnessMode.LIGHTMAP))))
+                    // Subcommand to set the brightness level of the lightmap mode
+                    .then(ClientCommandManager.literal("level")
+                            .then(ClientCommandManager.argument("level", IntegerArgumentType.integer(0, 100))
+                                    .executes(context -> {
+                                        int level = IntegerArgumentType.getInteger(context, "level");
+                                        getConfig().setLevel(level);
+                                        context.getSource().sendFeedback(Text.translatable("fullbright.level.set", level));
+                                        return 1;
+                                    })))
+                    // Subcommand to override the settings in the current dimension
+                    .then(ClientCommandManager.literal("dimension")
+                            .then(ClientCommandManager.literal("on")
+                                    .executes(context -> updateProfile(context, profile -> profile.setBehavior(DimensionProfile.Behavior.ON))))
+                            .then(ClientCommandManager.literal("off")
+                                    .executes(context -> updateProfile(context, profile -> profile.setBehavior(DimensionProfile.Behavior.OFF))))
+                            .then(ClientCommandManager.literal("default")
+                                    .executes(context -> updateProfile(context, profile -> profile.setBehavior(DimensionProfile.Behavior.DEFAULT))))
+                            .then(ClientCommandManager.literal("level")
+                                    .then(ClientCommandManager.literal("global")
+                                            .executes(context -> updateProfile(context, profile -> profile.setLevel(DimensionProfile.GLOBAL_LEVEL))))
+                                    .then(ClientCommandManager.argument("level", IntegerArgumentType.integer(0, 100))
+                                            .executes(context -> {
+                                                int level = IntegerArgumentType.getInteger(context, "level");
+                                                return updateProfile(context, profile -> profile.setLevel(level));
+                                            }))))
+                    // Subcommand to report how often the lightmap was redrawn or reused
+                    .then(ClientCommandManager.literal("lightmap")
+                            .executes(context -> {
+                                context.getSource().sendFeedback(Text.translatable("fullbright.lightmap.stats",
+                                        FullbrightLightmap.getPerformedUpdates(),
+                                        FullbrightLightmap.getSkippedUpdates()));
+                                return 1;
+                            }))
+                    // Subcommand to print the timings of every mod hook
+                    .then(ClientCommandManager.literal("stats")
+                            .executes(context -> {
+                                context.getSource().sendFeedback(Text.translatable("fullbright.stats.title"));
+                                for (Timer timer : Metrics.getTimers()) {
+                                    context.getSource().sendFeedback(Text.translatable("fullbright.stats.timer",
+                                            timer.getName(),
+                                            timer.getCount(),
+                                            formatMicros(timer.getPercentile(0.5)),
+                                            formatMicros(timer.getPercentile(0.99)),
+                                            formatMicros(timer.getMax())));
+                                    if (timer.isCheckingAllocations()) {
+                                        context.getSource().sendFeedback(Text.translatable("fullbright.stats.allocation",
+                                                timer.getLastWindowAverage(),
+                                                timer.getAllocationBudget(),
+                                                timer.getBudgetViolations()));
+                                    }
+                                }
+                                context.getSource().sendFeedback(Text.translatable("fullbright.lightmap.stats",
+                                        FullbrightLightmap.getPerformedUpdates(),
+                                        FullbrightLightmap.getSkippedUpdates()));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.stats.transitions",
+                                        NightVisionController.getTransitionCount()));
+                                return 1;
+                            })
+                            // Clear all samples
+                            .then(ClientCommandManager.literal("reset")
+                                    .executes(context -> {
+                                        Metrics.reset();
+                                        context.getSource().sendFeedback(Text.translatable("fullbright.stats.reset"));
+                                        return 1;
+                                    })))
+                    // Subcommands to manage the notes of the note store
+                    .then(ClientCommandManager.literal("note")
+                            // List every note, from the index only
+                            .then(ClientCommandManager.literal("list")
+                                    .executes(FullbrightCommand::listNotes))
+                            // Open a note in the text editor
+                            .then(ClientCommandManager.literal("open")
+                                    .then(ClientCommandManager.argument("note", StringArgumentType.greedyString())
+                                            .suggests(FullbrightCommand::suggestNotes)
+                                            .executes(context -> {
+                                                NoteEntry note = findNote(context);
+                                                if (note != null) {
+                                                    openNote(context, note, -1);
+                                                }
+                                                return 1;
+                                            })))
+                            // Create a note and open it
+                            .then(ClientCommandManager.literal("new")
+                                    .then(ClientCommandManager.argument("title", StringArgumentType.greedyString())
+                                            .executes(context -> {
+                                                NoteEntry note = NoteStore.getInstance().create(StringArgumentType.getString(context, "title"));
+                                                context.getSource().sendFeedback(Text.translatable("fullbright.note.created", note.title()));
+                                                openNote(context, note, -1);
+                                                return 1;
+                                            })))
+                            // Delete a note
+                            .then(ClientCommandManager.literal("delete")
+                                    .then(ClientCommandManager.argument("note", StringArgumentType.greedyString())
+                                            .suggests(FullbrightCommand::suggestNotes)
+                                            .executes(context -> {
+                                                NoteEntry note = findNote(context);
+                                                if (note != null) {
+                                                    NoteStore.getInstance().delete(note.id());
+                                                    context.getSource().sendFeedback(Text.translatable("fullbright.note.deleted", note.title()));
+                                                }
+                                                return 1;
+                                            })))
+                            // Search every note, each result opens the note at its first matching line
+                            .then(ClientCommandManager.literal("search")
+                                    .then(ClientCommandManager.argument("terms", StringArgumentType.greedyString())
+                                            .executes(FullbrightCommand::searchNotes)))
+                            // Set the interval between autosaves of the note editor, 0 to disable them
+                            .then(ClientCommandManager.literal("autosave")
+                                    .then(ClientCommandManager.argument("seconds", IntegerArgumentType.integer(0, FullbrightConfig.MAX_AUTOSAVE_SECONDS))
+                                            .executes(context -> {
+                                                int seconds = IntegerArgumentType.getInteger(context, "seconds");
+                                                getConfig().setNoteAutosaveSeconds(seconds);
+                                                context.getSource().sendFeedback(seconds > 0
+                                                        ? Text.translatable("fullbright.note.autosave.set", seconds)
+                                                        : Text.translatable("fullbright.note.autosave.off"));
+                                                return 1;
+                                            })))
+                            // Set the memory budget of the note editor's undo history, 0 to disable undo
+                            .then(ClientCommandManager.literal("undo")
+                                    .then(ClientCommandManager.argument("kilobytes", IntegerArgumentType.integer(0, FullbrightConfig.MAX_UNDO_KILOBYTES))
+                                            .executes(context -> {
+                                                int kilobytes = IntegerArgumentType.getInteger(context, "kilobytes");
+                                                getConfig().setNoteUndoKilobytes(kilobytes);
+                                                context.getSource().sendFeedback(kilobytes > 0
+                                                        ? Text.translatable("fullbright.note.undo.set", kilobytes)
+                                                        : Text.translatable("fullbright.note.undo.off"));
+                                                return 1;
+                                            })))
+                            // Open a note at a line, run by clicking a search result
+                            .then(ClientCommandManager.literal("goto")
+                                    .then(ClientCommandManager.argument("line", IntegerArgumentType.integer(1))
+                                            .then(ClientCommandManager.argument("note", StringArgumentType.greedyString())
+                                                    .suggests(FullbrightCommand::suggestNotes)
+                                                    .executes(context -> {
+                                                        NoteEntry note = findNote(context);
+                                                        if (note != null) {
+                                                            openNote(context, note, IntegerArgumentType.getInteger(context, "line") - 1);
+                                                        }
+                                                        return 1;
+                                                    })))))
                     // Help command to display usage information
                     .then(ClientCommandManager.literal("help")
                             .executes(context -> {
@@ -88,42 +262,175 @@ public class FullbrightCommand {
                                 context.getSource().sendFeedback(Text.translatable("fullbright.help.off"));
                                 context.getSource().sendFeedback(Text.translatable("fullbright.help.overlay.on"));
                                 context.getSource().sendFeedback(Text.translatable("fullbright.help.overlay.off"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.mode"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.level"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.dimension"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.dimension.level"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.lightmap"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.stats"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.note"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.note.search"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.note.autosave"));
+                                context.getSource().sendFeedback(Text.translatable("fullbright.help.note.undo"));
                                 return 1;
                             })));
         });
     }
 
     /**
-     * Applies or removes the night vision effect based on the mod's enabled state.
+     * Switches the brightness mode and reports the result to the command source.
      *
-     * @param player The player to apply the effect to
+     * @param context The command context
+     * @param mode The brightness mode to switch to
+     * @return The command result
      */
-    public static void applyFullbrightEffect(ClientPlayerEntity player) {
-        if (CONFIG.isEnabled()) {
-            // Apply the night vision effect with a long duration
-            StatusEffectInstance currentEffect = player.getStatusEffect(StatusEffects.NIGHT_VISION);
-            if (currentEffect == null || currentEffect.getDuration() < 210) {
-                player.addStatusEffect(new StatusEffectInstance(
-                        StatusEffects.NIGHT_VISION,
-                        -1, // Duration in ticks (1 tick = 1/20 second)
-                        0,   // Amplifier (level of the effect)
-                        false, // Ambient (whether the effect is ambient)
-                        false, // Visible (whether the effect is visible)
-                        false // Show icon (whether to show the effect icon)
-                ));
-            }
+    private static int setMode(CommandContext<FabricClientCommandSource> context, BrightnessMode mode) {
+        Text modeName = Text.translatable(mode.getTranslationKey());
+        if (getConfig().getMode() != mode) {
+            getConfig().setMode(mode); // The effect of the previous mode is dropped on the next tick
+            context.getSource().sendFeedback(Text.translatable("fullbright.mode.set", modeName));
         } else {
-            // Forcefully remove the night vision effect
-            player.removeStatusEffect(StatusEffects.NIGHT_VISION);
+            context.getSource().sendFeedback(Text.translatable("fullbright.mode.already_set", modeName));
+        }
+        return 1;
+    }
+
+    /**
+     * Modifies the profile of the dimension the player is in and reports the result.
+     * The profile is created if needed and dropped again once it matches the global settings.
+     *
+     * @param context The command context
+     * @param change The modification to apply to the profile
+     * @return The command result
+     */
+    private static int updateProfile(CommandContext<FabricClientCommandSource> context, Consumer<DimensionProfile> change) {
+        RegistryKey<World> dimension = context.getSource().getWorld().getRegistryKey();
+        DimensionProfile current = getConfig().getProfile(dimension);
+        DimensionProfile profile = current != null ? current.copy() : new DimensionProfile(); // The stored profile is never changed in place
+        change.accept(profile);
+        getConfig().setProfile(dimension, profile);
+
+        String behavior = profile.getBehavior().name().toLowerCase(Locale.ROOT);
+        Text level = profile.getLevel() == DimensionProfile.GLOBAL_LEVEL
+                ? Text.translatable("fullbright.dimension.level.global")
+                : Text.literal(profile.getLevel() + "%");
+        context.getSource().sendFeedback(Text.translatable("fullbright.dimension.set",
+                dimension.getValue().toString(), Text.translatable("fullbright.dimension.behavior." + behavior), level));
+        return 1;
+    }
+
+    /**
+     * Lists every note, most recently edited first.
+     *
+     * @param context The command context
+     * @return The command result
+     */
+    private static int listNotes(CommandContext<FabricClientCommandSource> context) {
+        List<NoteEntry> notes = NoteStore.getInstance().list();
+        if (notes.isEmpty()) {
+            context.getSource().sendFeedback(Text.translatable("fullbright.note.list.empty"));
+            return 1;
+        }
+        context.getSource().sendFeedback(Text.translatable("fullbright.note.list.title", notes.size()));
+        for (NoteEntry note : notes) {
+            context.getSource().sendFeedback(Text.translatable("fullbright.note.list.entry", note.title(), note.id(), note.size()));
+        }
+        return 1;
+    }
+
+    /**
+     * Searches every note and lists the results, most relevant first.
+     * The search runs on the IO thread, the results are sent from the client thread once available.
+     *
+     * @param context The command context
+     * @return The command result
+     */
+    private static int searchNotes(CommandContext<FabricClientCommandSource> context) {
+        FabricClientCommandSource source = context.getSource();
+        String terms = StringArgumentType.getString(context, "terms");
+        NoteSearchIndex.getInstance().search(terms, MAX_SEARCH_RESULTS).thenAccept(results -> source.getClient().execute(() -> {
+            if (results.isEmpty()) {
+                source.sendFeedback(Text.translatable("fullbright.note.search.none", terms));
+                return;
+            }
+            source.sendFeedback(Text.translatable("fullbright.note.search.title", terms, results.size()));
+            for (NoteSearchResult result : results) {
+                int line = result.lines().isEmpty() ? 1 : result.lines().getFirst() + 1;
+                String lines = result.lines().stream().map(index -> String.valueOf(index + 1)).collect(Collectors.joining(", "));
+                source.sendFeedback(Text.translatable("fullbright.note.search.entry", result.note().title(), lines).styled(style -> style
+                        .withClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/fullbright note goto " + line + " " + result.note().id()))
+                        .withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Text.translatable("fullbright.note.search.open")))));
+            }
+        }));
+        return 1;
+    }
+
+    /**
+     * Finds the note named by the "note" argument, reporting an error if there is none.
+     *
+     * @param context The command context
+     * @return The note, or null if no note matches
+     */
+    private static NoteEntry findNote(CommandContext<FabricClientCommandSource> context) {
+        String name = StringArgumentType.getString(context, "note");
+        NoteEntry note = NoteStore.getInstance().find(name);
+        if (note == null) {
+            context.getSource().sendError(Text.translatable("fullbright.note.not_found", name));
         }
+        return note;
+    }
+
+    /**
+     * Suggests the titles of the notes.
+     *
+     * @param context The command context
+     * @param builder The suggestions builder
+     * @return The suggestions
+     */
+    private static CompletableFuture<Suggestions> suggestNotes(CommandContext<FabricClientCommandSource> context, SuggestionsBuilder builder) {
+        return CommandSource.suggestMatching(NoteStore.getInstance().list().stream().map(NoteEntry::title), builder);
+    }
+
+    /**
+     * Opens a note in the text editor.
+     * Deferred to the next frame, so the chat screen closing after the command does not close the editor.
+     *
+     * @param context The command context
+     * @param note The note to open
+     * @param line The 0-based line to move the cursor to, or -1
+     */
+    private static void openNote(CommandContext<FabricClientCommandSource> context, NoteEntry note, int line) {
+        MinecraftClient client = context.getSource().getClient();
+        client.send(() -> client.setScreen(new SimpleTextEditorScreen(null, note, line)));
+    }
+
+    /**
+     * Formats a duration for the stats command.
+     *
+     * @param nanos The duration, in nanoseconds
+     * @return The duration in microseconds, with one decimal
+     */
+    private static String formatMicros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
+    /**
+     * Applies or removes the night vision effect based on the mod's enabled state.
+     * Work is only done on transitions, see {@link NightVisionController}.
+     *
+     * @param player The player to apply the effect to, or null when not in a world
+     */
+    public static void applyFullbrightEffect(ClientPlayerEntity player) {
+        NightVisionController.tick(player, getConfig());
     }
 
     /**
      * Gets the current configuration instance.
+     * Holds the defaults until the configuration file has been loaded.
      *
      * @return The mod's configuration
      */
     public static FullbrightConfig getConfig() {
-        return CONFIG;
+        return FullbrightConfig.getInstance();
     }
 }
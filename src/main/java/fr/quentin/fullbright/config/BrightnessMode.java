@@ -0,0 +1,66 @@
+package fr.quentin.fullbright.config;
+
+/**
+ * The strategies available for brightening the world.
+ * Selected through the configuration and the /fullbright mode command.
+ */
+public enum BrightnessMode {
+    /**
+     * Applies a hidden, infinite Night Vision status effect to the player.
+     * This is the original behavior of the mod.
+     */
+    NIGHT_VISION("nightvision"),
+
+    /**
+     * Writes full brightness straight into the lightmap texture.
+     * Leaves the player's status effects untouched.
+     */
+    LIGHTMAP("lightmap");
+
+    /**
+     * The name used for this mode in commands and translation keys.
+     */
+    private final String name;
+
+    /**
+     * Constructs a new BrightnessMode.
+     *
+     * @param name The name used for this mode in commands and translation keys
+     */
+    BrightnessMode(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name used for this mode in commands and translation keys.
+     *
+     * @return The name of the mode
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Looks up a mode by the name used in commands and configuration files.
+     *
+     * @param name The name of the mode
+     * @return The mode, or null if the name is unknown
+     */
+    public static BrightnessMode byName(String name) {
+        for (BrightnessMode mode : values()) {
+            if (mode.name.equals(name)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the translation key for the display name of this mode.
+     *
+     * @return The translation key of the mode
+     */
+    public String getTranslationKey() {
+        return "fullbright.mode." + name;
+    }
+}
@@ -0,0 +1,256 @@
+package fr.quentin.fullbright.config;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import fr.quentin.fullbright.Fullbright;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Streaming, reflection-free JSON codec shared by the configuration files.
+ * Each file declares its fields through a {@link FieldReader} and a {@link Writer},
+ * and carries a {@code version} field written first.
+ * Files at the current version are decoded in a single streaming pass.
+ * Older files, including the unversioned files written before versioning, are parsed to a tree once,
+ * upgraded by the file's {@link Migration}s, then decoded.
+ * Unknown fields are skipped and fields of the wrong type keep their default value.
+ */
+public final class ConfigCodec {
+    /**
+     * Name of the version field.
+     */
+    public static final String VERSION = "version";
+
+    /**
+     * Version of the files written before the version field existed.
+     */
+    private static final int UNVERSIONED = 1;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ConfigCodec() {
+    }
+
+    /**
+     * Decodes a file into a new instance.
+     *
+     * @param json The contents of the file
+     * @param fileName The name of the file, for logging
+     * @param currentVersion The version written by this build
+     * @param migrations The upgrade steps, the step at index {@code i} upgrades version {@code i + 1}
+     * @param factory Creates an instance holding the defaults
+     * @param fields Reads one field into the instance
+     * @param <T> The type of the configuration
+     * @return The decoded instance, never null
+     * @throws JsonParseException If the file is not a JSON object
+     */
+    public static <T> T decode(String json, String fileName, int currentVersion, List<Migration> migrations,
+                        Supplier<T> factory, FieldReader<T> fields) {
+        try {
+            // Fast path, a file written by this build starts with the current version
+            JsonReader reader = new JsonReader(new StringReader(json));
+            reader.beginObject();
+            if (reader.hasNext() && reader.nextName().equals(VERSION)
+                    && reader.peek() == JsonToken.NUMBER && reader.nextInt() == currentVersion) {
+                return readFields(reader, factory.get(), fields);
+            }
+
+            // Slow path, upgrade the tree before decoding it
+            JsonElement tree = JsonParser.parseString(json);
+            if (!tree.isJsonObject()) {
+                throw new JsonParseException(fileName + " is not a JSON object");
+            }
+            JsonObject object = tree.getAsJsonObject();
+            int version = readVersion(object);
+            if (version > currentVersion) {
+                Fullbright.LOGGER.warn(fileName + " was written by a newer version, unknown settings are ignored");
+            }
+            for (int from = version; from < currentVersion; from++) {
+                migrations.get(from - UNVERSIONED).apply(object);
+                Fullbright.LOGGER.debug("Migrated " + fileName + " from version " + from + " to " + (from + 1));
+            }
+            JsonReader upgraded = new JsonReader(new StringReader(object.toString()));
+            upgraded.beginObject();
+            return readFields(upgraded, factory.get(), fields);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException("Invalid " + fileName, e);
+        }
+    }
+
+    /**
+     * Encodes an instance, pretty-printed, with the version field first.
+     *
+     * @param version The version written by this build
+     * @param writer Writes the fields of the instance
+     * @return The contents of the file
+     */
+    public static String encode(int version, Writer writer) {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginObject();
+            json.name(VERSION).value(version);
+            writer.write(json);
+            json.endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode configuration", e); // StringWriter never fails
+        }
+        return out.toString();
+    }
+
+    /**
+     * Reads the remaining fields of an object into an instance.
+     *
+     * @param reader The reader, positioned inside the object
+     * @param target The instance holding the defaults
+     * @param fields Reads one field into the instance
+     * @param <T> The type of the configuration
+     * @return The instance
+     * @throws IOException If the contents are not valid JSON
+     */
+    private static <T> T readFields(JsonReader reader, T target, FieldReader<T> fields) throws IOException {
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals(VERSION)) {
+                reader.skipValue();
+            } else {
+                fields.read(target, name, reader);
+            }
+        }
+        reader.endObject();
+        return target;
+    }
+
+    /**
+     * Reads the version of an upgraded file.
+     *
+     * @param object The file as a tree
+     * @return The version, or {@link #UNVERSIONED} if the field is missing or invalid
+     */
+    private static int readVersion(JsonObject object) {
+        JsonElement version = object.get(VERSION);
+        if (version != null && version.isJsonPrimitive() && version.getAsJsonPrimitive().isNumber()) {
+            return Math.max(UNVERSIONED, version.getAsInt());
+        }
+        return UNVERSIONED;
+    }
+
+    /**
+     * Reads a boolean, or skips a value of another type.
+     *
+     * @param reader The reader, positioned on the value
+     * @param fallback The value to use if the type is wrong
+     * @return The value read, or the fallback
+     * @throws IOException If the contents are not valid JSON
+     */
+    public static boolean readBoolean(JsonReader reader, boolean fallback) throws IOException {
+        if (reader.peek() != JsonToken.BOOLEAN) {
+            reader.skipValue();
+            return fallback;
+        }
+        return reader.nextBoolean();
+    }
+
+    /**
+     * Reads an integer, or skips a value of another type.
+     *
+     * @param reader The reader, positioned on the value
+     * @param fallback The value to use if the type is wrong
+     * @return The value read, or the fallback
+     * @throws IOException If the contents are not valid JSON
+     */
+    public static int readInt(JsonReader reader, int fallback) throws IOException {
+        if (reader.peek() != JsonToken.NUMBER) {
+            reader.skipValue();
+            return fallback;
+        }
+        return (int) reader.nextDouble(); // Tolerates hand-edited values such as 50.0
+    }
+
+    /**
+     * Reads a long integer, or skips a value of another type.
+     *
+     * @param reader The reader, positioned on the value
+     * @param fallback The value to use if the type is wrong
+     * @return The value read, or the fallback
+     * @throws IOException If the contents are not valid JSON
+     */
+    public static long readLong(JsonReader reader, long fallback) throws IOException {
+        if (reader.peek() != JsonToken.NUMBER) {
+            reader.skipValue();
+            return fallback;
+        }
+        return (long) reader.nextDouble();
+    }
+
+    /**
+     * Reads a string, or skips a value of another type.
+     *
+     * @param reader The reader, positioned on the value
+     * @param fallback The value to use if the type is wrong
+     * @return The value read, or the fallback
+     * @throws IOException If the contents are not valid JSON
+     */
+    public static String readString(JsonReader reader, String fallback) throws IOException {
+        if (reader.peek() != JsonToken.STRING) {
+            reader.skipValue();
+            return fallback;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Reads one field of a configuration file.
+     *
+     * @param <T> The type of the configuration
+     */
+    @FunctionalInterface
+    public interface FieldReader<T> {
+        /**
+         * Reads the value of a field into an instance, or skips it if the field is unknown.
+         *
+         * @param target The instance to fill
+         * @param name The name of the field
+         * @param reader The reader, positioned on the value
+         * @throws IOException If the contents are not valid JSON
+         */
+        void read(T target, String name, JsonReader reader) throws IOException;
+    }
+
+    /**
+     * Writes the fields of a configuration file.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        /**
+         * Writes every field, inside the already opened object.
+         *
+         * @param json The writer
+         * @throws IOException If writing fails
+         */
+        void write(JsonWriter json) throws IOException;
+    }
+
+    /**
+     * Upgrades a file from one version to the next.
+     */
+    @FunctionalInterface
+    public interface Migration {
+        /**
+         * Upgrades the file in place.
+         *
+         * @param json The file as a tree
+         */
+        void apply(JsonObject json);
+    }
+}
@@ -0,0 +1,269 @@
+package fr.quentin.fullbright.config;
+
+import fr.quentin.fullbright.Fullbright;
+import fr.quentin.fullbright.metrics.Timer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Background persistence for the mod's configuration files.
+ * Files are loaded off the client thread at startup.
+ * Changes are coalesced per file within a debounce window and written on a background thread,
+ * through a temporary file that is atomically moved into place.
+ * Pending writes are flushed synchronously when the client shuts down, after the tasks already submitted.
+ * The checksum of the last contents read or written per file is kept, so {@link ConfigWatcher}
+ * can tell external edits apart from the mod's own writes.
+ */
+public final class ConfigPersistence {
+    /**
+     * Delay between the first change to a file and its write, in milliseconds.
+     * Further changes within this window are folded into the same write.
+     */
+    private static final long DEBOUNCE_MS = 500;
+
+    /**
+     * Single background thread performing loads and writes, so accesses to a file never overlap.
+     */
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Fullbright Config IO");
+        thread.setDaemon(true); // Never keep the game alive, shutdown is covered by flush()
+        return thread;
+    });
+
+    /**
+     * Pending writes keyed by file. Only the latest serializer of a file is kept.
+     */
+    private static final Map<Path, PendingWrite> PENDING = new ConcurrentHashMap<>();
+
+    /**
+     * Checksum of the last contents read or written, keyed by file.
+     */
+    private static final Map<Path, Long> KNOWN_CONTENTS = new ConcurrentHashMap<>();
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ConfigPersistence() {
+    }
+
+    /**
+     * Schedules a file to be written after the debounce window.
+     * The serializer is called on the writer thread, so it must be safe to call from there.
+     *
+     * @param path The file to write
+     * @param serializer Produces the file contents at write time
+     * @param timer The timer recording the duration of the write
+     */
+    public static void scheduleWrite(Path path, Supplier<String> serializer, Timer timer) {
+        PendingWrite previous = PENDING.put(path, new PendingWrite(serializer, timer));
+        if (previous == null) {
+            // First change in this window, later changes only replace the pending entry
+            EXECUTOR.schedule(() -> write(path), DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs a load on the background thread.
+     * Loads share the thread with writes, so a file is never read while it is being written.
+     *
+     * @param loader The load to run
+     * @param <T> The type of the loaded value
+     * @return A future completed with the loaded value
+     */
+    public static <T> CompletableFuture<T> loadAsync(Supplier<T> loader) {
+        return CompletableFuture.supplyAsync(loader, EXECUTOR);
+    }
+
+    /**
+     * Runs a task on the background thread, after the tasks already submitted.
+     * Used for files managed outside of the debounced writes, such as note journals.
+     *
+     * @param task The task to run
+     * @return A future completed when the task has run
+     */
+    public static CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(task, EXECUTOR);
+    }
+
+    /**
+     * Drops the pending write of a file, if any.
+     * Called when the file was replaced from outside, so stale contents do not overwrite it.
+     *
+     * @param path The file whose write to drop
+     */
+    public static void cancelWrite(Path path) {
+        PENDING.remove(path);
+    }
+
+    /**
+     * Gets the contents of a file that are waiting to be written.
+     * Lets a file be read back within its debounce window without seeing stale contents.
+     *
+     * @param path The file to look up
+     * @return The pending contents, or null if no write is pending
+     */
+    public static String getPendingContents(Path path) {
+        PendingWrite pending = PENDING.get(path);
+        return pending != null ? pending.serializer().get() : null;
+    }
+
+    /**
+     * Deletes a file on the background thread, dropping its pending write if any.
+     *
+     * @param path The file to delete
+     */
+    public static void scheduleDelete(Path path) {
+        PENDING.remove(path);
+        EXECUTOR.execute(() -> {
+            try {
+                Files.deleteIfExists(path);
+                KNOWN_CONTENTS.remove(path);
+            } catch (IOException e) {
+                Fullbright.LOGGER.error("Error deleting " + path.getFileName(), e);
+            }
+        });
+    }
+
+    /**
+     * Reads a file and remembers its contents.
+     *
+     * @param path The file to read
+     * @return The contents of the file
+     * @throws IOException If the file cannot be read
+     */
+    public static String read(Path path) throws IOException {
+        byte[] contents = Files.readAllBytes(path);
+        KNOWN_CONTENTS.put(path, checksum(contents));
+        return new String(contents, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a file if its contents differ from the last contents read or written by the mod.
+     *
+     * @param path The file to read
+     * @return The contents of the file, or null if they are already known
+     * @throws IOException If the file cannot be read
+     */
+    static String readIfChanged(Path path) throws IOException {
+        byte[] contents = Files.readAllBytes(path);
+        long checksum = checksum(contents);
+        Long previous = KNOWN_CONTENTS.put(path, checksum);
+        if (previous != null && previous == checksum) {
+            return null; // Our own write, or an event for contents that were already applied
+        }
+        return new String(contents, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Moves an unreadable file aside as {@code <name>.bak}, replacing an older backup,
+     * so writing the defaults in its place does not lose a hand-edited file.
+     *
+     * @param path The unreadable file
+     * @return True if the file was moved, false if it is still in place and must not be overwritten
+     */
+    static boolean moveAside(Path path) {
+        Path backup = path.resolveSibling(path.getFileName() + ".bak");
+        try {
+            Files.move(path, backup, StandardCopyOption.REPLACE_EXISTING);
+            Fullbright.LOGGER.warn(path.getFileName() + " could not be read, it was kept as " + backup.getFileName() + " and replaced with the defaults");
+            return true;
+        } catch (IOException e) {
+            Fullbright.LOGGER.error("Error moving " + path.getFileName() + " aside", e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes every pending file on the calling thread.
+     * Called when the client shuts down.
+     */
+    public static void flush() {
+        runAsync(() -> {
+        }).join(); // Let the tasks already submitted, such as journal appends, run first
+        for (Path path : PENDING.keySet()) {
+            write(path);
+        }
+    }
+
+    /**
+     * Writes the pending contents of a file, if any are still pending.
+     * The entry stays pending until the file is written, so {@link #getPendingContents(Path)} never
+     * falls back to the file while it still holds older contents.
+     * Synchronized, so a flush never writes a file at the same time as the background thread.
+     *
+     * @param path The file to write
+     */
+    private static synchronized void write(Path path) {
+        PendingWrite pending = PENDING.get(path);
+        if (pending == null) {
+            return; // Already written by a flush
+        }
+        long start = pending.timer().start();
+        try {
+            writeAtomically(path, pending.serializer().get());
+        } catch (IOException | RuntimeException e) {
+            Fullbright.LOGGER.error("Error saving " + path.getFileName(), e);
+        } finally {
+            pending.timer().stop(start);
+        }
+        if (!PENDING.remove(path, pending) && PENDING.containsKey(path)) {
+            // Changed while it was being written, the newer contents need a write of their own
+            EXECUTOR.schedule(() -> write(path), DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes a file through a temporary sibling that is moved into place,
+     * so readers never observe a partially written file.
+     *
+     * @param path The file to write
+     * @param contents The contents of the file
+     * @throws IOException If the file cannot be written
+     */
+    public static void writeAtomically(Path path, String contents) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+        Files.write(temporary, bytes);
+        KNOWN_CONTENTS.put(path, checksum(bytes)); // Before the move, the watcher may see the file right after it
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING); // Best effort on file systems without atomic moves
+        }
+    }
+
+    /**
+     * Computes the checksum used to recognize known contents.
+     *
+     * @param contents The contents of a file
+     * @return The CRC32 of the contents
+     */
+    private static long checksum(byte[] contents) {
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        return crc.getValue();
+    }
+
+    /**
+     * A write waiting for its debounce window to end.
+     *
+     * @param serializer Produces the file contents at write time
+     * @param timer The timer recording the duration of the write
+     */
+    private record PendingWrite(Supplier<String> serializer, Timer timer) {
+    }
+}
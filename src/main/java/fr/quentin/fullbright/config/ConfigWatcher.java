@@ -0,0 +1,206 @@
+package fr.quentin.fullbright.config;
+
+import com.google.gson.JsonParseException;
+import fr.quentin.fullbright.Fullbright;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Hot reload of the configuration files when they are edited outside of the game.
+ * A daemon thread blocks on a {@link WatchService} over the config directory, so nothing is polled.
+ * Changed files are read and parsed on that thread, skipping contents the mod wrote itself,
+ * and handed to the client thread through an atomic reference applied on the next tick.
+ */
+public final class ConfigWatcher {
+    /**
+     * The files reloaded when they change.
+     */
+    private static final WatchedFile<?>[] FILES = {
+            new WatchedFile<>("fullbright.json", FullbrightConfig::parse, FullbrightConfig::install)
+    };
+
+    /**
+     * The watch service over the config directory, or null when not watching.
+     */
+    private static WatchService service;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ConfigWatcher() {
+    }
+
+    /**
+     * Starts watching the config directory.
+     * If the file system does not support watching, hot reload is disabled and the error is logged.
+     */
+    public static synchronized void start() {
+        if (service != null) {
+            return;
+        }
+        Path directory = FabricLoader.getInstance().getConfigDir();
+        try {
+            Files.createDirectories(directory);
+            service = directory.getFileSystem().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            Fullbright.LOGGER.error("Unable to watch the config directory, configuration hot reload is disabled", e);
+            return;
+        }
+
+        WatchService watching = service;
+        Thread thread = new Thread(() -> run(directory, watching), "Fullbright Config Watcher");
+        thread.setDaemon(true); // Never keep the game alive
+        thread.start();
+    }
+
+    /**
+     * Stops watching the config directory. The watcher thread exits once the service is closed.
+     */
+    public static synchronized void stop() {
+        if (service == null) {
+            return;
+        }
+        try {
+            service.close();
+        } catch (IOException e) {
+            Fullbright.LOGGER.error("Error closing the config watcher", e);
+        }
+        service = null;
+    }
+
+    /**
+     * Installs the configurations reloaded since the last call.
+     * Called on the client thread every tick. In steady state this is one atomic read per file.
+     */
+    public static void applyPending() {
+        for (int i = 0; i < FILES.length; i++) { // Indexed loop, this runs on the allocation-free tick path
+            FILES[i].apply();
+        }
+    }
+
+    /**
+     * Waits for file events until the service is closed.
+     *
+     * @param directory The watched config directory
+     * @param watching The watch service
+     */
+    private static void run(Path directory, WatchService watching) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watching.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, check every file
+                    for (WatchedFile<?> file : FILES) {
+                        file.check(directory);
+                    }
+                } else if (event.context() instanceof Path name) {
+                    for (WatchedFile<?> file : FILES) {
+                        if (file.fileName.equals(name.toString())) {
+                            file.check(directory);
+                        }
+                    }
+                }
+            }
+            if (!key.reset()) {
+                Fullbright.LOGGER.warn("The config directory is no longer accessible, configuration hot reload is disabled");
+                return;
+            }
+        }
+    }
+
+    /**
+     * A configuration file and the way to reload it.
+     *
+     * @param <T> The type of the configuration
+     */
+    private static final class WatchedFile<T> {
+        /**
+         * The name of the file in the config directory.
+         */
+        private final String fileName;
+
+        /**
+         * Deserializes the contents of the file.
+         */
+        private final Function<String, T> parser;
+
+        /**
+         * Installs a reloaded configuration, on the client thread.
+         */
+        private final Consumer<T> installer;
+
+        /**
+         * The latest reloaded configuration not yet installed, or null.
+         */
+        private final AtomicReference<T> pending = new AtomicReference<>();
+
+        /**
+         * Constructs a new WatchedFile.
+         *
+         * @param fileName The name of the file in the config directory
+         * @param parser Deserializes the contents of the file
+         * @param installer Installs a reloaded configuration
+         */
+        private WatchedFile(String fileName, Function<String, T> parser, Consumer<T> installer) {
+            this.fileName = fileName;
+            this.parser = parser;
+            this.installer = installer;
+        }
+
+        /**
+         * Reads the file and queues it for installation if its contents changed from outside the mod.
+         * Runs on the watcher thread.
+         *
+         * @param directory The config directory
+         */
+        private void check(Path directory) {
+            Path path = directory.resolve(fileName);
+            if (!Files.exists(path)) {
+                return; // Deleted, or between the steps of a replacement
+            }
+            try {
+                String contents = ConfigPersistence.readIfChanged(path);
+                if (contents == null) {
+                    return;
+                }
+                T config = parser.apply(contents);
+                if (config != null) {
+                    pending.set(config); // A later edit replaces one not yet installed
+                    Fullbright.LOGGER.info("Reloading " + fileName + " after an external change");
+                }
+            } catch (IOException | JsonParseException e) {
+                Fullbright.LOGGER.warn("Ignoring invalid change to " + fileName, e);
+            }
+        }
+
+        /**
+         * Installs the pending configuration, if any. Runs on the client thread.
+         */
+        private void apply() {
+            if (pending.get() == null) {
+                return; // Plain read in steady state
+            }
+            T config = pending.getAndSet(null);
+            if (config != null) {
+                installer.accept(config);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package fr.quentin.fullbright.config;
+
+import java.util.Locale;
+
+/**
+ * Brightness settings overriding the global configuration in one dimension.
+ * Stored in the configuration file keyed by dimension identifier.
+ */
+public class DimensionProfile {
+    /**
+     * Level value meaning the global level is used.
+     */
+    public static final int GLOBAL_LEVEL = -1;
+
+    /**
+     * Whether fullbright is forced on, forced off or follows the global toggle.
+     * Defaults to following the global toggle.
+     */
+    private Behavior behavior = Behavior.DEFAULT;
+
+    /**
+     * The brightness level used in this dimension, or {@link #GLOBAL_LEVEL}.
+     * Defaults to the global level.
+     */
+    private int level = GLOBAL_LEVEL;
+
+    /**
+     * Gets how this profile affects the global toggle.
+     *
+     * @return The behavior of the profile, never null
+     */
+    public Behavior getBehavior() {
+        return behavior != null ? behavior : Behavior.DEFAULT; // Fall back when the file holds an unknown value
+    }
+
+    /**
+     * Sets how this profile affects the global toggle.
+     *
+     * @param behavior The behavior of the profile
+     */
+    public void setBehavior(Behavior behavior) {
+        this.behavior = behavior;
+    }
+
+    /**
+     * Gets the brightness level used in this dimension.
+     *
+     * @return The level, or {@link #GLOBAL_LEVEL} to use the global level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the brightness level used in this dimension.
+     *
+     * @param level The level, or {@link #GLOBAL_LEVEL} to use the global level
+     */
+    public void setLevel(int level) {
+        this.level = level < 0 ? GLOBAL_LEVEL : Math.min(100, level);
+    }
+
+    /**
+     * Creates a copy of this profile, to change and hand back through {@link FullbrightConfig#setProfile}.
+     *
+     * @return A new profile with the same settings
+     */
+    public DimensionProfile copy() {
+        DimensionProfile copy = new DimensionProfile();
+        copy.behavior = behavior;
+        copy.level = level;
+        return copy;
+    }
+
+    /**
+     * Checks whether this profile changes nothing compared to the global configuration.
+     *
+     * @return True if the profile can be dropped, false otherwise
+     */
+    public boolean isDefault() {
+        return getBehavior() == Behavior.DEFAULT && level == GLOBAL_LEVEL;
+    }
+
+    /**
+     * How a profile combines with the global fullbright toggle.
+     */
+    public enum Behavior {
+        /**
+         * Follows the global toggle.
+         */
+        DEFAULT,
+
+        /**
+         * Fullbright is always on in this dimension.
+         */
+        ON,
+
+        /**
+         * Fullbright is always off in this dimension.
+         */
+        OFF;
+
+        /**
+         * Gets the name used for this behavior in commands and configuration files.
+         *
+         * @return The lowercase name of the behavior
+         */
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Looks up a behavior by the name used in commands and configuration files.
+         *
+         * @param name The name of the behavior
+         * @return The behavior, or null if the name is unknown
+         */
+        public static Behavior byName(String name) {
+            for (Behavior behavior : values()) {
+                if (behavior.getName().equals(name)) {
+                    return behavior;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Resolves the enabled state for this behavior.
+         *
+         * @param globalEnabled The global toggle
+         * @return True if fullbright should be active
+         */
+        public boolean resolve(boolean globalEnabled) {
+            return switch (this) {
+                case DEFAULT -> globalEnabled;
+                case ON -> true;
+                case OFF -> false;
+            };
+        }
+    }
+}
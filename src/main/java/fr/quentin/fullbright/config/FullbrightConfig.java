@@ -1,37 +1,68 @@
 package fr.quentin.fullbright.config;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import fr.quentin.fullbright.Fullbright;
+import fr.quentin.fullbright.api.FullbrightState;
+import fr.quentin.fullbright.metrics.Metrics;
 import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.World;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Configuration management for the Fullbright mod.
- * Handles saving and loading of mod settings using JSON format.
+ * Handles saving and loading of mod settings using JSON format, through the versioned {@link ConfigCodec}.
+ * Setters are synchronized and publish an immutable {@link FullbrightState}, which getters read without locking.
  */
 public class FullbrightConfig {
     /**
      * Singleton instance of the configuration.
-     * Ensures that only one instance of the configuration is used throughout the application.
+     * Holds the defaults until the load started by {@link #loadAsync()} is handed off.
      */
-    private static FullbrightConfig instance;
+    private static volatile FullbrightConfig instance = new FullbrightConfig();
 
     /**
-     * The location where the config file will be stored.
-     * Uses the Fabric loader's config directory to resolve the path.
+     * The load running in the background, or null once it has been handed off.
      */
-    private static final File CONFIG_FILE = FabricLoader.getInstance().getConfigDir().resolve("fullbright.json").toFile();
+    private static CompletableFuture<FullbrightConfig> pendingLoad;
 
     /**
-     * Gson instance for JSON serialization/deserialization.
-     * Configured to create human-readable JSON files with pretty printing.
+     * Version of the file written by this build.
+     * Version 1 is the unversioned file written through Gson reflection, with enum constant names.
      */
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final int VERSION = 2;
+
+    /**
+     * Upgrade steps of the file, the step at index {@code i} upgrades version {@code i + 1}.
+     */
+    private static final List<ConfigCodec.Migration> MIGRATIONS = List.of(
+            FullbrightConfig::migrateEnumNames
+    );
+
+    /**
+     * Longest interval between autosaves of the note editor, in seconds.
+     */
+    public static final int MAX_AUTOSAVE_SECONDS = 600;
+
+    /**
+     * Largest memory budget of the note editor's undo history, in kilobytes.
+     */
+    public static final int MAX_UNDO_KILOBYTES = 65536;
 
     /**
      * Whether the fullbright effect is currently enabled.
@@ -46,48 +77,263 @@ public class FullbrightConfig {
     private boolean showOverlay = true;
 
     /**
-     * Saves the current configuration to disk.
+     * The strategy used to brighten the world.
+     * Defaults to the Night Vision effect.
+     */
+    private BrightnessMode mode = BrightnessMode.NIGHT_VISION;
+
+    /**
+     * The brightness level used by the lightmap mode, in percent.
+     * Defaults to 100.
+     */
+    private int level = 100;
+
+    /**
+     * Whether the lightmap mode fades in and out when toggled.
+     * Defaults to true.
+     */
+    private boolean fade = true;
+
+    /**
+     * Interval between autosaves of the note editor, in seconds, or 0 to disable autosaving.
+     * Defaults to 10.
+     */
+    private int noteAutosaveSeconds = 10;
+
+    /**
+     * Memory budget of the note editor's undo history, in kilobytes, or 0 to disable undo.
+     * Defaults to 4096.
+     */
+    private int noteUndoKilobytes = 4096;
+
+    /**
+     * Per-dimension overrides of the global settings, keyed by dimension identifier.
+     * Defaults to no overrides.
+     */
+    private Map<String, DimensionProfile> dimensions = new HashMap<>();
+
+    /**
+     * The dimension overrides keyed by registry key, built from {@link #dimensions} on first use.
+     * Not serialized.
+     */
+    private transient Map<RegistryKey<World>, DimensionProfile> profilesByKey;
+
+    /**
+     * Incremented on every change, so cached views of the configuration can tell when to refresh.
+     * Not serialized.
+     */
+    private transient volatile int revision = 0;
+
+    /**
+     * Immutable snapshot of the global settings, republished by every setter.
+     * Readers on any thread go through it rather than the mutable fields. Not serialized.
+     */
+    private transient volatile FullbrightState state;
+
+    /**
+     * Schedules the current configuration to be saved to disk.
+     * Rapid changes are coalesced and written on a background thread, see {@link ConfigPersistence}.
      * If an error occurs during saving, it will be logged but won't crash the game.
      */
     public void save() {
-        try (FileWriter writer = new FileWriter(CONFIG_FILE)) {
-            GSON.toJson(this, writer); // Serialize the current configuration to JSON and write to file
-        } catch (IOException e) {
-            Fullbright.LOGGER.error("Error saving Fullbright configuration", e);
-        }
+        ConfigPersistence.scheduleWrite(getConfigFile(), this::toJson, Metrics.CONFIG_SAVE);
+    }
+
+    /**
+     * Serializes the configuration to JSON.
+     * Synchronized with the setters, as it runs on the writer thread.
+     *
+     * @return The configuration as pretty-printed JSON
+     */
+    synchronized String toJson() {
+        return ConfigCodec.encode(VERSION, json -> {
+            json.name("enabled").value(enabled);
+            json.name("showOverlay").value(showOverlay);
+            json.name("mode").value(getState().mode().getName());
+            json.name("level").value(getState().level());
+            json.name("fade").value(fade);
+            json.name("noteAutosaveSeconds").value(noteAutosaveSeconds);
+            json.name("noteUndoKilobytes").value(noteUndoKilobytes);
+            json.name("dimensions").beginObject();
+            if (dimensions != null) {
+                for (Map.Entry<String, DimensionProfile> entry : dimensions.entrySet()) {
+                    if (entry.getValue() == null) {
+                        continue;
+                    }
+                    json.name(entry.getKey()).beginObject();
+                    json.name("behavior").value(entry.getValue().getBehavior().getName());
+                    json.name("level").value(entry.getValue().getLevel());
+                    json.endObject();
+                }
+            }
+            json.endObject();
+        });
     }
 
     /**
      * Loads the configuration from disk or creates a new one if none exists.
+     * Does not change the singleton instance, see {@link #loadAsync()}.
      *
      * @return The loaded or newly created configuration
      */
     public static FullbrightConfig load() {
-        if (CONFIG_FILE.exists()) {
-            try (FileReader reader = new FileReader(CONFIG_FILE)) {
-                instance = GSON.fromJson(reader, FullbrightConfig.class); // Deserialize the JSON file to a configuration object
-                return instance;
-            } catch (IOException e) {
+        Path configFile = getConfigFile();
+        if (Files.exists(configFile)) {
+            try {
+                FullbrightConfig config = parse(ConfigPersistence.read(configFile));
+                if (config != null) {
+                    return config;
+                }
+            } catch (IOException | JsonParseException e) {
                 Fullbright.LOGGER.error("Error loading Fullbright configuration", e);
+                if (!ConfigPersistence.moveAside(configFile)) {
+                    return new FullbrightConfig(); // Serve the defaults without replacing the file
+                }
             }
         }
 
-        // If the config file does not exist, create a new configuration instance
-        instance = new FullbrightConfig();
-        instance.save(); // Save the default configuration to disk
-        return instance;
+        // If the config file does not exist or was moved aside, create a new configuration instance
+        FullbrightConfig config = new FullbrightConfig();
+        config.save(); // Save the default configuration to disk
+        return config;
+    }
+
+    /**
+     * Starts loading the configuration on the background IO thread.
+     * The defaults are served until {@link #finishLoading()} hands the loaded values off.
+     */
+    public static void loadAsync() {
+        pendingLoad = ConfigPersistence.loadAsync(FullbrightConfig::load);
+    }
+
+    /**
+     * Installs the configuration loaded by {@link #loadAsync()}, waiting for it if needed.
+     * Called once on the client thread when the client has started, so every later read sees the loaded values.
+     */
+    public static void finishLoading() {
+        if (pendingLoad == null) {
+            return;
+        }
+        instance = pendingLoad.join();
+        pendingLoad = null;
+    }
+
+    /**
+     * Replaces the configuration with one read from an edited file.
+     * Called on the client thread by {@link ConfigWatcher}, readers pick the new instance up on their next access.
+     *
+     * @param config The configuration to use
+     */
+    static void install(FullbrightConfig config) {
+        ConfigPersistence.cancelWrite(getConfigFile()); // The edited file wins over changes not yet written
+        instance = config;
+    }
+
+    /**
+     * Deserializes a configuration file.
+     *
+     * @param json The contents of the file
+     * @return The configuration, never null
+     * @throws JsonParseException If the file is not a valid configuration
+     */
+    static FullbrightConfig parse(String json) {
+        return ConfigCodec.decode(json, "fullbright.json", VERSION, MIGRATIONS, FullbrightConfig::new, FullbrightConfig::readField);
+    }
+
+    /**
+     * Reads one field of the configuration file. Missing fields keep their defaults, unknown fields are skipped.
+     *
+     * @param config The configuration to fill
+     * @param name The name of the field
+     * @param reader The reader, positioned on the value
+     * @throws IOException If the contents are not valid JSON
+     */
+    private static void readField(FullbrightConfig config, String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case "enabled" -> config.enabled = ConfigCodec.readBoolean(reader, config.enabled);
+            case "showOverlay" -> config.showOverlay = ConfigCodec.readBoolean(reader, config.showOverlay);
+            case "mode" -> {
+                BrightnessMode mode = BrightnessMode.byName(ConfigCodec.readString(reader, null));
+                if (mode != null) {
+                    config.mode = mode;
+                }
+            }
+            case "level" -> config.level = Math.max(0, Math.min(100, ConfigCodec.readInt(reader, config.level)));
+            case "fade" -> config.fade = ConfigCodec.readBoolean(reader, config.fade);
+            case "noteAutosaveSeconds" -> config.noteAutosaveSeconds = Math.max(0, Math.min(MAX_AUTOSAVE_SECONDS, ConfigCodec.readInt(reader, config.noteAutosaveSeconds)));
+            case "noteUndoKilobytes" -> config.noteUndoKilobytes = Math.max(0, Math.min(MAX_UNDO_KILOBYTES, ConfigCodec.readInt(reader, config.noteUndoKilobytes)));
+            case "dimensions" -> readDimensions(config.dimensions, reader);
+            default -> reader.skipValue(); // Unknown setting, possibly from a newer version
+        }
+    }
+
+    /**
+     * Reads the dimension overrides.
+     *
+     * @param dimensions The map to fill
+     * @param reader The reader, positioned on the value
+     * @throws IOException If the contents are not valid JSON
+     */
+    private static void readDimensions(Map<String, DimensionProfile> dimensions, JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String id = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            DimensionProfile profile = new DimensionProfile();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "behavior" -> {
+                        DimensionProfile.Behavior behavior = DimensionProfile.Behavior.byName(ConfigCodec.readString(reader, null));
+                        if (behavior != null) {
+                            profile.setBehavior(behavior);
+                        }
+                    }
+                    case "level" -> profile.setLevel(ConfigCodec.readInt(reader, DimensionProfile.GLOBAL_LEVEL));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!profile.isDefault()) {
+                dimensions.put(id, profile);
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Upgrades a version 1 file, which stored the mode and behaviors as enum constant names.
+     *
+     * @param json The file as a tree
+     */
+    private static void migrateEnumNames(JsonObject json) {
+        if (json.get("mode") instanceof JsonPrimitive mode && mode.isString()) {
+            json.addProperty("mode", mode.getAsString().replace("_", "").toLowerCase(Locale.ROOT)); // NIGHT_VISION to nightvision
+        }
+        if (json.get("dimensions") instanceof JsonObject dimensions) {
+            for (Map.Entry<String, JsonElement> entry : dimensions.entrySet()) {
+                if (entry.getValue() instanceof JsonObject profile
+                        && profile.get("behavior") instanceof JsonPrimitive behavior && behavior.isString()) {
+                    profile.addProperty("behavior", behavior.getAsString().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
     }
 
     /**
      * Gets the singleton instance of the configuration.
-     * If the instance is null, it loads the configuration from disk.
+     * Never null, holds the defaults until the configuration file has been loaded.
      *
      * @return The singleton instance of the configuration
      */
     public static FullbrightConfig getInstance() {
-        if (instance == null) {
-            instance = load();
-        }
         return instance;
     }
 
@@ -97,7 +343,7 @@ public class FullbrightConfig {
      * @return True if the fullbright effect is enabled, false otherwise
      */
     public boolean isEnabled() {
-        return enabled;
+        return getState().enabled();
     }
 
     /**
@@ -105,8 +351,9 @@ public class FullbrightConfig {
      *
      * @param enabled True to enable the fullbright effect, false to disable it
      */
-    public void setEnabled(boolean enabled) {
+    public synchronized void setEnabled(boolean enabled) {
         this.enabled = enabled;
+        publish();
         save(); // Save the configuration whenever the enabled state changes
     }
 
@@ -116,7 +363,7 @@ public class FullbrightConfig {
      * @return True if the status overlay should be displayed, false otherwise
      */
     public boolean isShowOverlay() {
-        return showOverlay;
+        return getState().showOverlay();
     }
 
     /**
@@ -124,8 +371,227 @@ public class FullbrightConfig {
      *
      * @param showOverlay True to display the status overlay, false to hide it
      */
-    public void setShowOverlay(boolean showOverlay) {
+    public synchronized void setShowOverlay(boolean showOverlay) {
         this.showOverlay = showOverlay;
+        publish();
         save(); // Save the configuration whenever the overlay visibility changes
     }
+
+    /**
+     * Gets the strategy used to brighten the world.
+     *
+     * @return The active brightness mode, never null
+     */
+    public BrightnessMode getMode() {
+        return getState().mode();
+    }
+
+    /**
+     * Sets the strategy used to brighten the world.
+     *
+     * @param mode The brightness mode to use
+     */
+    public synchronized void setMode(BrightnessMode mode) {
+        this.mode = mode;
+        publish();
+        save(); // Save the configuration whenever the mode changes
+    }
+
+    /**
+     * Gets the brightness level used by the lightmap mode.
+     *
+     * @return The brightness level, from 0 to 100
+     */
+    public int getLevel() {
+        return getState().level();
+    }
+
+    /**
+     * Sets the brightness level used by the lightmap mode.
+     * Values outside of 0-100 are clamped.
+     *
+     * @param level The brightness level, in percent
+     */
+    public synchronized void setLevel(int level) {
+        this.level = Math.max(0, Math.min(100, level));
+        publish();
+        save(); // Save the configuration whenever the level changes
+    }
+
+    /**
+     * Checks if the lightmap mode fades in and out when toggled.
+     *
+     * @return True if fading is enabled, false otherwise
+     */
+    public boolean isFade() {
+        return getState().fade();
+    }
+
+    /**
+     * Sets whether the lightmap mode fades in and out when toggled.
+     *
+     * @param fade True to fade, false to switch instantly
+     */
+    public synchronized void setFade(boolean fade) {
+        this.fade = fade;
+        publish();
+        save(); // Save the configuration whenever the fade setting changes
+    }
+
+    /**
+     * Gets the interval between autosaves of the note editor.
+     *
+     * @return The interval in seconds, or 0 if autosaving is disabled
+     */
+    public synchronized int getNoteAutosaveSeconds() {
+        return noteAutosaveSeconds;
+    }
+
+    /**
+     * Sets the interval between autosaves of the note editor.
+     * Values outside of 0-{@value #MAX_AUTOSAVE_SECONDS} are clamped.
+     *
+     * @param seconds The interval in seconds, or 0 to disable autosaving
+     */
+    public synchronized void setNoteAutosaveSeconds(int seconds) {
+        this.noteAutosaveSeconds = Math.max(0, Math.min(MAX_AUTOSAVE_SECONDS, seconds));
+        publish();
+        save(); // Save the configuration whenever the autosave interval changes
+    }
+
+    /**
+     * Gets the memory budget of the note editor's undo history.
+     *
+     * @return The budget in kilobytes, or 0 if undo is disabled
+     */
+    public synchronized int getNoteUndoKilobytes() {
+        return noteUndoKilobytes;
+    }
+
+    /**
+     * Sets the memory budget of the note editor's undo history.
+     * Values outside of 0-{@value #MAX_UNDO_KILOBYTES} are clamped.
+     *
+     * @param kilobytes The budget in kilobytes, or 0 to disable undo
+     */
+    public synchronized void setNoteUndoKilobytes(int kilobytes) {
+        this.noteUndoKilobytes = Math.max(0, Math.min(MAX_UNDO_KILOBYTES, kilobytes));
+        publish();
+        save(); // Save the configuration whenever the undo budget changes
+    }
+
+    /**
+     * Gets the override for a dimension.
+     *
+     * @param dimension The dimension to look up
+     * @return The profile of the dimension, or null if it uses the global settings
+     */
+    public synchronized DimensionProfile getProfile(RegistryKey<World> dimension) {
+        return getProfilesByKey().get(dimension);
+    }
+
+    /**
+     * Sets or removes the override for a dimension.
+     *
+     * @param dimension The dimension to configure
+     * @param profile The profile to use, or null to use the global settings
+     */
+    public synchronized void setProfile(RegistryKey<World> dimension, DimensionProfile profile) {
+        if (dimensions == null) {
+            dimensions = new HashMap<>(); // The file may hold an explicit null
+        }
+        if (profile == null || profile.isDefault()) {
+            dimensions.remove(dimension.getValue().toString());
+            getProfilesByKey().remove(dimension);
+        } else {
+            dimensions.put(dimension.getValue().toString(), profile);
+            getProfilesByKey().put(dimension, profile);
+        }
+        publish();
+        save(); // Save the configuration whenever a profile changes
+    }
+
+    /**
+     * Gets the snapshot of the global settings.
+     * Lock-free once published, the snapshot of a freshly deserialized configuration is built on first use.
+     *
+     * @return The current settings, never null
+     */
+    public FullbrightState getState() {
+        FullbrightState current = state;
+        if (current == null) {
+            synchronized (this) {
+                if (state == null) {
+                    state = createState();
+                }
+                current = state;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Publishes the current field values as a new snapshot and bumps the revision.
+     * Called by every setter, while holding the lock.
+     */
+    private void publish() {
+        revision++;
+        state = createState();
+    }
+
+    /**
+     * Builds a snapshot from the fields, sanitizing values read from the file.
+     *
+     * @return The snapshot of the current field values
+     */
+    private FullbrightState createState() {
+        return new FullbrightState(
+                enabled,
+                showOverlay,
+                mode != null ? mode : BrightnessMode.NIGHT_VISION, // Fall back when the file holds an unknown value
+                Math.max(0, Math.min(100, level)),
+                fade
+        );
+    }
+
+    /**
+     * Gets the revision of the configuration, which changes whenever a setting changes.
+     *
+     * @return The current revision
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Gets the dimension overrides keyed by registry key, building them on first use.
+     *
+     * @return The profiles keyed by dimension
+     */
+    private Map<RegistryKey<World>, DimensionProfile> getProfilesByKey() {
+        if (profilesByKey == null) {
+            profilesByKey = new HashMap<>();
+            if (dimensions != null) {
+                dimensions.forEach((id, profile) -> {
+                    Identifier identifier = Identifier.tryParse(id);
+                    if (identifier != null && profile != null) {
+                        profilesByKey.put(RegistryKey.of(RegistryKeys.WORLD, identifier), profile);
+                    } else {
+                        Fullbright.LOGGER.warn("Ignoring invalid dimension profile: " + id);
+                    }
+                });
+            }
+        }
+        return profilesByKey;
+    }
+
+    /**
+     * Gets the location where the config file is stored.
+     * Resolved on use rather than at class load, so the class can be used without a running Fabric loader.
+     *
+     * @return The config file in the Fabric loader's config directory
+     */
+    static Path getConfigFile() {
+        return FabricLoader.getInstance().getConfigDir().resolve("fullbright.json");
+    }
 }
@@ -1,43 +1,34 @@
 package fr.quentin.fullbright.config;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import fr.quentin.fullbright.Fullbright;
 import net.fabricmc.loader.api.FabricLoader;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
 
 /**
- * Configuration management for storing and retrieving a note.
- * Handles saving and loading of the note using JSON format.
+ * The single-note file used before notes moved to the note store.
+ * Only read once, to migrate its note into the store, then renamed out of the way.
  */
 public class NoteConfig {
     /**
-     * Singleton instance of the configuration.
-     * Ensures that only one instance of the configuration is used throughout the application.
+     * Version of the file written by the last build that used it.
+     * Version 1 is the unversioned file written through Gson reflection, which has the same layout.
      */
-    private static NoteConfig instance;
+    private static final int VERSION = 2;
 
     /**
-     * The location where the config file will be stored.
-     * Uses the Fabric loader's config directory to resolve the path.
+     * Upgrade steps of the file, the step at index {@code i} upgrades version {@code i + 1}.
      */
-    private static final File CONFIG_FILE = FabricLoader.getInstance().getConfigDir().resolve("note.json").toFile();
-
-    /**
-     * Gson instance for JSON serialization/deserialization.
-     * Configured to create human-readable JSON files with pretty printing.
-     */
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-
-    /**
-     * Maximum length of the note in characters.
-     * Ensures that the note does not exceed a certain length to prevent excessive storage usage.
-     */
-    private static final int MAX_NOTE_LENGTH = 10000;
+    private static final List<ConfigCodec.Migration> MIGRATIONS = List.of(
+            json -> {
+                // Version 2 only added the version field
+            }
+    );
 
     /**
      * The note content.
@@ -46,44 +37,44 @@ public class NoteConfig {
     private String note = "";
 
     /**
-     * Loads the configuration from disk or creates a new one if none exists.
+     * Reads the note of the legacy file and renames the file, so it is only migrated once.
      *
-     * @return The loaded or newly created configuration
+     * @return The note, or null if there is no legacy file or it holds an empty note
      */
-    public static NoteConfig load() {
-        if (CONFIG_FILE.exists()) {
-            try (FileReader reader = new FileReader(CONFIG_FILE)) {
-                instance = GSON.fromJson(reader, NoteConfig.class); // Deserialize the JSON file to a configuration object
-                if (instance == null) {
-                    instance = new NoteConfig(); // Create a new instance if deserialization fails
-                }
-                return instance;
-            } catch (IOException e) {
-                Fullbright.LOGGER.error("Error loading NoteConfig", e);
-            }
+    public static String migrate() {
+        Path configFile = getConfigFile();
+        if (!Files.exists(configFile)) {
+            return null;
         }
-
-        // If the config file does not exist, create a new configuration instance
-        instance = new NoteConfig();
-        instance.save(); // Save the default configuration to disk
-        return instance;
+        String note = null;
+        try {
+            note = parse(ConfigPersistence.read(configFile)).getNote();
+            Files.move(configFile, configFile.resolveSibling("note.json.migrated"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | JsonParseException e) {
+            Fullbright.LOGGER.error("Error migrating NoteConfig", e);
+        }
+        return note == null || note.isEmpty() ? null : note;
     }
 
     /**
-     * Gets the singleton instance of the configuration.
-     * If the instance is null, it loads the configuration from disk.
+     * Deserializes a configuration file.
      *
-     * @return The singleton instance of the configuration
+     * @param json The contents of the file
+     * @return The configuration, never null
+     * @throws JsonParseException If the file is not a valid configuration
      */
-    public static NoteConfig getInstance() {
-        if (instance == null) {
-            instance = load();
-        }
-        return instance;
+    static NoteConfig parse(String json) {
+        return ConfigCodec.decode(json, "note.json", VERSION, MIGRATIONS, NoteConfig::new, (config, name, reader) -> {
+            if (name.equals("note")) {
+                config.note = ConfigCodec.readString(reader, ""); // The file may hold an explicit null
+            } else {
+                reader.skipValue(); // Unknown setting, possibly from a newer version
+            }
+        });
     }
 
     /**
-     * Gets the current note content.
+     * Gets the note content.
      *
      * @return The note content
      */
@@ -92,38 +83,12 @@ public class NoteConfig {
     }
 
     /**
-     * Sets the note content.
-     * If the note exceeds the maximum length, it is truncated.
+     * Gets the location where the config file is stored.
+     * Resolved on use rather than at class load, so the class can be used without a running Fabric loader.
      *
-     * @param note The new note content
+     * @return The config file in the Fabric loader's config directory
      */
-    public void setNote(String note) {
-        if (note == null) {
-            this.note = ""; // Set to empty string if the input is null
-        } else if (note.length() > MAX_NOTE_LENGTH) {
-            this.note = note.substring(0, MAX_NOTE_LENGTH); // Truncate the note if it exceeds the maximum length
-            Fullbright.LOGGER.warn("Note truncated to " + MAX_NOTE_LENGTH + " characters");
-        } else {
-            this.note = note; // Set the note content
-        }
-        save(); // Save the configuration whenever the note changes
-    }
-
-    /**
-     * Saves the current configuration to disk.
-     * If an error occurs during saving, it will be logged but won't crash the game.
-     */
-    public void save() {
-        try {
-            if (!CONFIG_FILE.exists()) {
-                CONFIG_FILE.getParentFile().mkdirs(); // Create parent directories if they don't exist
-                CONFIG_FILE.createNewFile(); // Create the file if it doesn't exist
-            }
-            try (FileWriter writer = new FileWriter(CONFIG_FILE)) {
-                GSON.toJson(this, writer); // Serialize the current configuration to JSON and write to file
-            }
-        } catch (IOException e) {
-            Fullbright.LOGGER.error("Error saving NoteConfig", e);
-        }
+    private static Path getConfigFile() {
+        return FabricLoader.getInstance().getConfigDir().resolve("note.json");
     }
 }
@@ -0,0 +1,101 @@
+package fr.quentin.fullbright.light;
+
+import fr.quentin.fullbright.api.FullbrightState;
+import fr.quentin.fullbright.config.DimensionProfile;
+import fr.quentin.fullbright.config.FullbrightConfig;
+import net.minecraft.client.world.ClientWorld;
+
+/**
+ * The brightness settings in effect for the current dimension.
+ * Resolved from the configuration and its dimension profiles only when the world
+ * or the configuration changes, so the tick and render paths read plain fields.
+ * Also notifies the API listeners, on the client thread, when a resolved value changed.
+ */
+public class ActiveProfile {
+    /**
+     * The world the settings were last resolved for.
+     */
+    private static ClientWorld trackedWorld;
+
+    /**
+     * The configuration instance the settings were last resolved for.
+     */
+    private static FullbrightConfig trackedConfig;
+
+    /**
+     * The configuration revision the settings were last resolved for.
+     */
+    private static int trackedRevision = -1;
+
+    /**
+     * The global settings listeners were last notified of.
+     */
+    private static FullbrightState trackedState;
+
+    /**
+     * Whether fullbright is active in the current dimension.
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * The brightness level in effect in the current dimension.
+     */
+    private static volatile int level = 100;
+
+    /**
+     * Re-resolves the settings if the world or the configuration changed.
+     * In steady state this is three comparisons.
+     *
+     * @param world The current world, or null when not in a world
+     * @param config The mod configuration
+     */
+    public static void update(ClientWorld world, FullbrightConfig config) {
+        if (world == trackedWorld && config == trackedConfig && config.getRevision() == trackedRevision) {
+            return;
+        }
+        trackedWorld = world;
+        trackedConfig = config;
+        trackedRevision = config.getRevision();
+
+        // A single map lookup per dimension change or configuration change
+        FullbrightState state = config.getState();
+        DimensionProfile profile = world != null ? config.getProfile(world.getRegistryKey()) : null;
+        boolean previousEnabled = enabled;
+        int previousLevel = level;
+        if (profile == null) {
+            enabled = state.enabled();
+            level = state.level();
+        } else {
+            enabled = profile.getBehavior().resolve(state.enabled());
+            level = profile.getLevel() != DimensionProfile.GLOBAL_LEVEL ? profile.getLevel() : state.level();
+        }
+
+        // Notify API listeners of what actually changed
+        FullbrightState previousState = trackedState;
+        trackedState = state;
+        if (previousState != null && !previousState.equals(state)) {
+            StateListeners.fireStateChanged(previousState, state);
+        }
+        if (enabled != previousEnabled || level != previousLevel) {
+            StateListeners.fireActiveChanged(enabled, level);
+        }
+    }
+
+    /**
+     * Checks whether fullbright is active in the current dimension.
+     *
+     * @return True if fullbright is active, false otherwise
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the brightness level in effect in the current dimension.
+     *
+     * @return The brightness level, from 0 to 100
+     */
+    public static int getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,213 @@
+package fr.quentin.fullbright.light;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import fr.quentin.fullbright.command.FullbrightCommand;
+import fr.quentin.fullbright.config.BrightnessMode;
+import fr.quentin.fullbright.config.FullbrightConfig;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gl.SimpleFramebuffer;
+import net.minecraft.client.texture.NativeImage;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.util.Util;
+import net.minecraft.world.World;
+
+/**
+ * Drives the lightmap-based brightness mode.
+ * Called from the lightmap mixin in place of the vanilla lightmap update.
+ * The lightmap is only redrawn when one of its inputs changes, otherwise the
+ * previous contents of the framebuffer are kept as they are.
+ * Levels and fade steps come from {@link LightmapTables}, so a redraw is an array copy.
+ */
+public class FullbrightLightmap {
+    /**
+     * Marker level meaning the framebuffer is owned by vanilla.
+     */
+    private static final int OFF = -1;
+
+    /**
+     * Duration of a fade between two levels, in milliseconds.
+     */
+    private static final long FADE_DURATION_MS = 400;
+
+    /**
+     * The level the framebuffer currently holds, or {@link #OFF} if it holds vanilla contents.
+     */
+    private static int displayedLevel = OFF;
+
+    /**
+     * The dimension the framebuffer was last written for.
+     */
+    private static RegistryKey<World> cachedDimension;
+
+    /**
+     * The mode the framebuffer was last written for.
+     */
+    private static BrightnessMode cachedMode;
+
+    /**
+     * The target level seen during the last update, or {@link #OFF} if the override was not wanted.
+     */
+    private static int lastTarget = OFF;
+
+    /**
+     * Whether a fade is in progress.
+     */
+    private static boolean fading = false;
+
+    /**
+     * The level a fade started from.
+     */
+    private static int fadeFrom;
+
+    /**
+     * The level a fade ends at.
+     */
+    private static int fadeTo;
+
+    /**
+     * The time a fade started at, in milliseconds.
+     */
+    private static long fadeStart;
+
+    /**
+     * CPU-side copy of the lightmap, uploaded into the framebuffer's color attachment.
+     * Allocated once on first use and kept for the lifetime of the client.
+     */
+    private static NativeImage image;
+
+    /**
+     * Number of lightmap updates that redrew the framebuffer.
+     */
+    private static long performedUpdates = 0;
+
+    /**
+     * Number of lightmap updates skipped because no input changed.
+     */
+    private static long skippedUpdates = 0;
+
+    /**
+     * Checks whether fullbright is wanted in lightmap mode in the current dimension.
+     *
+     * @return True if fullbright is enabled in lightmap mode, false otherwise
+     */
+    public static boolean isActive() {
+        return ActiveProfile.isEnabled() && FullbrightCommand.getConfig().getMode() == BrightnessMode.LIGHTMAP;
+    }
+
+    /**
+     * Updates the lightmap override for the current frame.
+     * Redraws only if the level, dimension or mode changed since the last write.
+     *
+     * @param lightmap The framebuffer backing the lightmap texture
+     * @param dirty Whether vanilla would have recomputed the lightmap this frame
+     * @return True if the mod owns the lightmap and the vanilla update must be skipped
+     */
+    public static boolean update(SimpleFramebuffer lightmap, boolean dirty) {
+        FullbrightConfig config = FullbrightCommand.getConfig();
+        int target = isActive() ? ActiveProfile.getLevel() : OFF;
+        if (target != lastTarget) {
+            startFade(target, config.isFade());
+        }
+
+        int level = target;
+        if (fading) {
+            long elapsed = Util.getMeasuringTimeMs() - fadeStart;
+            if (elapsed >= FADE_DURATION_MS) {
+                fading = false;
+            } else {
+                level = fadeFrom + (int) ((fadeTo - fadeFrom) * elapsed / FADE_DURATION_MS);
+            }
+        }
+        if (!fading && target == OFF) {
+            return false; // Fully faded out, vanilla takes the lightmap back
+        }
+
+        ClientWorld world = MinecraftClient.getInstance().world;
+        RegistryKey<World> dimension = world != null ? world.getRegistryKey() : null;
+        BrightnessMode mode = config.getMode();
+
+        if (level == displayedLevel && dimension == cachedDimension && mode == cachedMode) {
+            if (dirty) {
+                skippedUpdates++; // Vanilla would have redrawn here
+            }
+            return true;
+        }
+
+        write(lightmap, LightmapTables.get(level));
+        displayedLevel = level;
+        cachedDimension = dimension;
+        cachedMode = mode;
+        performedUpdates++;
+        return true;
+    }
+
+    /**
+     * Forgets the cached contents once vanilla owns the lightmap again.
+     *
+     * @return True if the mod had written the framebuffer and vanilla must redraw it now
+     */
+    public static boolean release() {
+        if (displayedLevel == OFF) {
+            return false;
+        }
+        displayedLevel = OFF;
+        return true;
+    }
+
+    /**
+     * Gets the number of lightmap updates that redrew the framebuffer.
+     *
+     * @return The performed update count
+     */
+    public static long getPerformedUpdates() {
+        return performedUpdates;
+    }
+
+    /**
+     * Gets the number of lightmap updates skipped because no input changed.
+     *
+     * @return The skipped update count
+     */
+    public static long getSkippedUpdates() {
+        return skippedUpdates;
+    }
+
+    /**
+     * Starts moving towards a new target level, with or without a fade.
+     *
+     * @param target The new target level, or {@link #OFF}
+     * @param fade Whether to fade towards the target
+     */
+    private static void startFade(int target, boolean fade) {
+        lastTarget = target;
+        if (!fade || (displayedLevel == OFF && target == OFF)) {
+            fading = false;
+            return;
+        }
+        // Level 0 stands in for the vanilla curve at either end of a fade
+        fadeFrom = displayedLevel == OFF ? 0 : displayedLevel;
+        fadeTo = target == OFF ? 0 : target;
+        fadeStart = Util.getMeasuringTimeMs();
+        fading = true;
+    }
+
+    /**
+     * Copies a precomputed table into the lightmap texture.
+     *
+     * @param lightmap The framebuffer backing the lightmap texture
+     * @param texels The ARGB texels to upload
+     */
+    private static void write(SimpleFramebuffer lightmap, int[] texels) {
+        if (image == null) {
+            image = new NativeImage(LightmapTables.SIZE, LightmapTables.SIZE, false);
+        }
+        for (int sky = 0; sky < LightmapTables.SIZE; sky++) {
+            for (int block = 0; block < LightmapTables.SIZE; block++) {
+                image.setColorArgb(block, sky, texels[sky * LightmapTables.SIZE + block]);
+            }
+        }
+        RenderSystem.bindTexture(lightmap.getColorAttachment());
+        image.upload(0, 0, 0, false); // Keep the image, it is reused for every redraw
+    }
+}
@@ -0,0 +1,66 @@
+package fr.quentin.fullbright.light;
+
+/**
+ * Precomputed lightmap contents for every brightness level.
+ * Each table holds the 16x16 lightmap texels in ARGB, indexed by {@code sky * 16 + block}.
+ * Tables are built once at class load, so picking a level or stepping a fade is a plain array lookup.
+ */
+public final class LightmapTables {
+    /**
+     * The highest brightness level, in percent.
+     */
+    public static final int MAX_LEVEL = 100;
+
+    /**
+     * Number of light levels per axis of the lightmap.
+     */
+    public static final int SIZE = 16;
+
+    /**
+     * One table of {@code SIZE * SIZE} ARGB texels per level, from 0 to {@link #MAX_LEVEL}.
+     */
+    private static final int[][] TABLES = new int[MAX_LEVEL + 1][SIZE * SIZE];
+
+    static {
+        for (int level = 0; level <= MAX_LEVEL; level++) {
+            float boost = level / (float) MAX_LEVEL;
+            int[] table = TABLES[level];
+            for (int sky = 0; sky < SIZE; sky++) {
+                for (int block = 0; block < SIZE; block++) {
+                    float base = Math.max(curve(sky), curve(block));
+                    float value = base + (1.0f - base) * boost; // Lift the vanilla curve towards white
+                    int channel = Math.round(value * 255.0f);
+                    table[sky * SIZE + block] = 0xFF000000 | channel << 16 | channel << 8 | channel;
+                }
+            }
+        }
+    }
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private LightmapTables() {
+    }
+
+    /**
+     * Gets the precomputed lightmap for a level.
+     * The returned array is shared and must not be modified.
+     *
+     * @param level The brightness level, clamped to 0-100
+     * @return The ARGB texels for the level
+     */
+    public static int[] get(int level) {
+        return TABLES[Math.max(0, Math.min(MAX_LEVEL, level))];
+    }
+
+    /**
+     * The vanilla brightness curve for a light level, without ambient light.
+     *
+     * @param lightLevel The light level, from 0 to 15
+     * @return The brightness, from 0 to 1
+     */
+    private static float curve(int lightLevel) {
+        float f = lightLevel / 15.0f;
+        return f / (4.0f - 3.0f * f);
+    }
+}
@@ -0,0 +1,125 @@
+package fr.quentin.fullbright.light;
+
+import fr.quentin.fullbright.config.BrightnessMode;
+import fr.quentin.fullbright.config.FullbrightConfig;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.entity.effect.StatusEffectInstance;
+import net.minecraft.entity.effect.StatusEffects;
+
+/**
+ * Edge-triggered controller for the Night Vision brightness mode.
+ * Only touches the player's status effects when something relevant changes:
+ * the configuration or dimension profile, the player instance (world join, respawn, dimension change)
+ * or a Night Vision effect being removed by the server.
+ * In steady state a tick is a handful of field comparisons and allocates nothing.
+ */
+public class NightVisionController {
+    /**
+     * The player instance the effect state was last reconciled against.
+     * Minecraft creates a new player instance on world join, respawn and dimension change.
+     */
+    private static ClientPlayerEntity trackedPlayer;
+
+    /**
+     * The enabled state seen during the last reconciliation.
+     */
+    private static boolean lastEnabled;
+
+    /**
+     * The brightness mode seen during the last reconciliation.
+     */
+    private static BrightnessMode lastMode;
+
+    /**
+     * Whether the next tick must reconcile regardless of the other inputs.
+     * Set when the server removes a Night Vision effect from the player.
+     */
+    private static volatile boolean dirty = true;
+
+    /**
+     * Number of reconciliations performed since startup.
+     */
+    private static long transitions = 0;
+
+    /**
+     * Updates the player's effects if any input changed since the last tick.
+     *
+     * @param player The current player, or null when not in a world
+     * @param config The mod configuration
+     */
+    public static void tick(ClientPlayerEntity player, FullbrightConfig config) {
+        if (player == null) {
+            trackedPlayer = null; // Drop the reference so a disconnected world can be collected
+            return;
+        }
+
+        boolean enabled = ActiveProfile.isEnabled(); // Already resolved for the current dimension
+        BrightnessMode mode = config.getMode();
+        if (!dirty && player == trackedPlayer && enabled == lastEnabled && mode == lastMode) {
+            return; // Nothing changed, nothing to do
+        }
+
+        boolean newPlayer = player != trackedPlayer;
+        trackedPlayer = player;
+        lastEnabled = enabled;
+        lastMode = mode;
+        dirty = false;
+        transitions++;
+
+        if (enabled && mode == BrightnessMode.NIGHT_VISION) {
+            // Leave any existing effect alone, a real potion wins until the server removes it
+            if (!player.hasStatusEffect(StatusEffects.NIGHT_VISION)) {
+                player.addStatusEffect(createEffect());
+            }
+        } else if (!newPlayer) {
+            // A fresh player instance never carried the mod's effect, so only clean up on a real transition
+            removeEffect(player);
+        }
+    }
+
+    /**
+     * Forces a reconciliation on the next tick.
+     * Called when the server removes a Night Vision effect from the player.
+     */
+    public static void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Gets the number of reconciliations performed since startup.
+     *
+     * @return The transition count
+     */
+    public static long getTransitionCount() {
+        return transitions;
+    }
+
+    /**
+     * Creates the hidden, infinite Night Vision effect applied by the mod.
+     *
+     * @return A new effect instance
+     */
+    private static StatusEffectInstance createEffect() {
+        return new StatusEffectInstance(
+                StatusEffects.NIGHT_VISION,
+                StatusEffectInstance.INFINITE, // Never expires, removed explicitly on transition
+                0, // Amplifier (level of the effect)
+                false, // Ambient (whether the effect is ambient)
+                false, // Visible (whether the effect is visible)
+                false // Show icon (whether to show the effect icon)
+        );
+    }
+
+    /**
+     * Removes the night vision effect only if it is the hidden, infinite one added by the mod.
+     * Effects from potions or the server are left in place.
+     *
+     * @param player The player to remove the effect from
+     */
+    private static void removeEffect(ClientPlayerEntity player) {
+        StatusEffectInstance currentEffect = player.getStatusEffect(StatusEffects.NIGHT_VISION);
+        if (currentEffect != null && currentEffect.isInfinite() && !currentEffect.shouldShowIcon()) {
+            player.removeStatusEffect(StatusEffects.NIGHT_VISION);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package fr.quentin.fullbright.light;
+
+import fr.quentin.fullbright.Fullbright;
+import fr.quentin.fullbright.api.FullbrightListener;
+import fr.quentin.fullbright.api.FullbrightState;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the {@link FullbrightListener}s registered through the API.
+ * Listeners are notified by {@link ActiveProfile} on the client thread, only when a value changed.
+ * A failing listener is logged and does not prevent the others from being notified.
+ */
+public final class StateListeners {
+    /**
+     * The registered listeners. Copy-on-write, as registrations are rare and notifications iterate.
+     */
+    private static final List<FullbrightListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private StateListeners() {
+    }
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener The listener to register
+     */
+    public static void add(FullbrightListener listener) {
+        LISTENERS.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener to unregister
+     */
+    public static void remove(FullbrightListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Notifies the listeners that the global settings changed.
+     *
+     * @param previous The settings before the change
+     * @param current The settings after the change
+     */
+    static void fireStateChanged(FullbrightState previous, FullbrightState current) {
+        for (FullbrightListener listener : LISTENERS) {
+            try {
+                listener.onStateChanged(previous, current);
+            } catch (RuntimeException e) {
+                Fullbright.LOGGER.error("Fullbright listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners that the brightness in effect changed.
+     *
+     * @param active Whether fullbright is active in the current dimension
+     * @param level The brightness level in effect
+     */
+    static void fireActiveChanged(boolean active, int level) {
+        for (FullbrightListener listener : LISTENERS) {
+            try {
+                listener.onActiveChanged(active, level);
+            } catch (RuntimeException e) {
+                Fullbright.LOGGER.error("Fullbright listener failed", e);
+            }
+        }
+    }
+}
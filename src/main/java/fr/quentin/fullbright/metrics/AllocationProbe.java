@@ -0,0 +1,68 @@
+package fr.quentin.fullbright.metrics;
+
+import fr.quentin.fullbright.Fullbright;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the number of bytes allocated by the current thread.
+ * Backs the allocation budgets of {@link Timer}. Enabled in development environments,
+ * or with {@code -Dfullbright.allocationChecks=true}, when the JVM supports allocation counters.
+ */
+public final class AllocationProbe {
+    /**
+     * The HotSpot extension of the thread bean, or null if allocation counters are unavailable.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = createBean();
+
+    /**
+     * Whether allocation budgets are checked.
+     */
+    public static final boolean ENABLED = THREADS != null
+            && (Boolean.getBoolean("fullbright.allocationChecks") || isDevelopmentEnvironment());
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private AllocationProbe() {
+    }
+
+    /**
+     * Gets the number of bytes allocated by the current thread since it started.
+     *
+     * @return The allocated bytes, or 0 if the probe is disabled
+     */
+    public static long allocatedBytes() {
+        return ENABLED ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Looks up the HotSpot thread bean and turns on allocation counters.
+     *
+     * @return The bean, or null if allocation counters are unsupported
+     */
+    private static com.sun.management.ThreadMXBean createBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean hotspot && hotspot.isThreadAllocatedMemorySupported()) {
+            hotspot.setThreadAllocatedMemoryEnabled(true);
+            return hotspot;
+        }
+        Fullbright.LOGGER.info("Thread allocation counters are unavailable, allocation budgets are not checked");
+        return null;
+    }
+
+    /**
+     * Checks whether the mod runs in a development environment, without failing outside of Fabric.
+     *
+     * @return True in a development environment, false otherwise
+     */
+    private static boolean isDevelopmentEnvironment() {
+        try {
+            return FabricLoader.getInstance().isDevelopmentEnvironment();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
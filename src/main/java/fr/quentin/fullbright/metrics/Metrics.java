@@ -0,0 +1,76 @@
+package fr.quentin.fullbright.metrics;
+
+import java.util.List;
+
+/**
+ * Registry of the timers covering every mod hook.
+ * All timers are created up front, so hooks reference them through static fields
+ * and recording never looks anything up or allocates.
+ * Per-tick and per-frame hooks declare an allocation budget in bytes per call.
+ */
+public class Metrics {
+    /**
+     * The END_CLIENT_TICK handler.
+     */
+    public static final Timer CLIENT_TICK = new Timer("client_tick", "fullbright_tick", 0);
+
+    /**
+     * The status overlay HUD layer.
+     */
+    public static final Timer HUD_OVERLAY = new Timer("hud_overlay", "fullbright_overlay", 256);
+
+    /**
+     * Writes of the fullbright configuration.
+     */
+    public static final Timer CONFIG_SAVE = new Timer("config_save", "fullbright_config_save");
+
+    /**
+     * Writes of the note index and journal appends.
+     */
+    public static final Timer NOTE_SAVE = new Timer("note_save", "fullbright_note_save");
+
+    /**
+     * Autosaves of the note editor to a swap file.
+     */
+    public static final Timer NOTE_AUTOSAVE = new Timer("note_autosave", "fullbright_note_autosave");
+
+    /**
+     * Compactions of a note journal into the note file.
+     */
+    public static final Timer NOTE_COMPACT = new Timer("note_compact", "fullbright_note_compact");
+
+    /**
+     * Keyboard and mouse handling in the text editor.
+     */
+    public static final Timer EDITOR_INPUT = new Timer("editor_input", "fullbright_editor_input");
+
+    /**
+     * Rendering of the text editor.
+     */
+    public static final Timer EDITOR_RENDER = new Timer("editor_render", "fullbright_editor_render", 8192);
+
+    /**
+     * Every registered timer, in display order.
+     */
+    private static final List<Timer> TIMERS = List.of(
+            CLIENT_TICK, HUD_OVERLAY, CONFIG_SAVE, NOTE_SAVE, NOTE_AUTOSAVE, NOTE_COMPACT, EDITOR_INPUT, EDITOR_RENDER
+    );
+
+    /**
+     * Gets every registered timer.
+     *
+     * @return The timers, in display order
+     */
+    public static List<Timer> getTimers() {
+        return TIMERS;
+    }
+
+    /**
+     * Clears the samples of every registered timer.
+     */
+    public static void reset() {
+        for (Timer timer : TIMERS) {
+            timer.reset();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package fr.quentin.fullbright.metrics;
+
+import fr.quentin.fullbright.Fullbright;
+import net.minecraft.util.profiler.Profilers;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram for one mod hook.
+ * Samples fall into fixed power-of-two nanosecond buckets, so recording is a few
+ * atomic increments and never allocates.
+ * Optionally pushes a section to the vanilla profiler so the hook shows up in the F3 pie chart.
+ * Timers of hot paths declare an allocation budget, checked over windows of calls by {@link AllocationProbe}.
+ * A budgeted timer must only be used from one thread.
+ */
+public class Timer {
+    /**
+     * Number of histogram buckets. Bucket {@code i} holds samples in {@code [2^i, 2^(i+1))} nanoseconds.
+     */
+    private static final int BUCKETS = 64;
+
+    /**
+     * Marker budget meaning allocations are not checked.
+     */
+    public static final long NO_BUDGET = -1;
+
+    /**
+     * Number of calls in a budget window, the budget is checked once per window.
+     */
+    private static final int BUDGET_WINDOW = 1000;
+
+    /**
+     * Number of calls per window allowed to go over budget.
+     */
+    private static final int BUDGET_TOLERANCE = BUDGET_WINDOW / 100;
+
+    /**
+     * The name displayed by the stats command.
+     */
+    private final String name;
+
+    /**
+     * The vanilla profiler section, or null if the hook is not profiled.
+     */
+    private final String profilerSection;
+
+    /**
+     * Sample counts per bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Total number of samples.
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Longest sample, in nanoseconds.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Allowed allocation per call, in bytes, or {@link #NO_BUDGET}.
+     */
+    private final long allocationBudget;
+
+    /**
+     * Whether allocations are measured for this timer.
+     */
+    private final boolean checkAllocations;
+
+    /**
+     * Allocated bytes of the current thread when the running call started.
+     */
+    private long allocationStart;
+
+    /**
+     * Bytes allocated during the current budget window.
+     */
+    private long windowBytes;
+
+    /**
+     * Calls made during the current budget window.
+     */
+    private int windowCalls;
+
+    /**
+     * Calls of the current budget window that allocated more than the budget.
+     */
+    private int windowCallsOverBudget;
+
+    /**
+     * Average bytes per call over the last completed budget window.
+     */
+    private volatile long lastWindowAverage;
+
+    /**
+     * Number of budget windows that went over budget.
+     */
+    private volatile long budgetViolations;
+
+    /**
+     * Constructs a new Timer without an allocation budget.
+     *
+     * @param name The name displayed by the stats command
+     * @param profilerSection The vanilla profiler section, or null to skip the profiler
+     */
+    Timer(String name, String profilerSection) {
+        this(name, profilerSection, NO_BUDGET);
+    }
+
+    /**
+     * Constructs a new Timer.
+     *
+     * @param name The name displayed by the stats command
+     * @param profilerSection The vanilla profiler section, or null to skip the profiler
+     * @param allocationBudget Allowed allocation per call in bytes, or {@link #NO_BUDGET}
+     */
+    Timer(String name, String profilerSection, long allocationBudget) {
+        this.name = name;
+        this.profilerSection = profilerSection;
+        this.allocationBudget = allocationBudget;
+        this.checkAllocations = allocationBudget != NO_BUDGET && AllocationProbe.ENABLED;
+    }
+
+    /**
+     * Starts timing a call of the hook.
+     *
+     * @return The start time to pass to {@link #stop(long)}
+     */
+    public long start() {
+        if (profilerSection != null) {
+            Profilers.get().push(profilerSection);
+        }
+        if (checkAllocations) {
+            allocationStart = AllocationProbe.allocatedBytes();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Stops timing a call of the hook and records the sample.
+     *
+     * @param start The value returned by {@link #start()}
+     */
+    public void stop(long start) {
+        record(System.nanoTime() - start);
+        if (checkAllocations) {
+            recordAllocation(AllocationProbe.allocatedBytes() - allocationStart);
+        }
+        if (profilerSection != null) {
+            Profilers.get().pop();
+        }
+    }
+
+    /**
+     * Records a sample.
+     *
+     * @param nanos The duration of the call, in nanoseconds
+     */
+    public void record(long nanos) {
+        long sample = Math.max(1, nanos);
+        buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(sample)); // floor(log2(sample))
+        count.incrementAndGet();
+        max.accumulateAndGet(sample, Math::max);
+    }
+
+    /**
+     * Adds the allocation of one call to the budget window, and checks the budget when the window is full.
+     * A window fails when more than {@link #BUDGET_TOLERANCE} of its calls went over budget,
+     * so one-off work such as opening a screen does not count, while a per-call allocation always does.
+     *
+     * @param bytes The bytes allocated by the call
+     */
+    private void recordAllocation(long bytes) {
+        windowBytes += bytes;
+        if (bytes > allocationBudget) {
+            windowCallsOverBudget++;
+        }
+        if (++windowCalls < BUDGET_WINDOW) {
+            return;
+        }
+        lastWindowAverage = windowBytes / windowCalls;
+        int overBudget = windowCallsOverBudget;
+        windowBytes = 0;
+        windowCalls = 0;
+        windowCallsOverBudget = 0;
+        if (overBudget > BUDGET_TOLERANCE) {
+            budgetViolations++;
+            Fullbright.LOGGER.warn("Allocation budget exceeded in " + name + ": " + overBudget + " of "
+                    + BUDGET_WINDOW + " calls allocated more than " + allocationBudget
+                    + " bytes, " + lastWindowAverage + " bytes per call on average");
+        }
+    }
+
+    /**
+     * Gets an approximation of a percentile, as the upper bound of the bucket holding it.
+     *
+     * @param percentile The percentile to compute, from 0 to 1
+     * @return The approximate latency, in nanoseconds, or 0 if there are no samples
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(max.get(), i >= 62 ? Long.MAX_VALUE : 1L << (i + 1));
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Gets the name displayed by the stats command.
+     *
+     * @return The name of the hook
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the total number of samples.
+     *
+     * @return The call count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the longest sample.
+     *
+     * @return The maximum latency, in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Checks whether allocations are measured for this timer.
+     *
+     * @return True if the timer has a budget and the probe is enabled
+     */
+    public boolean isCheckingAllocations() {
+        return checkAllocations;
+    }
+
+    /**
+     * Gets the allowed allocation per call.
+     *
+     * @return The budget in bytes, or {@link #NO_BUDGET}
+     */
+    public long getAllocationBudget() {
+        return allocationBudget;
+    }
+
+    /**
+     * Gets the average allocation per call over the last completed budget window.
+     *
+     * @return The average in bytes
+     */
+    public long getLastWindowAverage() {
+        return lastWindowAverage;
+    }
+
+    /**
+     * Gets the number of budget windows that went over budget.
+     *
+     * @return The violation count
+     */
+    public long getBudgetViolations() {
+        return budgetViolations;
+    }
+
+    /**
+     * Clears all samples, and the allocations of the current and last budget windows.
+     * Called by the stats command, on the client thread like the budgeted hooks.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+        windowBytes = 0;
+        windowCalls = 0;
+        windowCallsOverBudget = 0;
+        lastWindowAverage = 0;
+        budgetViolations = 0;
+    }
+}
@@ -0,0 +1,24 @@
+package fr.quentin.fullbright.mixin;
+
+import fr.quentin.fullbright.light.NightVisionController;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.entity.effect.StatusEffects;
+import net.minecraft.network.packet.s2c.play.RemoveEntityStatusEffectS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Notices when the server removes Night Vision so the effect can be re-applied once, instead of every tick.
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class ClientPlayNetworkHandlerMixin {
+	@Inject(at = @At("TAIL"), method = "onRemoveEntityStatusEffect")
+	private void fullbright$onRemoveEntityStatusEffect(RemoveEntityStatusEffectS2CPacket packet, CallbackInfo info) {
+		// Reached on the client thread only, the network thread bails out earlier
+		if (packet.effect().equals(StatusEffects.NIGHT_VISION)) {
+			NightVisionController.markDirty();
+		}
+	}
+}
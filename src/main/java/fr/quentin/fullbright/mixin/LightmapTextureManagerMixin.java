@@ -0,0 +1,35 @@
+package fr.quentin.fullbright.mixin;
+
+import fr.quentin.fullbright.light.FullbrightLightmap;
+import net.minecraft.client.gl.SimpleFramebuffer;
+import net.minecraft.client.render.LightmapTextureManager;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Replaces the vanilla lightmap update while the lightmap brightness mode is active or fading.
+ */
+@Mixin(LightmapTextureManager.class)
+public abstract class LightmapTextureManagerMixin {
+	@Shadow
+	@Final
+	private SimpleFramebuffer lightmapFramebuffer;
+
+	@Shadow
+	private boolean dirty;
+
+	@Inject(at = @At("HEAD"), method = "update", cancellable = true)
+	private void fullbright$update(float delta, CallbackInfo info) {
+		if (FullbrightLightmap.update(this.lightmapFramebuffer, this.dirty)) {
+			this.dirty = false;
+			info.cancel();
+		} else if (FullbrightLightmap.release()) {
+			// Vanilla owns the framebuffer again and must overwrite the mod's contents right away
+			this.dirty = true;
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package fr.quentin.fullbright.note;
+
+/**
+ * One edit of a note body, replacing a range of characters with new text.
+ *
+ * @param offset The offset where the edit starts, in characters
+ * @param removedLength The number of characters removed at the offset
+ * @param inserted The text inserted at the offset, empty for a deletion
+ */
+public record NoteEdit(int offset, int removedLength, String inserted) {
+}
@@ -0,0 +1,12 @@
+package fr.quentin.fullbright.note;
+
+/**
+ * Index entry of a note, everything known about it without reading its body.
+ *
+ * @param id The identifier of the note, also the name of its file
+ * @param title The title displayed in the note list
+ * @param size The length of the body, in characters
+ * @param modified When the body was last saved, in milliseconds since the epoch
+ */
+public record NoteEntry(String id, String title, int size, long modified) {
+}
@@ -0,0 +1,479 @@
+package fr.quentin.fullbright.note;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Every saved version of a note, appended to a history file on each save.
+ * A version is stored either as a keyframe, the full body, or as the line changes made since the previous
+ * version. A keyframe is written every {@value #KEYFRAME_INTERVAL} versions, so restoring a version
+ * decompresses at most that many entries. A keyframe is rebuilt from the previous versions in the history,
+ * so recording one does not read the note. Bodies are deflated with a preset dictionary of common words,
+ * which helps the small diffs most.
+ * <p>
+ * Each entry starts with an uncompressed header: kind, time, body length, body checksum and compressed length,
+ * so versions are listed by skipping from header to header without reading the bodies. The checksum is the
+ * CRC32 of the body of the version, so a save is only recorded as a diff if it started from that very body,
+ * not merely one of the same length.
+ * <p>
+ * Every method does file IO and is only called on the background IO thread.
+ */
+final class NoteHistory {
+    /**
+     * First bytes of a history file, "FBH1".
+     */
+    private static final int MAGIC = 0x46424831;
+
+    /**
+     * Number of versions from one keyframe to the next.
+     */
+    private static final int KEYFRAME_INTERVAL = 16;
+
+    /**
+     * Size of an entry header: kind, time, body length, body checksum and compressed length.
+     */
+    private static final int ENTRY_HEADER_SIZE = 1 + 8 + 4 + 4 + 4;
+
+    /**
+     * Entry holding the full body.
+     */
+    private static final byte KEYFRAME = 1;
+
+    /**
+     * Entry holding the line changes since the previous version.
+     */
+    private static final byte DELTA = 2;
+
+    /**
+     * Preset dictionary shared by every entry, made of words common in notes.
+     * Deflate matches the most useful strings best when they are near the end.
+     */
+    private static final byte[] DICTIONARY = String.join(" ",
+            "todo", "done", "need", "find", "build", "farm", "mine", "chest", "storage", "wood", "stone",
+            "iron", "gold", "diamond", "netherite", "emerald", "redstone", "lapis", "coal", "copper",
+            "village", "villager", "trade", "enchant", "book", "spawn", "bed", "house", "base",
+            "portal", "nether", "overworld", "end", "stronghold", "fortress", "bastion", "monument",
+            "north", "south", "east", "west", "coords", "coordinates", "x:", "y:", "z:",
+            "with", "from", "this", "that", "have", "for", "and", "the", "to", "of", "in", "at", "on"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private NoteHistory() {
+    }
+
+    /**
+     * Checks whether a history has no version yet.
+     *
+     * @param file The history file
+     * @return True if the file is missing or holds no entry
+     * @throws IOException If the file cannot be read
+     */
+    static boolean isEmpty(Path file) throws IOException {
+        return !Files.exists(file) || Files.size(file) <= 4;
+    }
+
+    /**
+     * Lists the versions of a note, reading only the entry headers.
+     *
+     * @param file The history file
+     * @return The versions, the oldest first
+     * @throws IOException If the file cannot be read
+     */
+    static List<NoteVersion> list(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return scan(channel).versions();
+        }
+    }
+
+    /**
+     * Records the version produced by a save.
+     *
+     * @param file The history file
+     * @param base The body before the save, written first as a keyframe if the history is empty, or null
+     * @param baseChecksum The checksum of the body before the save, see {@link #checksum}
+     * @param changes The line changes made by the save
+     * @param size The length of the body after the save
+     * @param checksum The checksum of the body after the save
+     * @param loader Reads the body after the save, called only when the history does not end with the body
+     *               the save started from
+     * @throws IOException If the file cannot be read or written
+     */
+    static void record(Path file, String base, long baseChecksum, List<NoteLineChange> changes, int size, long checksum, TextLoader loader) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Scan scan = scan(channel);
+            channel.truncate(scan.end()); // Drop a torn entry
+            channel.position(scan.end());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (scan.end() == 0) {
+                out.writeInt(MAGIC);
+            }
+
+            boolean empty = scan.versions().isEmpty();
+            long lastChecksum = scan.lastChecksum();
+            if (empty && base != null) {
+                lastChecksum = writeKeyframe(out, base);
+                empty = false;
+            }
+
+            // A diff only applies to the previous version, which must be the body the save started from
+            if (empty || lastChecksum != baseChecksum) {
+                writeKeyframe(out, loader.load());
+            } else if (scan.sinceKeyframe() >= KEYFRAME_INTERVAL - 1) {
+                writeKeyframe(out, rebuild(channel, scan, changes, checksum, loader));
+            } else {
+                writeEntry(out, DELTA, size, checksum, encodeChanges(changes));
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Computes the checksum identifying the body of a version.
+     *
+     * @param body The body
+     * @return The CRC32 of the body encoded as UTF-8, the same as {@link fr.quentin.fullbright.text.TextDocument#getChecksum()}
+     */
+    static long checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Rebuilds a version from the nearest keyframe before it.
+     *
+     * @param file The history file
+     * @param number The number of the version
+     * @return The body of the version
+     * @throws IOException If the file cannot be read, or the version does not exist
+     */
+    static String restore(Path file, int number) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Scan scan = scan(channel);
+            if (number < 0 || number >= scan.versions().size()) {
+                throw new IOException("No version " + number + " in " + file.getFileName());
+            }
+            String body = String.join("\n", readLines(channel, scan, number));
+            if (checksum(body) != scan.checksums()[number]) {
+                throw new IOException("Version " + number + " of " + file.getFileName() + " does not match its checksum");
+            }
+            return body;
+        }
+    }
+
+    /**
+     * Builds the body after a save from the last version of the history and the changes of the save.
+     * Falls back to reading the note if the history cannot be read or does not add up to the expected body.
+     *
+     * @param channel The history file
+     * @param scan The entry headers of the file, listing at least one version
+     * @param changes The line changes made by the save
+     * @param checksum The checksum of the body after the save
+     * @param loader Reads the body after the save from the note
+     * @return The body after the save
+     * @throws IOException If the note has to be read and cannot be
+     */
+    private static String rebuild(FileChannel channel, Scan scan, List<NoteLineChange> changes, long checksum, TextLoader loader) throws IOException {
+        try {
+            List<String> lines = readLines(channel, scan, scan.versions().size() - 1);
+            applyChanges(encodeChanges(changes), lines);
+            String body = String.join("\n", lines);
+            if (checksum(body) == checksum) {
+                return body;
+            }
+        } catch (IOException e) {
+            // A damaged entry, the note itself is still readable
+        }
+        return loader.load();
+    }
+
+    /**
+     * Rebuilds the lines of a version from the nearest keyframe before it.
+     *
+     * @param channel The history file
+     * @param scan The entry headers of the file
+     * @param number The number of the version, listed in the scan
+     * @return The lines of the version, which may be edited
+     * @throws IOException If an entry is damaged
+     */
+    private static List<String> readLines(FileChannel channel, Scan scan, int number) throws IOException {
+        int keyframe = number;
+        while (!scan.versions().get(keyframe).keyframe()) {
+            keyframe--;
+        }
+        List<String> lines = new ArrayList<>(Arrays.asList(new String(readEntry(channel, scan.positions()[keyframe]), StandardCharsets.UTF_8).split("\n", -1)));
+        for (int i = keyframe + 1; i <= number; i++) {
+            applyChanges(readEntry(channel, scan.positions()[i]), lines);
+        }
+        return lines;
+    }
+
+    /**
+     * Walks the entry headers of a history file.
+     *
+     * @param channel The history file
+     * @return The versions, the position of each entry and the end of the last complete entry
+     * @throws IOException If the file cannot be read
+     */
+    private static Scan scan(FileChannel channel) throws IOException {
+        List<NoteVersion> versions = new ArrayList<>();
+        long[] positions = new long[16];
+        long[] checksums = new long[16];
+        int sinceKeyframe = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+        if (size < 4 || readFully(channel, header.limit(4), 0).getInt(0) != MAGIC) {
+            return new Scan(versions, positions, checksums, 0, 0);
+        }
+
+        long position = 4;
+        while (position + ENTRY_HEADER_SIZE <= size) {
+            readFully(channel, header.clear(), position);
+            byte kind = header.get(0);
+            long time = header.getLong(1);
+            int length = header.getInt(9);
+            long checksum = Integer.toUnsignedLong(header.getInt(13));
+            int compressedLength = header.getInt(17);
+            long next = position + ENTRY_HEADER_SIZE + compressedLength + 4;
+            if ((kind != KEYFRAME && kind != DELTA) || compressedLength < 0 || next > size) {
+                break; // Torn write
+            }
+            if (versions.size() == positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+                checksums = Arrays.copyOf(checksums, checksums.length * 2);
+            }
+            positions[versions.size()] = position;
+            checksums[versions.size()] = checksum;
+            versions.add(new NoteVersion(versions.size(), time, length, kind == KEYFRAME));
+            sinceKeyframe = kind == KEYFRAME ? 0 : sinceKeyframe + 1;
+            position = next;
+        }
+        return new Scan(versions, positions, checksums, sinceKeyframe, position);
+    }
+
+    /**
+     * Reads and inflates the body of an entry, checking its checksum.
+     *
+     * @param channel The history file
+     * @param position The position of the entry
+     * @return The uncompressed body
+     * @throws IOException If the entry is damaged
+     */
+    private static byte[] readEntry(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = readFully(channel, ByteBuffer.allocate(ENTRY_HEADER_SIZE), position);
+        int compressedLength = header.getInt(17);
+        ByteBuffer body = readFully(channel, ByteBuffer.allocate(compressedLength + 4), position + ENTRY_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, compressedLength);
+        if (body.getInt(compressedLength) != (int) crc.getValue()) {
+            throw new IOException("Damaged history entry at " + position);
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(body.array(), 0, compressedLength);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressedLength * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(chunk);
+                if (count == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (inflater.needsInput()) {
+                        throw new IOException("Truncated history entry at " + position);
+                    }
+                }
+                out.write(chunk, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged history entry at " + position, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes the full body of a version as a keyframe entry.
+     *
+     * @param out The stream to write to
+     * @param body The body of the version
+     * @return The checksum of the body
+     * @throws IOException Never, the stream writes to memory
+     */
+    private static long writeKeyframe(DataOutputStream out, String body) throws IOException {
+        long checksum = checksum(body);
+        writeEntry(out, KEYFRAME, body.length(), checksum, body.getBytes(StandardCharsets.UTF_8));
+        return checksum;
+    }
+
+    /**
+     * Deflates a body and writes it as an entry.
+     *
+     * @param out The stream to write to
+     * @param kind The kind of entry
+     * @param size The length of the body of the version, in characters
+     * @param checksum The checksum of the body of the version
+     * @param body The uncompressed body of the entry
+     * @throws IOException Never, the stream writes to memory
+     */
+    private static void writeEntry(DataOutputStream out, byte kind, int size, long checksum, byte[] body) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] compressed;
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                buffer.write(chunk, 0, deflater.deflate(chunk));
+            }
+            compressed = buffer.toByteArray();
+        } finally {
+            deflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+        out.writeByte(kind);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(size);
+        out.writeInt((int) checksum);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Encodes line changes as the body of a diff entry.
+     *
+     * @param changes The line changes, in the order they were made
+     * @return The encoded changes
+     * @throws IOException Never, the stream writes to memory
+     */
+    private static byte[] encodeChanges(List<NoteLineChange> changes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(changes.size());
+        for (NoteLineChange change : changes) {
+            out.writeInt(change.line());
+            out.writeInt(change.removedLines());
+            out.writeInt(change.lines().size());
+            for (String line : change.lines()) {
+                byte[] encoded = line.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Applies the body of a diff entry to the lines of the previous version.
+     *
+     * @param body The encoded changes
+     * @param lines The lines, edited in place
+     * @throws IOException If the changes do not fit the lines
+     */
+    private static void applyChanges(byte[] body, List<String> lines) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int line = in.readInt();
+            int removed = in.readInt();
+            int added = in.readInt();
+            if (line < 0 || removed < 0 || line + removed > lines.size()) {
+                throw new IOException("History diff does not match the previous version");
+            }
+            List<String> replacement = new ArrayList<>(added);
+            for (int j = 0; j < added; j++) {
+                byte[] encoded = new byte[in.readInt()];
+                in.readFully(encoded);
+                replacement.add(new String(encoded, StandardCharsets.UTF_8));
+            }
+            List<String> range = lines.subList(line, line + removed);
+            range.clear();
+            range.addAll(replacement);
+        }
+    }
+
+    /**
+     * Reads bytes at a position until the buffer is full.
+     *
+     * @param channel The file
+     * @param buffer The buffer to fill, up to its limit
+     * @param position The position to read from
+     * @return The buffer
+     * @throws IOException If the file ends before the buffer is full
+     */
+    private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of history file");
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Reads the body of a note after a save.
+     */
+    @FunctionalInterface
+    interface TextLoader {
+        /**
+         * Reads the body.
+         *
+         * @return The body of the note
+         * @throws IOException If the body cannot be read
+         */
+        String load() throws IOException;
+    }
+
+    /**
+     * The result of walking the entry headers.
+     *
+     * @param versions The versions, the oldest first
+     * @param positions The position of each entry, indexed by version number
+     * @param checksums The checksum of the body of each version, indexed by version number
+     * @param sinceKeyframe The number of diff entries after the last keyframe
+     * @param end The end of the last complete entry, 0 for a file without a valid header
+     */
+    private record Scan(List<NoteVersion> versions, long[] positions, long[] checksums, int sinceKeyframe, long end) {
+        /**
+         * Gets the checksum of the last version.
+         *
+         * @return The checksum of the body of the last version, 0 if there is none
+         */
+        long lastChecksum() {
+            return versions.isEmpty() ? 0 : checksums[versions.size() - 1];
+        }
+    }
+}
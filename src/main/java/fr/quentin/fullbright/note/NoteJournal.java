@@ -0,0 +1,408 @@
+package fr.quentin.fullbright.note;
+
+import fr.quentin.fullbright.Fullbright;
+import fr.quentin.fullbright.config.ConfigPersistence;
+import fr.quentin.fullbright.text.TextDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the edits made to a note since its file was last written.
+ * Saving a note appends its edits, so the cost of a save follows the size of the edit rather than the note.
+ * The journal is folded back into the note file once it grows past the size of the note.
+ * <p>
+ * The journal starts with a header holding the checksum of the note file it applies to, so a journal
+ * left behind by a compaction interrupted after the note file was replaced is recognized and dropped.
+ * Each record is its payload length, the payload and the CRC32 of the payload, so a record torn by a
+ * crash is detected on replay and cut off. {@link NoteSwap} files use the same records.
+ * <p>
+ * The header a new journal starts with is remembered whenever a note file is read or written, so starting
+ * a journal after a compaction does not read the note file again.
+ * <p>
+ * Every method does file IO and is only called on the background IO thread.
+ */
+final class NoteJournal {
+    /**
+     * First bytes of a journal, "FBJ1".
+     */
+    private static final int MAGIC = 0x46424A31;
+
+    /**
+     * Record inserting text at an offset.
+     */
+    private static final byte INSERT = 1;
+
+    /**
+     * Record deleting characters at an offset.
+     */
+    private static final byte DELETE = 2;
+
+    /**
+     * Journal size below which a note is never compacted, in bytes.
+     */
+    private static final long COMPACT_THRESHOLD = 64 * 1024;
+
+    /**
+     * The header of a journal applying to each note file, as last read or written, keyed by note file.
+     */
+    private static final Map<Path, BaseHeader> BASE_HEADERS = new ConcurrentHashMap<>();
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private NoteJournal() {
+    }
+
+    /**
+     * Reads a note file and replays its journal on top of it.
+     * A torn or foreign tail of the journal is cut off, so later appends follow the last valid record.
+     *
+     * @param noteFile The note file
+     * @param journalFile The journal of the note
+     * @return The current body of the note
+     * @throws IOException If a file cannot be read
+     */
+    static String load(Path noteFile, Path journalFile) throws IOException {
+        byte[] snapshot = Files.exists(noteFile) ? Files.readAllBytes(noteFile) : new byte[0];
+        byte[] header = header(MAGIC, checksum(snapshot));
+        remember(noteFile, header);
+        StringBuilder text = new StringBuilder(new String(snapshot, StandardCharsets.UTF_8));
+        if (Files.exists(journalFile)) {
+            readRecords(journalFile, header, edit -> apply(edit, text), true);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Replays the journal of a note over a document built from the note file, such as a mapping of it.
+     * The note file is not read again, nor rewritten, so it stays valid for the document.
+     * A torn or foreign tail of the journal is cut off, like {@link #load}.
+     *
+     * @param noteFile The note file
+     * @param journalFile The journal of the note
+     * @param contents The contents of the note file the document was built from, from its position to its limit
+     * @param document The document, edited in place
+     * @throws IOException If a file cannot be read
+     */
+    static void replay(Path noteFile, Path journalFile, ByteBuffer contents, TextDocument document) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(contents.duplicate());
+        byte[] header = header(MAGIC, crc.getValue());
+        remember(noteFile, header);
+        if (Files.exists(journalFile)) {
+            readRecords(journalFile, header, edit -> apply(edit, document), true);
+        }
+    }
+
+    /**
+     * Appends edits to the journal of a note, starting the journal if needed.
+     * The note must have been loaded first, so a torn tail has already been cut off.
+     *
+     * @param noteFile The note file
+     * @param journalFile The journal of the note
+     * @param edits The edits, in the order they were made
+     * @return True if the journal has grown enough to be compacted
+     * @throws IOException If the journal cannot be written
+     */
+    static boolean append(Path noteFile, Path journalFile, List<NoteEdit> edits) throws IOException {
+        byte[] header = null;
+        if (!Files.exists(journalFile) || Files.size(journalFile) == 0) {
+            header = getBaseHeader(noteFile);
+        }
+        long size = appendRecords(journalFile, header, edits);
+        return size > Math.max(COMPACT_THRESHOLD, Files.exists(noteFile) ? Files.size(noteFile) : 0);
+    }
+
+    /**
+     * Folds the journal into the note file, then removes the journal.
+     * The note file is replaced atomically before the journal goes, and the journal header no longer
+     * matches the new file, so a crash in between loses nothing.
+     *
+     * @param noteFile The note file
+     * @param journalFile The journal of the note
+     * @throws IOException If a file cannot be read or written
+     */
+    static void compact(Path noteFile, Path journalFile) throws IOException {
+        String text = load(noteFile, journalFile);
+        ConfigPersistence.writeAtomically(noteFile, text);
+        remember(noteFile, header(MAGIC, checksum(text.getBytes(StandardCharsets.UTF_8))));
+        Files.deleteIfExists(journalFile);
+    }
+
+    /**
+     * Gets the header of a journal applying to a note file, reading the file only if it changed since it
+     * was last read or written through this class.
+     *
+     * @param noteFile The note file
+     * @return The header
+     * @throws IOException If the note file cannot be read
+     */
+    static byte[] getBaseHeader(Path noteFile) throws IOException {
+        if (!Files.exists(noteFile)) {
+            return header(MAGIC, checksum(new byte[0]));
+        }
+        BaseHeader cached = BASE_HEADERS.get(noteFile);
+        if (cached != null && cached.size() == Files.size(noteFile) && cached.modified().equals(Files.getLastModifiedTime(noteFile))) {
+            return cached.header();
+        }
+        byte[] header = header(MAGIC, checksum(Files.readAllBytes(noteFile)));
+        remember(noteFile, header);
+        return header;
+    }
+
+    /**
+     * Forgets the header of a note file, when the note is deleted.
+     *
+     * @param noteFile The note file
+     */
+    static void forget(Path noteFile) {
+        BASE_HEADERS.remove(noteFile);
+    }
+
+    /**
+     * Remembers the header of a journal applying to a note file as it is now.
+     *
+     * @param noteFile The note file
+     * @param header The header
+     * @throws IOException If the attributes of the note file cannot be read
+     */
+    private static void remember(Path noteFile, byte[] header) throws IOException {
+        if (Files.exists(noteFile)) {
+            BASE_HEADERS.put(noteFile, new BaseHeader(Files.size(noteFile), Files.getLastModifiedTime(noteFile), header));
+        }
+    }
+
+    /**
+     * Appends edit records to a file in the journal format and forces them to disk.
+     *
+     * @param file The file to append to
+     * @param header The header to write first, or null if the file already has one
+     * @param edits The edits, in the order they were made
+     * @return The size of the file after the append
+     * @throws IOException If the file cannot be written
+     */
+    static long appendRecords(Path file, byte[] header, List<NoteEdit> edits) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (header != null) {
+                out.write(header);
+            }
+            for (NoteEdit edit : edits) {
+                // A replacement is a deletion followed by an insertion at the same offset
+                if (edit.removedLength() > 0) {
+                    writeRecord(out, ByteBuffer.allocate(9).put(DELETE).putInt(edit.offset()).putInt(edit.removedLength()));
+                }
+                if (!edit.inserted().isEmpty()) {
+                    byte[] inserted = edit.inserted().getBytes(StandardCharsets.UTF_8);
+                    writeRecord(out, ByteBuffer.allocate(5 + inserted.length).put(INSERT).putInt(edit.offset()).put(inserted));
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            return channel.size();
+        }
+    }
+
+    /**
+     * Reads the edit records of a file in the journal format, stopping at the first invalid one.
+     *
+     * @param file The file to read
+     * @param header The header the file must start with
+     * @param consumer Receives each edit, and returns false if the edit cannot be applied
+     * @param repair Whether to cut the file after the last valid record
+     * @return The length of the valid part of the file, 0 if the header does not match
+     * @throws IOException If the file cannot be read
+     */
+    static long readRecords(Path file, byte[] header, Predicate<NoteEdit> consumer, boolean repair) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+
+            long valid = 0;
+            if (buffer.remaining() >= header.length && buffer.slice(0, header.length).equals(ByteBuffer.wrap(header))) {
+                buffer.position(header.length);
+                valid = header.length;
+                while (buffer.remaining() >= 4) {
+                    int length = buffer.getInt();
+                    if (length < 5 || buffer.remaining() < length + 4) {
+                        break; // Torn write
+                    }
+                    ByteBuffer payload = buffer.slice(buffer.position(), length);
+                    buffer.position(buffer.position() + length);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload.duplicate());
+                    NoteEdit edit = buffer.getInt() == (int) crc.getValue() ? decode(payload) : null;
+                    if (edit == null || !consumer.test(edit)) {
+                        break;
+                    }
+                    valid = buffer.position();
+                }
+            }
+            // Otherwise not a journal, or one already folded into the note file
+
+            if (repair && valid < channel.size()) {
+                Fullbright.LOGGER.warn("Discarding " + (channel.size() - valid) + " bytes of " + file.getFileName());
+                channel.truncate(valid);
+            }
+            return valid;
+        }
+    }
+
+    /**
+     * Builds a header: a magic number identifying the kind of file, then what the edits apply to.
+     *
+     * @param magic The magic number
+     * @param base Identifies the text the edits apply to
+     * @return The header
+     */
+    static byte[] header(int magic, long... base) {
+        ByteBuffer header = ByteBuffer.allocate(4 + 8 * base.length).putInt(magic);
+        for (long value : base) {
+            header.putLong(value);
+        }
+        return header.array();
+    }
+
+    /**
+     * Decodes the payload of a record.
+     *
+     * @param payload The payload
+     * @return The edit, or null if the payload is not a known record
+     */
+    private static NoteEdit decode(ByteBuffer payload) {
+        byte type = payload.get();
+        int offset = payload.getInt();
+        if (type == INSERT) {
+            return new NoteEdit(offset, 0, StandardCharsets.UTF_8.decode(payload).toString());
+        }
+        if (type == DELETE && payload.remaining() == 4) {
+            return new NoteEdit(offset, payload.getInt(), "");
+        }
+        return null;
+    }
+
+    /**
+     * Applies an edit to a text.
+     *
+     * @param edit The edit
+     * @param text The text, edited in place
+     * @return True if the edit was applied, false if it does not fit the text
+     */
+    private static boolean apply(NoteEdit edit, StringBuilder text) {
+        int end = edit.offset() + edit.removedLength();
+        if (edit.offset() < 0 || edit.removedLength() < 0 || end > text.length()) {
+            return false;
+        }
+        text.replace(edit.offset(), end, edit.inserted());
+        return true;
+    }
+
+    /**
+     * Applies an edit to a document, rebuilding only the lines it touches.
+     *
+     * @param edit The edit
+     * @param document The document, edited in place
+     * @return True if the edit was applied, false if it does not fit the document
+     */
+    private static boolean apply(NoteEdit edit, TextDocument document) {
+        int end = edit.offset() + edit.removedLength();
+        if (edit.offset() < 0 || edit.removedLength() < 0 || end > document.getLength()) {
+            return false;
+        }
+        int startLine = getLineAt(document, edit.offset());
+        int endLine = getLineAt(document, end);
+        String prefix = document.getLine(startLine).substring(0, edit.offset() - document.getOffset(startLine));
+        String suffix = document.getLine(endLine).substring(end - document.getOffset(endLine));
+        List<String> lines = new ArrayList<>(Arrays.asList(edit.inserted().split("\n", -1)));
+        lines.set(0, prefix + lines.getFirst());
+        lines.set(lines.size() - 1, lines.getLast() + suffix);
+        document.replaceLines(startLine, endLine - startLine + 1, lines);
+        return true;
+    }
+
+    /**
+     * Finds the line of a document holding an offset, by binary search over the line offsets.
+     *
+     * @param document The document
+     * @param offset The offset, at most the length of the document
+     * @return The line whose range, line break included, holds the offset
+     */
+    private static int getLineAt(TextDocument document, int offset) {
+        int low = 0;
+        int high = document.getLineCount() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (document.getOffset(middle) <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Writes a record, framed by its length and checksum.
+     *
+     * @param out The stream to write to
+     * @param payload The filled payload of the record
+     * @throws IOException Never, the stream writes to memory
+     */
+    private static void writeRecord(DataOutputStream out, ByteBuffer payload) throws IOException {
+        byte[] bytes = payload.array();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Computes the checksum identifying the note file a journal applies to.
+     *
+     * @param contents The contents of the note file
+     * @return The CRC32 of the contents
+     */
+    private static long checksum(byte[] contents) {
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        return crc.getValue();
+    }
+
+    /**
+     * The header of a journal applying to a note file, and the attributes of the file it was computed for.
+     * The attributes are compared before the header is used, so a file changed by other means is read again.
+     *
+     * @param size The size of the note file
+     * @param modified The modification time of the note file
+     * @param header The header
+     */
+    private record BaseHeader(long size, FileTime modified, byte[] header) {
+    }
+}
@@ -0,0 +1,33 @@
+package fr.quentin.fullbright.note;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One edit of a note body, as the lines it replaced. Feeds the {@link NoteSearchIndex},
+ * which re-tokenizes only the lines an edit touched.
+ *
+ * @param line The first replaced line
+ * @param removedLines The number of lines replaced
+ * @param lines The lines in place of the replaced lines
+ */
+public record NoteLineChange(int line, int removedLines, List<String> lines) {
+    /**
+     * Folds a later change into this one when it only touches lines this change produced,
+     * so typing on a line keeps a single change for that line.
+     *
+     * @param next The change made right after this one
+     * @return The combined change, or null if the changes cannot be combined
+     */
+    public NoteLineChange merge(NoteLineChange next) {
+        int start = next.line - line;
+        if (start < 0 || start + next.removedLines > lines.size()) {
+            return null;
+        }
+        List<String> merged = new ArrayList<>(lines);
+        List<String> range = merged.subList(start, start + next.removedLines);
+        range.clear();
+        range.addAll(next.lines);
+        return new NoteLineChange(line, removedLines, merged);
+    }
+}
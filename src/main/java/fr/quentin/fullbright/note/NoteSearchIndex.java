@@ -0,0 +1,601 @@
+package fr.quentin.fullbright.note;
+
+import fr.quentin.fullbright.Fullbright;
+import fr.quentin.fullbright.config.ConfigPersistence;
+import fr.quentin.fullbright.text.MappedTextDocument;
+import fr.quentin.fullbright.text.TextDocument;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+
+/**
+ * In-memory inverted index over the bodies of every note, mapping each term to the notes containing it.
+ * Terms are runs of letters and digits, lowercased.
+ * <p>
+ * The index is built on the first search, tokenizing the notes in parallel on a pool of its own, so the
+ * {@link ConfigPersistence} thread keeps saving while it runs. After that, saves only re-tokenize the lines
+ * they changed, see {@link NoteLineChange}.
+ * <p>
+ * Large notes, which the {@link NoteStore} memory-maps, are streamed line by line and keep only their distinct
+ * terms, so their size in memory follows their vocabulary rather than their length. A save reindexes them whole,
+ * and their matching lines are found by reading them again.
+ * <p>
+ * The index is only touched on the {@link ConfigPersistence} thread. A build reads each note file through
+ * a task on that thread too, between journal appends, so a save lands either before the read of its note
+ * and is part of it, or after it and is queued, then applied once the build is merged in.
+ */
+public final class NoteSearchIndex {
+    /**
+     * Maximum number of matching lines reported per note.
+     */
+    private static final int MAX_LINES = 5;
+
+    /**
+     * Number of notes below which a build task reads its notes itself instead of splitting.
+     */
+    private static final int SPLIT_THRESHOLD = 16;
+
+    /**
+     * Tokens of an empty line.
+     */
+    private static final String[] NO_TOKENS = new String[0];
+
+    /**
+     * Singleton instance of the index.
+     */
+    private static final NoteSearchIndex INSTANCE = new NoteSearchIndex();
+
+    /**
+     * The pool tokenizing the notes of a build, never the IO thread, which only reads the files.
+     */
+    private static final ForkJoinPool BUILD_POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool); // Daemon, like the IO thread
+        thread.setName("Fullbright Search Index " + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
+    /**
+     * The terms of every note, and in which notes and how many times each term appears.
+     */
+    private final Terms terms = new Terms();
+
+    /**
+     * Whether the index has been built.
+     */
+    private boolean built;
+
+    /**
+     * The running build, completed on the IO thread once merged in, or null when no build is running.
+     */
+    private CompletableFuture<Void> building;
+
+    /**
+     * The notes the running build has read so far. Saves of these notes are queued until the build is merged in.
+     */
+    private final Set<String> readByBuild = new HashSet<>();
+
+    /**
+     * The lines changed by saves of notes the running build has already read, in the order they were saved.
+     */
+    private final Map<String, List<NoteLineChange>> queuedChanges = new HashMap<>();
+
+    /**
+     * The notes deleted while the build runs, removed once it is merged in.
+     */
+    private final Set<String> removedDuringBuild = new HashSet<>();
+
+    /**
+     * Prevents instantiation outside of the singleton.
+     */
+    private NoteSearchIndex() {
+    }
+
+    /**
+     * Gets the singleton instance of the index.
+     *
+     * @return The search index
+     */
+    public static NoteSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Searches the notes containing every term of a query, building the index first if needed.
+     *
+     * @param query The terms to look for, separated by anything but letters and digits
+     * @param limit The maximum number of results
+     * @return A future completed on the IO thread with the results, most relevant first
+     */
+    public CompletableFuture<List<NoteSearchResult>> search(String query, int limit) {
+        List<String> queryTerms = List.copyOf(new LinkedHashSet<>(Arrays.asList(tokenize(query))));
+        return ConfigPersistence.loadAsync(this::ensureBuilt)
+                .thenCompose(build -> build)
+                .thenCompose(ignored -> ConfigPersistence.loadAsync(() -> query(queryTerms, limit)));
+    }
+
+    /**
+     * Applies the lines changed by a save. Called on the IO thread, after the journal append.
+     *
+     * @param id The identifier of the note
+     * @param changes The changes, in the order they were made
+     */
+    void update(String id, List<NoteLineChange> changes) {
+        if (built) {
+            apply(id, changes);
+        } else if (building != null && readByBuild.contains(id)) {
+            queuedChanges.computeIfAbsent(id, key -> new ArrayList<>()).addAll(changes);
+        }
+        // Otherwise the running build reads the saved note, or the next build will
+    }
+
+    /**
+     * Removes a deleted note. Called on the IO thread.
+     *
+     * @param id The identifier of the note
+     */
+    void remove(String id) {
+        if (building != null) {
+            queuedChanges.remove(id);
+            removedDuringBuild.add(id);
+        }
+        removeTerms(id);
+    }
+
+    /**
+     * Re-tokenizes the lines changed by a save.
+     *
+     * @param id The identifier of the note
+     * @param changes The changes, in the order they were made
+     */
+    private void apply(String id, List<NoteLineChange> changes) {
+        if (terms.streamed.containsKey(id)) {
+            removeTerms(id); // Its lines are not kept, start over from the file
+            index(id);
+            return;
+        }
+        List<String[]> lines = terms.lines.computeIfAbsent(id, key -> new ArrayList<>(List.<String[]>of(NO_TOKENS)));
+        for (NoteLineChange change : changes) {
+            if (change.line() + change.removedLines() > lines.size()) {
+                // Out of step with the saved note, start over from the file
+                Fullbright.LOGGER.warn("Search index out of date for note " + id + ", reindexing it");
+                removeTerms(id);
+                index(id);
+                return;
+            }
+            List<String[]> range = lines.subList(change.line(), change.line() + change.removedLines());
+            for (String[] tokens : range) {
+                terms.removeTokens(id, tokens);
+            }
+            range.clear();
+            List<String[]> replacement = new ArrayList<>(change.lines().size());
+            for (String line : change.lines()) {
+                String[] tokens = tokenize(line);
+                terms.addTokens(id, tokens);
+                replacement.add(tokens);
+            }
+            range.addAll(replacement);
+        }
+    }
+
+    /**
+     * Removes the terms of a note.
+     *
+     * @param id The identifier of the note
+     */
+    private void removeTerms(String id) {
+        List<String[]> lines = terms.lines.remove(id);
+        if (lines != null) {
+            for (String[] tokens : lines) {
+                terms.removeTokens(id, tokens);
+            }
+        }
+        String[] distinct = terms.streamed.remove(id);
+        if (distinct != null) {
+            for (String term : distinct) {
+                Map<String, Integer> notes = terms.postings.get(term);
+                notes.remove(id);
+                if (notes.isEmpty()) {
+                    terms.postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts building the index from the note files, unless it is built or being built. Called on the IO thread.
+     *
+     * @return The running build, or a completed future if the index is built
+     */
+    private CompletableFuture<Void> ensureBuilt() {
+        if (built) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (building == null) {
+            long start = System.nanoTime();
+            List<String> ids = NoteStore.getInstance().list().stream().map(NoteEntry::id).toList();
+            building = CompletableFuture.supplyAsync(() -> new BuildTask(ids).invoke(), BUILD_POOL)
+                    .handleAsync((result, error) -> {
+                        finishBuild(result, error, start);
+                        return null;
+                    }, ConfigPersistence::runAsync);
+        }
+        return building;
+    }
+
+    /**
+     * Merges a finished build in, then applies the saves and deletions made while it ran. Called on the IO thread.
+     *
+     * @param result The terms read by the build, or null if it failed
+     * @param error The failure of the build, or null if it succeeded
+     * @param start When the build started, from {@link System#nanoTime()}
+     */
+    private void finishBuild(Terms result, Throwable error, long start) {
+        building = null;
+        if (error != null) {
+            Fullbright.LOGGER.error("Error building the search index", error); // The next search tries again
+        } else {
+            terms.merge(result);
+            built = true;
+            for (String id : removedDuringBuild) {
+                removeTerms(id);
+            }
+            queuedChanges.forEach(this::apply);
+
+            // Notes created while the build ran were not listed when it started
+            for (NoteEntry entry : NoteStore.getInstance().list()) {
+                if (!terms.contains(entry.id())) {
+                    index(entry.id());
+                }
+            }
+            Fullbright.LOGGER.info("Indexed {} notes for search in {} ms", terms.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+        readByBuild.clear();
+        queuedChanges.clear();
+        removedDuringBuild.clear();
+    }
+
+    /**
+     * Reads a note file for the running build, on the IO thread between journal appends.
+     * Called from a build task, which waits for the read.
+     *
+     * @param id The identifier of the note
+     * @return The body of the note, or null if it cannot be read
+     */
+    private TextDocument readForBuild(String id) {
+        return ConfigPersistence.loadAsync(() -> {
+            readByBuild.add(id);
+            return readNote(id);
+        }).join();
+    }
+
+    /**
+     * Reads and indexes a single note. Called on the IO thread.
+     *
+     * @param id The identifier of the note
+     */
+    private void index(String id) {
+        Terms note = new Terms();
+        note.add(id, readNote(id));
+        terms.merge(note);
+    }
+
+    /**
+     * Reads the current body of a note, replaying its journal, memory-mapped if it is large. Called on the IO thread.
+     *
+     * @param id The identifier of the note
+     * @return The body of the note, or null if it cannot be read
+     */
+    private static TextDocument readNote(String id) {
+        try {
+            return NoteStore.getInstance().read(id);
+        } catch (IOException e) {
+            Fullbright.LOGGER.error("Error indexing note " + id, e);
+            return null;
+        }
+    }
+
+    /**
+     * Finds and ranks the notes containing every query term.
+     * Only the postings of the query terms are read, whatever the number of notes.
+     *
+     * @param queryTerms The distinct query terms
+     * @param limit The maximum number of results
+     * @return The results, most relevant first
+     */
+    private List<NoteSearchResult> query(List<String> queryTerms, int limit) {
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        List<Map<String, Integer>> postings = new ArrayList<>(queryTerms.size());
+        for (String term : queryTerms) {
+            Map<String, Integer> notes = terms.postings.get(term);
+            if (notes == null) {
+                return List.of();
+            }
+            postings.add(notes);
+        }
+        postings.sort(Comparator.comparingInt(Map::size)); // Walk the rarest term, probe the others
+
+        // Score with tf-idf: frequent in the note, rare across notes
+        int noteCount = terms.size();
+        NoteStore store = NoteStore.getInstance();
+        List<NoteSearchResult> results = new ArrayList<>();
+        for (String id : postings.getFirst().keySet()) {
+            double score = 0;
+            for (Map<String, Integer> notes : postings) {
+                Integer frequency = notes.get(id);
+                if (frequency == null) {
+                    score = -1;
+                    break;
+                }
+                score += (1 + Math.log(frequency)) * Math.log(1 + (double) noteCount / notes.size());
+            }
+            NoteEntry entry = store.get(id);
+            if (score >= 0 && entry != null) {
+                results.add(new NoteSearchResult(entry, score, List.of()));
+            }
+        }
+        results.sort(Comparator.comparingDouble(NoteSearchResult::score).reversed());
+
+        // Find the matching lines of the returned notes only
+        List<NoteSearchResult> ranked = new ArrayList<>(Math.min(limit, results.size()));
+        for (NoteSearchResult result : results.subList(0, Math.min(limit, results.size()))) {
+            ranked.add(new NoteSearchResult(result.note(), result.score(), findLines(result.note().id(), queryTerms)));
+        }
+        return ranked;
+    }
+
+    /**
+     * Finds the matching lines of a note, from its tokens, or by reading it again if it is streamed.
+     *
+     * @param id The identifier of the note
+     * @param queryTerms The distinct query terms
+     * @return The first matching lines
+     */
+    private List<Integer> findLines(String id, List<String> queryTerms) {
+        List<String[]> lines = terms.lines.get(id);
+        if (lines != null) {
+            return findLines(lines.size(), lines::get, queryTerms);
+        }
+        TextDocument document = readNote(id);
+        return document == null ? List.of() : findLines(document.getLineCount(), line -> tokenize(document.getLine(line)), queryTerms);
+    }
+
+    /**
+     * Finds the lines of a note holding every query term, or else any query term.
+     *
+     * @param lineCount The number of lines of the note
+     * @param lines Gets the tokens of a line of the note
+     * @param queryTerms The distinct query terms
+     * @return The first matching lines
+     */
+    private static List<Integer> findLines(int lineCount, IntFunction<String[]> lines, List<String> queryTerms) {
+        List<Integer> all = new ArrayList<>();
+        List<Integer> any = new ArrayList<>();
+        for (int i = 0; i < lineCount && all.size() < MAX_LINES; i++) {
+            String[] tokens = lines.apply(i);
+            int found = 0;
+            for (String term : queryTerms) {
+                if (contains(tokens, term)) {
+                    found++;
+                }
+            }
+            if (found == queryTerms.size()) {
+                all.add(i);
+            } else if (found > 0 && any.size() < MAX_LINES) {
+                any.add(i);
+            }
+        }
+        return all.isEmpty() ? any : all;
+    }
+
+    /**
+     * Checks whether a line holds a term.
+     *
+     * @param tokens The tokens of the line
+     * @param term The term
+     * @return True if one of the tokens is the term
+     */
+    private static boolean contains(String[] tokens, String term) {
+        for (String token : tokens) {
+            if (token.equals(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits text into lowercase runs of letters and digits.
+     *
+     * @param text The text, usually a single line
+     * @return The terms of the text, in order, with repetitions
+     */
+    static String[] tokenize(String text) {
+        List<String> tokens = null;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                if (tokens == null) {
+                    tokens = new ArrayList<>();
+                }
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens == null ? NO_TOKENS : tokens.toArray(String[]::new);
+    }
+
+    /**
+     * Terms of a set of notes: the inverted postings, and the tokens of each line or the distinct terms of streamed notes.
+     * A build fills one per fork-join leaf, then merges them, as the note sets are disjoint.
+     */
+    private static final class Terms {
+        /**
+         * For each term, the notes containing it and how many times.
+         */
+        private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+
+        /**
+         * For each note, the tokens of each line, used to apply line changes and find matching lines.
+         */
+        private final Map<String, List<String[]>> lines = new HashMap<>();
+
+        /**
+         * For each memory-mapped note, its distinct terms, used to remove them. Its lines are not kept.
+         */
+        private final Map<String, String[]> streamed = new HashMap<>();
+
+        /**
+         * Tokenizes the body of a note and adds its terms.
+         * A memory-mapped note is streamed line by line, counting its terms without keeping its lines.
+         *
+         * @param id The identifier of the note
+         * @param document The body of the note, or null if it could not be read
+         */
+        void add(String id, TextDocument document) {
+            if (document == null) {
+                return;
+            }
+            if (document instanceof MappedTextDocument) {
+                Map<String, Integer> counts = new HashMap<>();
+                for (int i = 0; i < document.getLineCount(); i++) {
+                    for (String token : tokenize(document.getLine(i))) {
+                        counts.merge(token, 1, Integer::sum);
+                    }
+                }
+                counts.forEach((token, count) -> postings.computeIfAbsent(token, key -> new HashMap<>()).put(id, count));
+                streamed.put(id, counts.keySet().toArray(String[]::new));
+                return;
+            }
+            List<String[]> noteLines = new ArrayList<>(document.getLineCount());
+            for (int i = 0; i < document.getLineCount(); i++) {
+                String[] tokens = tokenize(document.getLine(i));
+                addTokens(id, tokens);
+                noteLines.add(tokens);
+            }
+            lines.put(id, noteLines);
+        }
+
+        /**
+         * Checks whether a note is indexed.
+         *
+         * @param id The identifier of the note
+         * @return True if the terms of the note were added
+         */
+        boolean contains(String id) {
+            return lines.containsKey(id) || streamed.containsKey(id);
+        }
+
+        /**
+         * Gets the number of indexed notes.
+         *
+         * @return The number of notes whose terms were added
+         */
+        int size() {
+            return lines.size() + streamed.size();
+        }
+
+        /**
+         * Counts the tokens of a line in the postings of a note.
+         *
+         * @param id The identifier of the note
+         * @param tokens The tokens of the line
+         */
+        void addTokens(String id, String[] tokens) {
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, key -> new HashMap<>()).merge(id, 1, Integer::sum);
+            }
+        }
+
+        /**
+         * Removes the tokens of a line from the postings of a note.
+         *
+         * @param id The identifier of the note
+         * @param tokens The tokens of the line
+         */
+        void removeTokens(String id, String[] tokens) {
+            for (String token : tokens) {
+                Map<String, Integer> notes = postings.get(token);
+                if (notes != null) {
+                    notes.computeIfPresent(id, (key, count) -> count > 1 ? count - 1 : null);
+                    if (notes.isEmpty()) {
+                        postings.remove(token);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the terms of other notes.
+         *
+         * @param other The terms of notes not in this set
+         */
+        void merge(Terms other) {
+            other.postings.forEach((token, notes) -> postings.merge(token, notes, (mine, theirs) -> {
+                mine.putAll(theirs);
+                return mine;
+            }));
+            lines.putAll(other.lines);
+            streamed.putAll(other.streamed);
+        }
+    }
+
+    /**
+     * Reads and tokenizes a range of notes on the build pool, splitting it in halves until it is small.
+     */
+    private static final class BuildTask extends RecursiveTask<Terms> {
+        /**
+         * The identifiers of the notes to read.
+         */
+        private final List<String> ids;
+
+        /**
+         * Constructs a new BuildTask.
+         *
+         * @param ids The identifiers of the notes to read
+         */
+        BuildTask(List<String> ids) {
+            this.ids = ids;
+        }
+
+        /**
+         * Reads the notes, or splits them between two subtasks.
+         *
+         * @return The terms of the notes
+         */
+        @Override
+        protected Terms compute() {
+            if (ids.size() <= SPLIT_THRESHOLD) {
+                Terms terms = new Terms();
+                for (String id : ids) {
+                    terms.add(id, INSTANCE.readForBuild(id));
+                }
+                return terms;
+            }
+            int middle = ids.size() / 2;
+            BuildTask left = new BuildTask(ids.subList(0, middle));
+            left.fork();
+            Terms terms = new BuildTask(ids.subList(middle, ids.size())).compute();
+            terms.merge(left.join());
+            return terms;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package fr.quentin.fullbright.note;
+
+import java.util.List;
+
+/**
+ * A note matching a search.
+ *
+ * @param note The index entry of the note
+ * @param score The relevance of the note, higher is better
+ * @param lines The matching lines, 0-based, in ascending order
+ */
+public record NoteSearchResult(NoteEntry note, double score, List<Integer> lines) {
+}
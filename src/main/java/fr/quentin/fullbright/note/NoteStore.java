@@ -0,0 +1,603 @@
+package fr.quentin.fullbright.note;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import fr.quentin.fullbright.Fullbright;
+import fr.quentin.fullbright.config.ConfigCodec;
+import fr.quentin.fullbright.config.ConfigPersistence;
+import fr.quentin.fullbright.config.NoteConfig;
+import fr.quentin.fullbright.metrics.Metrics;
+import fr.quentin.fullbright.text.MappedTextDocument;
+import fr.quentin.fullbright.text.RopeDocument;
+import fr.quentin.fullbright.text.TextDocument;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Storage for the player's notes.
+ * A small index file lists every note with its title, size and modification time,
+ * and each note body lives in its own text file, read only when the note is opened.
+ * Listing notes never touches the bodies. Saving a note appends its edits to the note's
+ * {@link NoteJournal}, which is folded back into the note file in the background once it grows.
+ * Files are accessed on the {@link ConfigPersistence} thread, so appends, compactions and reads never overlap.
+ */
+public final class NoteStore {
+    /**
+     * Version of the index file written by this build.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Maximum length of a note in characters, enforced by the editor.
+     * Ensures that a note does not exceed a certain length to prevent excessive storage usage.
+     */
+    public static final int MAX_NOTE_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * Size from which a note is opened as a memory-mapped document rather than read into memory, in bytes.
+     */
+    private static final long LARGE_NOTE_SIZE = 256 * 1024;
+
+    /**
+     * Identifiers accepted from the index, as they are used as file names.
+     */
+    private static final Pattern VALID_ID = Pattern.compile("[0-9a-z]+");
+
+    /**
+     * Singleton instance of the store.
+     * Empty until the load started by {@link #loadAsync()} is handed off.
+     */
+    private static volatile NoteStore instance = new NoteStore();
+
+    /**
+     * The load running in the background, or null once it has been handed off.
+     */
+    private static CompletableFuture<NoteStore> pendingLoad;
+
+    /**
+     * The index entries keyed by identifier.
+     */
+    private final Map<String, NoteEntry> entries = new LinkedHashMap<>();
+
+    /**
+     * Documents mapping the file of a note, with the identifier of the note, forgotten once they are collected.
+     * The file of a note is not compacted while a document may still map it, as some systems, such as Windows,
+     * refuse to replace a file that is mapped.
+     */
+    private final Map<MappedTextDocument, String> mappedDocuments = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Header of the swap file of each open note, matching the saved state the note was opened from.
+     */
+    private final Map<String, byte[]> swapHeaders = new ConcurrentHashMap<>();
+
+    /**
+     * Body each open note was read with, kept only while its history is empty, for its first save to record
+     * as the first version without reading the note again.
+     */
+    private final Map<String, String> openedBodies = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the index from disk, migrating the legacy single note on first use.
+     * Does not change the singleton instance, see {@link #loadAsync()}.
+     *
+     * @return The loaded store
+     */
+    public static NoteStore load() {
+        NoteStore store = new NoteStore();
+        Path indexFile = getIndexFile();
+        if (Files.exists(indexFile)) {
+            try {
+                ConfigCodec.decode(ConfigPersistence.read(indexFile), "the note index", VERSION, List.of(), () -> store, NoteStore::readField);
+                return store;
+            } catch (IOException | JsonParseException e) {
+                Fullbright.LOGGER.error("Error loading the note index, rebuilding it from the note files", e);
+                store.entries.clear(); // Drop the entries read before the error
+                store.rebuild(); // Otherwise the next edit would write an index without the other notes
+                return store;
+            }
+        }
+
+        // No index yet, move the note of the single-note file into the store
+        String legacy = NoteConfig.migrate();
+        if (legacy != null) {
+            try {
+                String id = store.nextId();
+                ConfigPersistence.writeAtomically(getNoteFile(id), legacy);
+                store.entries.put(id, new NoteEntry(id, "Note", legacy.length(), System.currentTimeMillis()));
+                ConfigPersistence.writeAtomically(indexFile, store.toJson());
+                Fullbright.LOGGER.info("Migrated note.json to the note store");
+            } catch (IOException e) {
+                Fullbright.LOGGER.error("Error migrating note.json to the note store", e);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Starts loading the index on the background IO thread.
+     * The store is empty until {@link #finishLoading()} hands the loaded index off.
+     */
+    public static void loadAsync() {
+        pendingLoad = ConfigPersistence.loadAsync(NoteStore::load);
+    }
+
+    /**
+     * Installs the store loaded by {@link #loadAsync()}, waiting for it if needed.
+     * Called once on the client thread when the client has started.
+     */
+    public static void finishLoading() {
+        if (pendingLoad != null) {
+            instance = pendingLoad.join();
+            pendingLoad = null;
+        }
+    }
+
+    /**
+     * Gets the singleton instance of the store.
+     *
+     * @return The note store, never null
+     */
+    public static NoteStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * Lists the notes, most recently edited first. Reads only the index.
+     *
+     * @return A copy of the index entries
+     */
+    public synchronized List<NoteEntry> list() {
+        List<NoteEntry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(NoteEntry::modified).reversed());
+        return list;
+    }
+
+    /**
+     * Gets the index entry of a note.
+     *
+     * @param id The identifier of the note
+     * @return The entry, or null if there is no such note
+     */
+    public synchronized NoteEntry get(String id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Finds a note by identifier, or else by title, ignoring case.
+     *
+     * @param name The identifier or title of the note
+     * @return The entry, or null if no note matches
+     */
+    public synchronized NoteEntry find(String name) {
+        NoteEntry entry = entries.get(name);
+        if (entry != null) {
+            return entry;
+        }
+        for (NoteEntry candidate : entries.values()) {
+            if (candidate.title().equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates an empty note.
+     *
+     * @param title The title of the note, a default title is used if blank
+     * @return The entry of the new note
+     */
+    public synchronized NoteEntry create(String title) {
+        String id = nextId();
+        String trimmed = title == null ? "" : title.strip();
+        NoteEntry entry = new NoteEntry(id, trimmed.isEmpty() ? "Note " + (entries.size() + 1) : trimmed, 0, System.currentTimeMillis());
+        entries.put(id, entry);
+        saveIndex(); // The note file is created by the first save
+        return entry;
+    }
+
+    /**
+     * Opens the body of a note for editing in the background, replaying its journal, along with the edits of its swap file.
+     * A large note is memory-mapped, and its journal is replayed over the mapping, so only the lines on screen
+     * and the edited ones are decoded. The note file is never rewritten while it is mapped.
+     * Runs after the appends already queued on the IO thread, so a note reopened right after a save is up to date.
+     *
+     * @param id The identifier of the note
+     * @return A future completed on the IO thread with the opened note, or null if it cannot be read
+     */
+    public CompletableFuture<OpenedNote> open(String id) {
+        return ConfigPersistence.loadAsync(() -> {
+            try {
+                TextDocument document = read(id);
+                if (!(document instanceof MappedTextDocument) && NoteHistory.isEmpty(getHistoryFile(id))) {
+                    openedBodies.put(id, document.getText());
+                }
+
+                // Edits left by an editor that was never saved nor cancelled, if they apply to this state
+                Path swapFile = getSwapFile(id);
+                byte[] swapHeader = NoteSwap.header(getNoteFile(id), getJournalFile(id));
+                swapHeaders.put(id, swapHeader);
+                List<NoteEdit> recovered = NoteSwap.read(swapFile, swapHeader);
+                long recoveredTime = recovered.isEmpty() ? 0 : Files.getLastModifiedTime(swapFile).toMillis();
+                return new OpenedNote(document, document.getChecksum(), recovered, recoveredTime);
+            } catch (IOException | RuntimeException e) {
+                Fullbright.LOGGER.error("Error reading note " + id, e);
+                return null; // Never an empty document, saving it would append edits that do not fit the note
+            }
+        });
+    }
+
+    /**
+     * Reads the body of a note, memory-mapping it if it is large.
+     * Called on the IO thread, by {@link #open} and by the {@link NoteSearchIndex}.
+     *
+     * @param id The identifier of the note
+     * @return The body of the note, a {@link MappedTextDocument} if it is large
+     * @throws IOException If the note cannot be read
+     */
+    TextDocument read(String id) throws IOException {
+        Path noteFile = getNoteFile(id);
+        Path journalFile = getJournalFile(id);
+        long size = (Files.exists(noteFile) ? Files.size(noteFile) : 0) + (Files.exists(journalFile) ? Files.size(journalFile) : 0);
+        if (size < LARGE_NOTE_SIZE || !Files.exists(noteFile)) {
+            return new RopeDocument(NoteJournal.load(noteFile, journalFile));
+        }
+        MappedTextDocument mapped = MappedTextDocument.map(noteFile);
+        mappedDocuments.put(mapped, id);
+        NoteJournal.replay(noteFile, journalFile, mapped.getContents(), mapped);
+        return mapped;
+    }
+
+    /**
+     * Appends the edits made since the previous autosave to the swap file of an open note, in the background.
+     *
+     * @param id The identifier of the note
+     * @param edits The new edits, in the order they were made
+     */
+    public void autosave(String id, List<NoteEdit> edits) {
+        byte[] header = swapHeaders.get(id);
+        if (header == null || edits.isEmpty()) {
+            return; // Not opened through open(), or nothing new
+        }
+        List<NoteEdit> copy = List.copyOf(edits);
+        ConfigPersistence.runAsync(() -> {
+            long start = Metrics.NOTE_AUTOSAVE.start();
+            try {
+                NoteSwap.append(getSwapFile(id), header, copy);
+            } catch (IOException e) {
+                Fullbright.LOGGER.error("Error autosaving note " + id, e);
+            } finally {
+                Metrics.NOTE_AUTOSAVE.stop(start);
+            }
+        });
+    }
+
+    /**
+     * Deletes the swap file of a note, when its unsaved edits are discarded.
+     *
+     * @param id The identifier of the note
+     */
+    public void discardSwap(String id) {
+        swapHeaders.remove(id);
+        openedBodies.remove(id);
+        ConfigPersistence.scheduleDelete(getSwapFile(id));
+    }
+
+    /**
+     * Saves the edits made to a note since it was read or last saved.
+     * The edits are appended to the journal of the note in the background, then the changed lines
+     * are recorded as a new version in the {@link NoteHistory} and applied to the {@link NoteSearchIndex}.
+     *
+     * @param id The identifier of the note
+     * @param edits The edits, in the order they were made
+     * @param lineChanges The same edits, as the lines they replaced
+     * @param baseChecksum The checksum of the body the edits were made on, see {@link OpenedNote#checksum()}
+     * @param size The length of the body after the edits
+     * @param checksum The checksum of the body after the edits, see {@link TextDocument#getChecksum()}
+     */
+    public synchronized void append(String id, List<NoteEdit> edits, List<NoteLineChange> lineChanges, long baseChecksum, int size, long checksum) {
+        NoteEntry entry = entries.get(id);
+        if (entry == null || edits.isEmpty()) {
+            return; // Deleted while it was open, or nothing to save
+        }
+        entries.put(id, new NoteEntry(id, entry.title(), size, System.currentTimeMillis()));
+        swapHeaders.remove(id);
+        List<NoteEdit> copy = List.copyOf(edits);
+        List<NoteLineChange> lineCopy = List.copyOf(lineChanges);
+        ConfigPersistence.runAsync(() -> {
+            Path noteFile = getNoteFile(id);
+            Path journalFile = getJournalFile(id);
+            Path historyFile = getHistoryFile(id);
+            long start = Metrics.NOTE_SAVE.start();
+            boolean compact;
+            String base = openedBodies.remove(id);
+            try {
+                if (!NoteHistory.isEmpty(historyFile)) {
+                    base = null;
+                } else if (base == null || NoteHistory.checksum(base) != baseChecksum) {
+                    base = NoteJournal.load(noteFile, journalFile); // The version before the first recorded save
+                }
+                compact = NoteJournal.append(noteFile, journalFile, copy);
+                Files.deleteIfExists(getSwapFile(id)); // Saved, the autosaved edits are in the journal now
+            } catch (IOException e) {
+                Fullbright.LOGGER.error("Error saving note " + id, e);
+                return;
+            } finally {
+                Metrics.NOTE_SAVE.stop(start);
+            }
+            try {
+                NoteHistory.record(historyFile, base, baseChecksum, lineCopy, size, checksum, () -> NoteJournal.load(noteFile, journalFile));
+            } catch (IOException e) {
+                Fullbright.LOGGER.error("Error recording the history of note " + id, e); // The save itself went through
+            }
+            NoteSearchIndex.getInstance().update(id, lineCopy);
+            if (compact && !isMapped(id)) { // Otherwise compacted by a later save, the journal is replayed until then
+                start = Metrics.NOTE_COMPACT.start();
+                try {
+                    NoteJournal.compact(noteFile, journalFile);
+                } catch (IOException e) {
+                    Fullbright.LOGGER.error("Error compacting note " + id, e); // The journal is kept and replayed
+                } finally {
+                    Metrics.NOTE_COMPACT.stop(start);
+                }
+            }
+        });
+        saveIndex();
+    }
+
+    /**
+     * Checks whether the file of a note may still be mapped by a document.
+     * A document no longer in use is forgotten once it is collected, which is when its mapping is released.
+     *
+     * @param id The identifier of the note
+     * @return True if a document mapping the note file is still reachable
+     */
+    private boolean isMapped(String id) {
+        synchronized (mappedDocuments) {
+            return mappedDocuments.containsValue(id);
+        }
+    }
+
+    /**
+     * Lists the saved versions of a note in the background, without reading their bodies.
+     *
+     * @param id The identifier of the note
+     * @return A future completed on the IO thread with the versions, the oldest first, empty if there is no history
+     */
+    public CompletableFuture<List<NoteVersion>> versions(String id) {
+        return ConfigPersistence.loadAsync(() -> {
+            try {
+                return NoteHistory.list(getHistoryFile(id));
+            } catch (IOException e) {
+                Fullbright.LOGGER.error("Error reading the history of note " + id, e);
+                return List.<NoteVersion>of();
+            }
+        });
+    }
+
+    /**
+     * Rebuilds a saved version of a note in the background.
+     *
+     * @param id The identifier of the note
+     * @param number The number of the version
+     * @return A future completed on the IO thread with the body of the version, or null if it cannot be read
+     */
+    public CompletableFuture<String> restore(String id, int number) {
+        return ConfigPersistence.loadAsync(() -> {
+            try {
+                return NoteHistory.restore(getHistoryFile(id), number);
+            } catch (IOException e) {
+                Fullbright.LOGGER.error("Error restoring version " + number + " of note " + id, e);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Deletes a note, its file, its journal and its history.
+     *
+     * @param id The identifier of the note
+     * @return True if the note existed, false otherwise
+     */
+    public synchronized boolean delete(String id) {
+        if (entries.remove(id) == null) {
+            return false;
+        }
+        synchronized (mappedDocuments) {
+            mappedDocuments.values().removeIf(id::equals);
+        }
+        openedBodies.remove(id);
+        ConfigPersistence.scheduleDelete(getNoteFile(id));
+        ConfigPersistence.scheduleDelete(getJournalFile(id));
+        ConfigPersistence.scheduleDelete(getSwapFile(id));
+        ConfigPersistence.scheduleDelete(getHistoryFile(id));
+        NoteJournal.forget(getNoteFile(id));
+        ConfigPersistence.runAsync(() -> NoteSearchIndex.getInstance().remove(id));
+        saveIndex();
+        return true;
+    }
+
+    /**
+     * Rebuilds the index from the note files, when the index file cannot be read.
+     * Titles are lost, each note is titled with its identifier.
+     * The rebuilt index is written right away, so the unreadable one is not read again.
+     */
+    private void rebuild() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(getDirectory(), "*.txt")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String id = name.substring(0, name.length() - ".txt".length());
+                if (VALID_ID.matcher(id).matches()) {
+                    int size = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).length();
+                    entries.put(id, new NoteEntry(id, id, size, Files.getLastModifiedTime(file).toMillis()));
+                }
+            }
+            ConfigPersistence.writeAtomically(getIndexFile(), toJson());
+            Fullbright.LOGGER.warn("Rebuilt the note index from " + entries.size() + " note files");
+        } catch (IOException e) {
+            Fullbright.LOGGER.error("Error rebuilding the note index", e);
+        }
+    }
+
+    /**
+     * Schedules the index to be saved to disk.
+     */
+    private void saveIndex() {
+        ConfigPersistence.scheduleWrite(getIndexFile(), this::toJson, Metrics.NOTE_SAVE);
+    }
+
+    /**
+     * Serializes the index.
+     * Synchronized with the mutators, as it runs on the writer thread.
+     *
+     * @return The index as pretty-printed JSON
+     */
+    private synchronized String toJson() {
+        return ConfigCodec.encode(VERSION, json -> {
+            json.name("notes").beginArray();
+            for (NoteEntry entry : entries.values()) {
+                json.beginObject();
+                json.name("id").value(entry.id());
+                json.name("title").value(entry.title());
+                json.name("size").value(entry.size());
+                json.name("modified").value(entry.modified());
+                json.endObject();
+            }
+            json.endArray();
+        });
+    }
+
+    /**
+     * Reads one field of the index file.
+     *
+     * @param store The store to fill
+     * @param name The name of the field
+     * @param reader The reader, positioned on the value
+     * @throws IOException If the contents are not valid JSON
+     */
+    private static void readField(NoteStore store, String name, JsonReader reader) throws IOException {
+        if (!name.equals("notes") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue(); // Unknown setting, possibly from a newer version
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String id = null;
+            String title = "";
+            int size = 0;
+            long modified = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = ConfigCodec.readString(reader, null);
+                    case "title" -> title = ConfigCodec.readString(reader, "");
+                    case "size" -> size = ConfigCodec.readInt(reader, 0);
+                    case "modified" -> modified = ConfigCodec.readLong(reader, 0);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (id != null && VALID_ID.matcher(id).matches()) {
+                store.entries.put(id, new NoteEntry(id, title, size, modified));
+            } else {
+                Fullbright.LOGGER.warn("Ignoring invalid note index entry: " + id);
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Generates an identifier not used by any note.
+     *
+     * @return A new identifier, made of base-36 digits
+     */
+    private String nextId() {
+        long seed = System.currentTimeMillis();
+        String id = Long.toString(seed, 36).toLowerCase(Locale.ROOT);
+        while (entries.containsKey(id)) {
+            id = Long.toString(++seed, 36).toLowerCase(Locale.ROOT);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the directory holding the notes.
+     * Resolved on use rather than at class load, so the class can be used without a running Fabric loader.
+     *
+     * @return The notes directory in the Fabric loader's config directory
+     */
+    static Path getDirectory() {
+        return FabricLoader.getInstance().getConfigDir().resolve("fullbright-notes");
+    }
+
+    /**
+     * Gets the location of the index file.
+     *
+     * @return The index file in the notes directory
+     */
+    private static Path getIndexFile() {
+        return getDirectory().resolve("index.json");
+    }
+
+    /**
+     * Gets the location of the body of a note.
+     *
+     * @param id The identifier of the note
+     * @return The note file in the notes directory
+     */
+    static Path getNoteFile(String id) {
+        return getDirectory().resolve(id + ".txt");
+    }
+
+    /**
+     * Gets the location of the journal of a note.
+     *
+     * @param id The identifier of the note
+     * @return The journal file in the notes directory
+     */
+    static Path getJournalFile(String id) {
+        return getDirectory().resolve(id + ".journal");
+    }
+
+    /**
+     * Gets the location of the history of a note.
+     *
+     * @param id The identifier of the note
+     * @return The history file in the notes directory
+     */
+    private static Path getHistoryFile(String id) {
+        return getDirectory().resolve(id + ".history");
+    }
+
+    /**
+     * Gets the location of the swap file of a note.
+     *
+     * @param id The identifier of the note
+     * @return The swap file in the notes directory
+     */
+    private static Path getSwapFile(String id) {
+        return getDirectory().resolve(id + ".swap");
+    }
+}
@@ -0,0 +1,75 @@
+package fr.quentin.fullbright.note;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Swap file of a note open in the editor, holding the edits not saved yet.
+ * The editor appends its new edits in the background while it is dirty, in the {@link NoteJournal} record
+ * format, so an autosave writes only what changed since the previous one.
+ * <p>
+ * The header identifies the saved state the edits apply to, the sizes of the note file and its journal,
+ * which only change through a save or a compaction. A swap file whose header no longer matches is stale.
+ * <p>
+ * Every method does file IO and is only called on the background IO thread.
+ */
+final class NoteSwap {
+    /**
+     * First bytes of a swap file, "FBS1".
+     */
+    private static final int MAGIC = 0x46425331;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private NoteSwap() {
+    }
+
+    /**
+     * Builds the header matching the saved state of a note.
+     *
+     * @param noteFile The note file
+     * @param journalFile The journal of the note
+     * @return The header of a swap file applying to that state
+     * @throws IOException If the sizes cannot be read
+     */
+    static byte[] header(Path noteFile, Path journalFile) throws IOException {
+        long noteSize = Files.exists(noteFile) ? Files.size(noteFile) : -1;
+        long journalSize = Files.exists(journalFile) ? Files.size(journalFile) : -1;
+        return NoteJournal.header(MAGIC, noteSize, journalSize);
+    }
+
+    /**
+     * Appends edits to a swap file, starting it if needed.
+     *
+     * @param swapFile The swap file
+     * @param header The header of the swap file, written if the file is new
+     * @param edits The edits made since the previous autosave
+     * @throws IOException If the file cannot be written
+     */
+    static void append(Path swapFile, byte[] header, List<NoteEdit> edits) throws IOException {
+        NoteJournal.appendRecords(swapFile, Files.exists(swapFile) && Files.size(swapFile) > 0 ? null : header, edits);
+    }
+
+    /**
+     * Reads the edits of a swap file. A stale swap file is deleted.
+     *
+     * @param swapFile The swap file
+     * @param header The header matching the current saved state of the note
+     * @return The edits, or an empty list if there is no usable swap file
+     * @throws IOException If the file cannot be read
+     */
+    static List<NoteEdit> read(Path swapFile, byte[] header) throws IOException {
+        if (!Files.exists(swapFile)) {
+            return List.of();
+        }
+        List<NoteEdit> edits = new ArrayList<>();
+        if (NoteJournal.readRecords(swapFile, header, edits::add, true) == 0) {
+            Files.deleteIfExists(swapFile); // Saved since, or not a swap file
+        }
+        return edits;
+    }
+}
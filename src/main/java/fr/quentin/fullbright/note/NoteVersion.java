@@ -0,0 +1,12 @@
+package fr.quentin.fullbright.note;
+
+/**
+ * A saved version of a note, as listed from its history without reading the body.
+ *
+ * @param number The 0-based number of the version, the oldest first
+ * @param time When the version was saved, in milliseconds since the epoch
+ * @param size The length of the body, in characters
+ * @param keyframe Whether the version is stored in full rather than as a diff
+ */
+public record NoteVersion(int number, long time, int size, boolean keyframe) {
+}
@@ -0,0 +1,16 @@
+package fr.quentin.fullbright.note;
+
+import fr.quentin.fullbright.text.TextDocument;
+
+import java.util.List;
+
+/**
+ * The body of a note opened for editing.
+ *
+ * @param document The saved body of the note
+ * @param checksum The checksum of the saved body, identifying the version the edits start from
+ * @param recovered The unsaved edits found in the swap file of the note, empty if there are none
+ * @param recoveredTime When the swap file was last written, in milliseconds since the epoch
+ */
+public record OpenedNote(TextDocument document, long checksum, List<NoteEdit> recovered, long recoveredTime) {
+}
@@ -2,6 +2,8 @@ package fr.quentin.fullbright.overlay;
 
 import fr.quentin.fullbright.Fullbright;
 import fr.quentin.fullbright.command.FullbrightCommand;
+import fr.quentin.fullbright.light.ActiveProfile;
+import fr.quentin.fullbright.metrics.Metrics;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.text.Text;
@@ -39,6 +41,12 @@ public class FullbrightOverlay {
      */
     private static final int TEXT_PADDING = 4;
 
+    /**
+     * The status text displayed next to the icon.
+     * Created once so rendering a frame does not allocate a new text component.
+     */
+    private static final Text LABEL = Text.translatable("fullbright.name");
+
     /**
      * Registers the overlay renderer with the game's HUD system.
      * The overlay will only be rendered when the mod and overlay are enabled.
@@ -51,10 +59,15 @@ public class FullbrightOverlay {
                     IdentifiedLayer.MISC_OVERLAYS, // Attach after the miscellaneous overlays
                     statusOverlay,
                     (context, tickCounter) -> {
-                        // Check if the fullbright effect and overlay are enabled
-                        if (FullbrightCommand.getConfig().isEnabled() &&
-                                FullbrightCommand.getConfig().isShowOverlay()) {
-                            renderOverlay(context); // Render the overlay
+                        long start = Metrics.HUD_OVERLAY.start();
+                        try {
+                            // Check if the fullbright effect is active in this dimension and the overlay is enabled
+                            if (ActiveProfile.isEnabled() &&
+                                    FullbrightCommand.getConfig().isShowOverlay()) {
+                                renderOverlay(context); // Render the overlay
+                            }
+                        } finally {
+                            Metrics.HUD_OVERLAY.stop(start);
                         }
                     }
             );
@@ -64,10 +77,11 @@ public class FullbrightOverlay {
     /**
      * Renders the overlay to the screen.
      * Draws both the icon texture and status text.
+     * Package-private so the allocation tests can draw it without a running game.
      *
      * @param context The drawing context provided by the game
      */
-    private static void renderOverlay(DrawContext context) {
+    static void renderOverlay(DrawContext context) {
         // Draw the icon texture on the screen
         context.drawTexture(
                 RenderLayer::getGuiTextured, // Render layer for GUI textures
@@ -88,7 +102,7 @@ public class FullbrightOverlay {
 
         context.drawTextWithShadow(
                 MinecraftClient.getInstance().textRenderer, // Text renderer
-                Text.translatable("fullbright.name"), // Text to draw
+                LABEL, // Text to draw
                 textX, // X position
                 textY, // Y position
                 0xFFFFFFFF // Text color (white with full opacity)
@@ -56,10 +56,7 @@ public class FullbrightOptionsScreen extends GameOptionsScreen {
                         (text, value) -> value ? Text.translatable("fullbright.button.on") : Text.translatable("fullbright.button.off"), // Display text
                         SimpleOption.BOOLEAN, // Option type (boolean toggle)
                         config.isEnabled(), // Current value
-                        value -> {
-                            config.setEnabled(value); // Update the configuration
-                            config.save(); // Save the configuration
-                        }
+                        config::setEnabled // Update the configuration, saved in the background
                 ),
                 // Option to show/hide the overlay
                 new SimpleOption<>(
@@ -68,10 +65,25 @@ public class FullbrightOptionsScreen extends GameOptionsScreen {
                         (text, value) -> value ? Text.translatable("fullbright.button.on") : Text.translatable("fullbright.button.off"), // Display text
                         SimpleOption.BOOLEAN, // Option type (boolean toggle)
                         config.isShowOverlay(), // Current value
-                        value -> {
-                            config.setShowOverlay(value); // Update the configuration
-                            config.save(); // Save the configuration
-                        }
+                        config::setShowOverlay // Update the configuration, saved in the background
+                ),
+                // Slider for the brightness level of the lightmap mode
+                new SimpleOption<>(
+                        "fullbright.option.level", // Translation key for the option name
+                        SimpleOption.emptyTooltip(), // No tooltip
+                        (text, value) -> GameOptions.getGenericValueText(text, Text.translatable("fullbright.option.level.value", value)), // Display text
+                        new SimpleOption.ValidatingIntSliderCallbacks(0, 100), // Option type (integer slider)
+                        config.getLevel(), // Current value
+                        config::setLevel // Update the configuration, saved in the background
+                ),
+                // Option to fade the lightmap mode in and out
+                new SimpleOption<>(
+                        "fullbright.option.fade", // Translation key for the option name
+                        SimpleOption.emptyTooltip(), // No tooltip
+                        (text, value) -> value ? Text.translatable("fullbright.button.on") : Text.translatable("fullbright.button.off"), // Display text
+                        SimpleOption.BOOLEAN, // Option type (boolean toggle)
+                        config.isFade(), // Current value
+                        config::setFade // Update the configuration, saved in the background
                 )
         };
     }
@@ -90,16 +102,6 @@ public class FullbrightOptionsScreen extends GameOptionsScreen {
         }
     }
 
-    /**
-     * Called when the screen is removed from view.
-     * Ensures the configuration is saved when the screen is closed.
-     */
-    @Override
-    public void removed() {
-        this.config.save(); // Save the configuration
-        super.removed(); // Call the superclass method
-    }
-
     /**
      * Determines whether the game should be paused when this screen is open.
      *
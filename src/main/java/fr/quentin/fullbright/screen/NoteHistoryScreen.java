@@ -0,0 +1,281 @@
+package fr.quentin.fullbright.screen;
+
+import fr.quentin.fullbright.note.NoteEntry;
+import fr.quentin.fullbright.note.NoteStore;
+import fr.quentin.fullbright.note.NoteVersion;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.widget.AlwaysSelectedEntryListWidget;
+import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.text.Text;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Lists the saved versions of a note and restores one into the editor.
+ * The list comes from the history headers only, a version is rebuilt when it is restored.
+ */
+public class NoteHistoryScreen extends Screen {
+    /**
+     * Format of the save time displayed under each version.
+     */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /**
+     * The screen to return to when this screen is closed.
+     */
+    private final Screen parent;
+
+    /**
+     * The note whose versions are listed.
+     */
+    private final NoteEntry note;
+
+    /**
+     * Receives the body of the restored version.
+     */
+    private final Consumer<String> onRestore;
+
+    /**
+     * The versions of the note, read once in the background, or null until they are read.
+     */
+    private List<NoteVersion> versions;
+
+    /**
+     * The list of versions.
+     */
+    private VersionListWidget versionList;
+
+    /**
+     * The button restoring the selected version, disabled without a selection or while restoring.
+     */
+    private ButtonWidget restoreButton;
+
+    /**
+     * Whether a version is being rebuilt.
+     */
+    private boolean restoring;
+
+    /**
+     * Constructs a new NoteHistoryScreen.
+     *
+     * @param parent The screen to return to when this screen is closed
+     * @param note The note whose versions to list
+     * @param onRestore Receives the body of the restored version, before returning to the parent
+     */
+    public NoteHistoryScreen(Screen parent, NoteEntry note, Consumer<String> onRestore) {
+        super(Text.translatable("fullbright.screen.note_history", note.title()));
+        this.parent = parent;
+        this.note = note;
+        this.onRestore = onRestore;
+    }
+
+    /**
+     * Initializes the screen by setting up the version list and buttons.
+     */
+    @Override
+    protected void init() {
+        if (versionList == null) {
+            NoteStore.getInstance().versions(note.id()).thenAccept(list -> this.client.execute(() -> {
+                versions = list;
+                fillVersions();
+            }));
+        }
+
+        // List of versions, the newest first, filled once they are read
+        this.versionList = new VersionListWidget(this.client, this.width, this.height - 72, 32, 24);
+        fillVersions();
+        this.addDrawableChild(versionList);
+
+        // Button to restore the selected version
+        this.restoreButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.restore"), button -> restoreSelected())
+                .dimensions(this.width / 2 - 155, this.height - 30, 150, 20)
+                .build());
+
+        // Button to return to the editor
+        this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.done"), button -> this.close())
+                .dimensions(this.width / 2 + 5, this.height - 30, 150, 20)
+                .build());
+
+        updateButtons();
+    }
+
+    /**
+     * Adds the versions to the list, the newest first, once they are read.
+     */
+    private void fillVersions() {
+        if (versions == null) {
+            return;
+        }
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            this.versionList.addVersion(versions.get(i));
+        }
+    }
+
+    /**
+     * Rebuilds the selected version in the background, then hands it to the editor.
+     */
+    private void restoreSelected() {
+        VersionListWidget.VersionListEntry selected = versionList.getSelectedOrNull();
+        if (selected == null) {
+            return;
+        }
+        restoring = true;
+        updateButtons();
+        NoteStore.getInstance().restore(note.id(), selected.version.number()).thenAccept(text -> this.client.execute(() -> {
+            restoring = false;
+            if (text != null) {
+                onRestore.accept(text);
+                this.close();
+            } else {
+                updateButtons(); // Logged, the history entry is damaged
+            }
+        }));
+    }
+
+    /**
+     * Enables the restore button only when a version is selected and none is being restored.
+     */
+    private void updateButtons() {
+        if (restoreButton == null) {
+            return; // Called while the list is filled, before the buttons exist
+        }
+        restoreButton.active = !restoring && versionList.getSelectedOrNull() != null;
+    }
+
+    /**
+     * Renders the screen and its components.
+     *
+     * @param context The drawing context provided by the game.
+     * @param mouseX  The x-coordinate of the mouse.
+     * @param mouseY  The y-coordinate of the mouse.
+     * @param delta   The delta time for the frame.
+     */
+    @Override
+    public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        super.render(context, mouseX, mouseY, delta);
+        context.drawCenteredTextWithShadow(this.textRenderer, this.title, this.width / 2, 12, 0xFFFFFF);
+        if (versions == null) {
+            context.drawCenteredTextWithShadow(this.textRenderer, Text.translatable("fullbright.note.loading"), this.width / 2, this.height / 2 - 30, 0xA0A0A0);
+        } else if (versions.isEmpty()) {
+            context.drawCenteredTextWithShadow(this.textRenderer, Text.translatable("fullbright.note.history.empty"), this.width / 2, this.height / 2 - 30, 0xA0A0A0);
+        }
+    }
+
+    /**
+     * Returns to the parent screen.
+     */
+    @Override
+    public void close() {
+        this.client.setScreen(parent);
+    }
+
+    /**
+     * Determines whether the game should be paused when this screen is open.
+     *
+     * @return False, indicating the game should not pause.
+     */
+    @Override
+    public boolean shouldPause() {
+        return false;
+    }
+
+    /**
+     * The scrollable list of versions.
+     */
+    private class VersionListWidget extends AlwaysSelectedEntryListWidget<VersionListWidget.VersionListEntry> {
+        /**
+         * Constructs a new VersionListWidget.
+         *
+         * @param client The game client
+         * @param width The width of the list
+         * @param height The height of the list
+         * @param y The top of the list
+         * @param itemHeight The height of an entry
+         */
+        VersionListWidget(MinecraftClient client, int width, int height, int y, int itemHeight) {
+            super(client, width, height, y, itemHeight);
+        }
+
+        /**
+         * Adds a version at the end of the list.
+         *
+         * @param version The version
+         */
+        void addVersion(NoteVersion version) {
+            addEntry(new VersionListEntry(version));
+        }
+
+        /**
+         * Selects an entry and updates the buttons.
+         *
+         * @param entry The selected entry, or null
+         */
+        @Override
+        public void setSelected(VersionListEntry entry) {
+            super.setSelected(entry);
+            updateButtons();
+        }
+
+        /**
+         * One version of the list, displaying its number, save time and size.
+         */
+        private class VersionListEntry extends AlwaysSelectedEntryListWidget.Entry<VersionListEntry> {
+            /**
+             * The version.
+             */
+            private final NoteVersion version;
+
+            /**
+             * The lines of the entry, built once.
+             */
+            private final Text name;
+            private final Text details;
+
+            /**
+             * Constructs a new VersionListEntry.
+             *
+             * @param version The version
+             */
+            VersionListEntry(NoteVersion version) {
+                this.version = version;
+                this.name = Text.translatable("fullbright.note.version", version.number() + 1);
+                this.details = Text.translatable("fullbright.note.details", version.size(), DATE_FORMAT.format(Instant.ofEpochMilli(version.time())));
+            }
+
+            /**
+             * Renders the number and details of the version.
+             */
+            @Override
+            public void render(DrawContext context, int index, int y, int x, int entryWidth, int entryHeight, int mouseX, int mouseY, boolean hovered, float tickDelta) {
+                context.drawTextWithShadow(textRenderer, name, x + 4, y + 2, 0xFFFFFF);
+                context.drawTextWithShadow(textRenderer, details, x + 4, y + 12, 0x808080);
+            }
+
+            /**
+             * Selects the version.
+             *
+             * @return True, the click is always handled
+             */
+            @Override
+            public boolean mouseClicked(double mouseX, double mouseY, int button) {
+                return true;
+            }
+
+            /**
+             * Gets the narration of the entry.
+             *
+             * @return The number of the version
+             */
+            @Override
+            public Text getNarration() {
+                return name;
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package fr.quentin.fullbright.screen;
+
+import fr.quentin.fullbright.note.NoteEntry;
+import fr.quentin.fullbright.note.NoteStore;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.ConfirmScreen;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.widget.AlwaysSelectedEntryListWidget;
+import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.client.gui.widget.TextFieldWidget;
+import net.minecraft.text.Text;
+import net.minecraft.util.Util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Lists the player's notes and opens them in the text editor.
+ * Only the note index is read, a note's body is loaded when it is opened.
+ */
+public class NotePickerScreen extends Screen {
+    /**
+     * Format of the modification time displayed under each note.
+     */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    /**
+     * Maximum delay between two clicks on a note to open it, in milliseconds.
+     */
+    private static final long DOUBLE_CLICK_MS = 250;
+
+    /**
+     * The screen to return to when this screen is closed.
+     */
+    private final Screen parent;
+
+    /**
+     * The list of notes.
+     */
+    private NoteListWidget noteList;
+
+    /**
+     * The field holding the title of the next note to create.
+     */
+    private TextFieldWidget titleField;
+
+    /**
+     * The buttons acting on the selected note, disabled without a selection.
+     */
+    private ButtonWidget openButton;
+    private ButtonWidget deleteButton;
+
+    /**
+     * Constructs a new NotePickerScreen.
+     *
+     * @param parent The screen to return to when this screen is closed, or null
+     */
+    public NotePickerScreen(Screen parent) {
+        super(Text.translatable("fullbright.screen.note_picker"));
+        this.parent = parent;
+    }
+
+    /**
+     * Initializes the screen by setting up the note list, the title field and buttons.
+     */
+    @Override
+    protected void init() {
+        // List of notes, filled from the index only
+        this.noteList = new NoteListWidget(this.client, this.width, this.height - 96, 32, 24);
+        for (NoteEntry note : NoteStore.getInstance().list()) {
+            this.noteList.addNote(note);
+        }
+        this.addDrawableChild(noteList);
+
+        // Field for the title of a new note
+        this.titleField = new TextFieldWidget(this.textRenderer, this.width / 2 - 155, this.height - 56, 205, 20, Text.translatable("fullbright.note.title"));
+        this.titleField.setPlaceholder(Text.translatable("fullbright.note.title"));
+        this.addDrawableChild(titleField);
+
+        // Button to create a note with the entered title
+        this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.new"), button -> createNote())
+                .dimensions(this.width / 2 + 55, this.height - 56, 100, 20)
+                .build());
+
+        // Button to open the selected note
+        this.openButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.open"), button -> openSelected())
+                .dimensions(this.width / 2 - 155, this.height - 30, 100, 20)
+                .build());
+
+        // Button to delete the selected note, after confirmation
+        this.deleteButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.delete"), button -> deleteSelected())
+                .dimensions(this.width / 2 - 50, this.height - 30, 100, 20)
+                .build());
+
+        // Button to close the screen
+        this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.done"), button -> this.close())
+                .dimensions(this.width / 2 + 55, this.height - 30, 100, 20)
+                .build());
+
+        updateButtons();
+    }
+
+    /**
+     * Creates a note with the entered title and opens it.
+     */
+    private void createNote() {
+        NoteEntry note = NoteStore.getInstance().create(titleField.getText());
+        this.client.setScreen(new SimpleTextEditorScreen(this, note));
+    }
+
+    /**
+     * Opens the selected note in the text editor.
+     */
+    private void openSelected() {
+        NoteListWidget.NoteListEntry selected = noteList.getSelectedOrNull();
+        if (selected != null) {
+            this.client.setScreen(new SimpleTextEditorScreen(this, selected.note));
+        }
+    }
+
+    /**
+     * Asks for confirmation, then deletes the selected note.
+     */
+    private void deleteSelected() {
+        NoteListWidget.NoteListEntry selected = noteList.getSelectedOrNull();
+        if (selected == null) {
+            return;
+        }
+        this.client.setScreen(new ConfirmScreen(confirmed -> {
+            if (confirmed) {
+                NoteStore.getInstance().delete(selected.note.id());
+            }
+            this.client.setScreen(this); // Rebuilds the list from the index
+        }, Text.translatable("fullbright.note.delete.title"), Text.translatable("fullbright.note.delete.message", selected.note.title())));
+    }
+
+    /**
+     * Enables the buttons acting on the selected note only when a note is selected.
+     */
+    private void updateButtons() {
+        if (openButton == null) {
+            return; // Called while the list is filled, before the buttons exist
+        }
+        boolean selected = noteList.getSelectedOrNull() != null;
+        openButton.active = selected;
+        deleteButton.active = selected;
+    }
+
+    /**
+     * Renders the screen and its components.
+     *
+     * @param context The drawing context provided by the game.
+     * @param mouseX  The x-coordinate of the mouse.
+     * @param mouseY  The y-coordinate of the mouse.
+     * @param delta   The delta time for the frame.
+     */
+    @Override
+    public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        super.render(context, mouseX, mouseY, delta);
+        context.drawCenteredTextWithShadow(this.textRenderer, this.title, this.width / 2, 12, 0xFFFFFF);
+        if (noteList.children().isEmpty()) {
+            context.drawCenteredTextWithShadow(this.textRenderer, Text.translatable("fullbright.note.list.empty"), this.width / 2, this.height / 2 - 30, 0xA0A0A0);
+        }
+    }
+
+    /**
+     * Returns to the parent screen.
+     */
+    @Override
+    public void close() {
+        this.client.setScreen(parent);
+    }
+
+    /**
+     * Determines whether the game should be paused when this screen is open.
+     *
+     * @return False, indicating the game should not pause.
+     */
+    @Override
+    public boolean shouldPause() {
+        return false;
+    }
+
+    /**
+     * The scrollable list of notes.
+     */
+    private class NoteListWidget extends AlwaysSelectedEntryListWidget<NoteListWidget.NoteListEntry> {
+        /**
+         * Constructs a new NoteListWidget.
+         *
+         * @param client The game client
+         * @param width The width of the list
+         * @param height The height of the list
+         * @param y The top of the list
+         * @param itemHeight The height of an entry
+         */
+        NoteListWidget(MinecraftClient client, int width, int height, int y, int itemHeight) {
+            super(client, width, height, y, itemHeight);
+        }
+
+        /**
+         * Adds a note at the end of the list.
+         *
+         * @param note The index entry of the note
+         */
+        void addNote(NoteEntry note) {
+            addEntry(new NoteListEntry(note));
+        }
+
+        /**
+         * Selects an entry and updates the buttons.
+         *
+         * @param entry The selected entry, or null
+         */
+        @Override
+        public void setSelected(NoteListEntry entry) {
+            super.setSelected(entry);
+            updateButtons();
+        }
+
+        /**
+         * One note of the list, displaying its title, size and modification time.
+         */
+        private class NoteListEntry extends AlwaysSelectedEntryListWidget.Entry<NoteListEntry> {
+            /**
+             * The index entry of the note.
+             */
+            private final NoteEntry note;
+
+            /**
+             * The second line of the entry, built once.
+             */
+            private final Text details;
+
+            /**
+             * When the entry was last clicked, to detect double clicks.
+             */
+            private long lastClickTime;
+
+            /**
+             * Constructs a new NoteListEntry.
+             *
+             * @param note The index entry of the note
+             */
+            NoteListEntry(NoteEntry note) {
+                this.note = note;
+                this.details = Text.translatable("fullbright.note.details", note.size(), DATE_FORMAT.format(Instant.ofEpochMilli(note.modified())));
+            }
+
+            /**
+             * Renders the title and details of the note.
+             */
+            @Override
+            public void render(DrawContext context, int index, int y, int x, int entryWidth, int entryHeight, int mouseX, int mouseY, boolean hovered, float tickDelta) {
+                context.drawTextWithShadow(textRenderer, note.title(), x + 4, y + 2, 0xFFFFFF);
+                context.drawTextWithShadow(textRenderer, details, x + 4, y + 12, 0x808080);
+            }
+
+            /**
+             * Selects the note, and opens it on a double click.
+             *
+             * @return True, the click is always handled
+             */
+            @Override
+            public boolean mouseClicked(double mouseX, double mouseY, int button) {
+                long now = Util.getMeasuringTimeMs();
+                if (getSelectedOrNull() == this && now - lastClickTime < DOUBLE_CLICK_MS) {
+                    openSelected();
+                }
+                lastClickTime = now;
+                return true;
+            }
+
+            /**
+             * Gets the narration of the entry.
+             *
+             * @return The title of the note
+             */
+            @Override
+            public Text getNarration() {
+                return Text.literal(note.title());
+            }
+        }
+    }
+}
@@ -1,35 +1,203 @@
 package fr.quentin.fullbright.screen;
 
-import fr.quentin.fullbright.config.NoteConfig;
+import fr.quentin.fullbright.config.FullbrightConfig;
+import fr.quentin.fullbright.note.NoteEdit;
+import fr.quentin.fullbright.note.NoteEntry;
+import fr.quentin.fullbright.note.NoteLineChange;
+import fr.quentin.fullbright.note.NoteSearchIndex;
+import fr.quentin.fullbright.note.NoteSearchResult;
+import fr.quentin.fullbright.note.NoteStore;
+import fr.quentin.fullbright.note.OpenedNote;
+import fr.quentin.fullbright.text.RopeDocument;
+import fr.quentin.fullbright.text.TextDocument;
+import fr.quentin.fullbright.text.TextPattern;
 import fr.quentin.fullbright.widget.EditBox;
+import fr.quentin.fullbright.widget.EditHistory;
 import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.screen.ConfirmScreen;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
+import net.minecraft.client.gui.widget.TextFieldWidget;
 import net.minecraft.text.Text;
+import net.minecraft.util.Util;
+import org.lwjgl.glfw.GLFW;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * A simple text editor screen for the Fullbright mod.
- * Allows users to edit and save notes.
+ * Allows users to edit and save a note of the {@link NoteStore},
+ * and to search every note through the {@link NoteSearchIndex}.
  */
 public class SimpleTextEditorScreen extends Screen {
+    /**
+     * Maximum number of search results displayed.
+     */
+    private static final int MAX_RESULTS = 6;
+
+    /**
+     * Height of the EditBox without the find bar, which takes a row from it per row of fields.
+     */
+    private static final int EDIT_BOX_HEIGHT = 150;
+
+    /**
+     * Height of a row of the find bar, spacing included.
+     */
+    private static final int FIND_ROW_HEIGHT = 22;
+
+    /**
+     * Text color of a find field holding an invalid regular expression.
+     */
+    private static final int INVALID_COLOR = 0xFF5555;
+
+    /**
+     * Text color of a valid find field, the default of text fields.
+     */
+    private static final int VALID_COLOR = 0xE0E0E0;
+
+    /**
+     * Format of the time of recovered edits.
+     */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
     /**
      * The editable text box where the user can input text.
      */
     private EditBox editBox;
 
     /**
-     * The initial text to be displayed in the editor.
+     * The screen to return to when this screen is closed.
+     */
+    private final Screen parent;
+
+    /**
+     * The index entry of the edited note.
+     */
+    private final NoteEntry note;
+
+    /**
+     * The edits made since the note was opened, saved by appending them to the note's journal.
+     */
+    private final List<NoteEdit> unsavedEdits = new ArrayList<>();
+
+    /**
+     * The same edits as the lines they replaced, applied to the search index on save.
+     */
+    private final List<NoteLineChange> unsavedLineChanges = new ArrayList<>();
+
+    /**
+     * Checksum of the note when it was opened, identifying the base of the version recorded on save.
+     */
+    private long openedChecksum;
+
+    /**
+     * Number of unsaved edits already written to the swap file.
+     */
+    private int autosavedEdits;
+
+    /**
+     * When the swap file was last written, or when the note was opened.
+     */
+    private long lastAutosaveTime;
+
+    /**
+     * Edits found in the swap file when the note was opened, offered for recovery on the first tick, or null.
+     */
+    private OpenedNote pendingRecovery;
+
+    /**
+     * Whether the edits were saved or discarded, after which nothing is autosaved anymore.
+     */
+    private boolean finished;
+
+    /**
+     * The line to move the cursor to when the note is first displayed, or -1.
+     */
+    private int initialLine;
+
+    /**
+     * The field holding the search query.
+     */
+    private TextFieldWidget searchField;
+
+    /**
+     * The results of the last search, displayed in place of the EditBox, or null when hidden.
+     */
+    private List<NoteSearchResult> searchResults;
+
+    /**
+     * The buttons opening the search results.
+     */
+    private final List<ButtonWidget> resultButtons = new ArrayList<>();
+
+    /**
+     * Whether the note is being opened, was opened, or could not be read.
+     * The EditBox is hidden and nothing can be saved until the note is opened.
+     */
+    private LoadState loadState = LoadState.LOADING;
+
+    /**
+     * The buttons acting on the opened note, inactive until it is opened.
+     */
+    private ButtonWidget saveButton;
+    private ButtonWidget clearButton;
+    private ButtonWidget historyButton;
+
+    /**
+     * Which rows of the find bar are shown, kept across resizes.
+     */
+    private FindMode findMode = FindMode.HIDDEN;
+
+    /**
+     * Whether the find query is a regular expression, kept across resizes.
      */
-    private final String initialText;
+    private boolean findRegex;
+
+    /**
+     * The field holding the text to find in the note.
+     */
+    private TextFieldWidget findField;
+
+    /**
+     * The field holding the replacement of the matches.
+     */
+    private TextFieldWidget replaceField;
+
+    /**
+     * The buttons of the find bar, shown with the row they belong to.
+     */
+    private ButtonWidget findNextButton;
+    private ButtonWidget regexButton;
+    private ButtonWidget replaceButton;
+    private ButtonWidget replaceAllButton;
 
     /**
      * Constructs a new SimpleTextEditorScreen.
      *
-     * @param initialText The initial text to be displayed in the editor.
+     * @param parent The screen to return to when this screen is closed, or null.
+     * @param note The note to edit.
      */
-    public SimpleTextEditorScreen(String initialText) {
+    public SimpleTextEditorScreen(Screen parent, NoteEntry note) {
+        this(parent, note, -1);
+    }
+
+    /**
+     * Constructs a new SimpleTextEditorScreen with the cursor on a given line.
+     *
+     * @param parent The screen to return to when this screen is closed, or null.
+     * @param note The note to edit.
+     * @param line The 0-based line to move the cursor to, or -1 to keep it at the start.
+     */
+    public SimpleTextEditorScreen(Screen parent, NoteEntry note, int line) {
         super(Text.translatable("fullbright.screen.text_editor"));
-        this.initialText = initialText;
+        this.parent = parent;
+        this.note = note;
+        this.initialLine = line;
     }
 
     /**
@@ -37,43 +205,372 @@ public class SimpleTextEditorScreen extends Screen {
      */
     @Override
     protected void init() {
-        // Initialize the EditBox with the initial text or the current note
-        this.editBox = new EditBox(this.width / 2 - 150, this.height / 2 - 90, 300, 150);
-        this.editBox.setText(initialText != null ? initialText : NoteConfig.getInstance().getNote());
+        // Initialize the EditBox with the note body, opened in the background on first display and handed over across resizes
+        TextDocument document;
+        EditHistory history = null;
+        if (editBox != null) {
+            document = editBox.getDocument();
+            history = editBox.getHistory();
+        } else {
+            document = new RopeDocument(""); // Hidden until the note is opened
+            NoteStore.getInstance().open(note.id()).thenAccept(opened -> this.client.execute(() -> onOpened(opened)));
+        }
+        this.editBox = new EditBox(this.width / 2 - 150, this.height / 2 - 90, 300, EDIT_BOX_HEIGHT);
+        this.editBox.setDocument(document);
+        if (history != null) {
+            this.editBox.setHistory(history);
+        }
+        this.editBox.getHistory().setBudget(FullbrightConfig.getInstance().getNoteUndoKilobytes() * 1024L);
+        this.editBox.setMaxLength(NoteStore.MAX_NOTE_LENGTH);
+        this.editBox.setEditListener(new EditRecorder());
         this.addDrawableChild(editBox);
 
+        // Field to search every note, the query is kept across resizes
+        String query = searchField != null ? searchField.getText() : "";
+        this.searchField = new TextFieldWidget(this.textRenderer, this.width / 2, this.height / 2 - 116, 150, 20, Text.translatable("fullbright.note.search"));
+        this.searchField.setPlaceholder(Text.translatable("fullbright.note.search"));
+        this.searchField.setText(query);
+        this.addDrawableChild(searchField);
+
+        // Find bar below the EditBox, hidden until Ctrl+F or Ctrl+H, the query and replacement are kept across resizes
+        int x = this.width / 2 - 150;
+        String findQuery = findField != null ? findField.getText() : "";
+        String replacement = replaceField != null ? replaceField.getText() : "";
+        this.findField = new TextFieldWidget(this.textRenderer, x, 0, 176, 20, Text.translatable("fullbright.note.find"));
+        this.findField.setPlaceholder(Text.translatable("fullbright.note.find"));
+        this.findField.setText(findQuery);
+        this.findField.setChangedListener(text -> updateFindPattern());
+        this.addDrawableChild(findField);
+        this.findNextButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.find_next"), button -> editBox.findNext(true))
+                .dimensions(x + 180, 0, 58, 20)
+                .build());
+        this.regexButton = this.addDrawableChild(ButtonWidget.builder(getRegexLabel(), button -> toggleRegex())
+                .dimensions(x + 242, 0, 58, 20)
+                .build());
+        this.replaceField = new TextFieldWidget(this.textRenderer, x, 0, 176, 20, Text.translatable("fullbright.note.replace"));
+        this.replaceField.setPlaceholder(Text.translatable("fullbright.note.replace"));
+        this.replaceField.setText(replacement);
+        this.addDrawableChild(replaceField);
+        this.replaceButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.replace"), button -> editBox.replaceMatch(replaceField.getText()))
+                .dimensions(x + 180, 0, 58, 20)
+                .build());
+        this.replaceAllButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.replace_all"), button -> editBox.replaceAll(replaceField.getText()))
+                .dimensions(x + 242, 0, 58, 20)
+                .build());
+
         // Button to save the text
-        this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.save"), button -> saveText())
-                .dimensions(this.width / 2 - 155, this.height / 2 + 80, 100, 20)
+        this.saveButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.save"), button -> saveText())
+                .dimensions(this.width / 2 - 155, this.height / 2 + 80, 74, 20)
                 .build());
 
-        // Button to cancel and close the screen
-        this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.cancel"), button -> this.close())
-                .dimensions(this.width / 2 - 50, this.height / 2 + 80, 100, 20)
+        // Button to discard the edits and close the screen
+        this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.cancel"), button -> discardText())
+                .dimensions(this.width / 2 - 77, this.height / 2 + 80, 74, 20)
                 .build());
 
         // Button to clear all text in the EditBox
-        this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.clear"), button -> clearText())
-                .dimensions(this.width / 2 + 55, this.height / 2 + 80, 100, 20)
+        this.clearButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.clear"), button -> clearText())
+                .dimensions(this.width / 2 + 1, this.height / 2 + 80, 74, 20)
+                .build());
+
+        // Button to browse and restore the saved versions of the note
+        this.historyButton = this.addDrawableChild(ButtonWidget.builder(Text.translatable("fullbright.button.history"), button -> this.client.setScreen(new NoteHistoryScreen(this, note, this::restoreVersion)))
+                .dimensions(this.width / 2 + 79, this.height / 2 + 80, 74, 20)
                 .build());
+        showResults(searchResults);
+    }
+
+    /**
+     * Hands the opened note to the EditBox, or keeps it hidden if the note cannot be read.
+     * An unreadable note is never replaced by an empty one, which a save would append edits to.
+     *
+     * @param opened The opened note, or null if it cannot be read
+     */
+    private void onOpened(OpenedNote opened) {
+        if (opened == null) {
+            loadState = LoadState.FAILED; // Logged, the note and its swap file stay untouched
+            return;
+        }
+        editBox.setDocument(opened.document());
+        openedChecksum = opened.checksum();
+        pendingRecovery = opened.recovered().isEmpty() ? null : opened;
+        lastAutosaveTime = Util.getMeasuringTimeMs();
+        if (initialLine >= 0) {
+            editBox.setCursor(initialLine, 0);
+            initialLine = -1;
+        }
+        loadState = LoadState.LOADED;
+        showResults(searchResults);
     }
 
     /**
      * Clears the text in the EditBox.
      */
     private void clearText() {
-        editBox.setText("");
+        editBox.clear();
     }
 
     /**
-     * Saves the text from the EditBox to the NoteConfig and closes the screen.
+     * Saves the edits made in the EditBox to the note store and closes the screen.
      */
     private void saveText() {
-        String text = editBox.getText();
-        NoteConfig.getInstance().setNote(text);
+        NoteStore.getInstance().append(note.id(), unsavedEdits, unsavedLineChanges, openedChecksum, editBox.getLength(), editBox.getDocument().getChecksum());
+        unsavedEdits.clear();
+        unsavedLineChanges.clear();
+        finished = true;
+        this.close();
+    }
+
+    /**
+     * Replaces the text with a restored version, as an unsaved edit that is kept only if the note is saved.
+     *
+     * @param text The body of the restored version
+     */
+    private void restoreVersion(String text) {
+        editBox.applyEdit(0, editBox.getLength(), text);
+    }
+
+    /**
+     * Discards the edits made in the EditBox, with their swap file, and closes the screen.
+     */
+    private void discardText() {
+        discardSwap();
         this.close();
     }
 
+    /**
+     * Deletes the swap file, if anything was autosaved, and stops autosaving.
+     */
+    private void discardSwap() {
+        if (autosavedEdits > 0 || pendingRecovery != null) {
+            NoteStore.getInstance().discardSwap(note.id());
+        }
+        finished = true;
+    }
+
+    /**
+     * Writes the edits made since the previous autosave to the swap file, if any.
+     * Only the new edits are handed to the IO thread, the text itself is never serialized.
+     */
+    private void autosave() {
+        if (finished || pendingRecovery != null || unsavedEdits.size() == autosavedEdits) {
+            return; // Nothing new, or the swap file still holds edits waiting for recovery
+        }
+        NoteStore.getInstance().autosave(note.id(), unsavedEdits.subList(autosavedEdits, unsavedEdits.size()));
+        autosavedEdits = unsavedEdits.size();
+        lastAutosaveTime = Util.getMeasuringTimeMs();
+    }
+
+    /**
+     * Offers to recover the edits found in the swap file.
+     * Recovered edits are replayed as unsaved edits, they are only kept if the note is saved.
+     */
+    private void offerRecovery() {
+        OpenedNote opened = pendingRecovery;
+        Text time = Text.literal(DATE_FORMAT.format(Instant.ofEpochMilli(opened.recoveredTime())));
+        this.client.setScreen(new ConfirmScreen(confirmed -> {
+            pendingRecovery = null;
+            if (confirmed) {
+                for (NoteEdit edit : opened.recovered()) {
+                    if (!editBox.applyEdit(edit.offset(), edit.removedLength(), edit.inserted())) {
+                        break; // Does not match the note, keep what applied
+                    }
+                }
+                autosavedEdits = unsavedEdits.size(); // Already in the swap file
+            } else {
+                NoteStore.getInstance().discardSwap(note.id());
+            }
+            this.client.setScreen(this);
+        }, Text.translatable("fullbright.note.recover.title"), Text.translatable("fullbright.note.recover.message", note.title(), time)));
+    }
+
+    /**
+     * Autosaves at the configured interval, and offers recovery once the screen is displayed.
+     */
+    @Override
+    public void tick() {
+        super.tick();
+        if (pendingRecovery != null) {
+            offerRecovery();
+            return;
+        }
+        int interval = FullbrightConfig.getInstance().getNoteAutosaveSeconds();
+        if (interval > 0 && Util.getMeasuringTimeMs() - lastAutosaveTime >= interval * 1000L) {
+            autosave();
+        }
+    }
+
+    /**
+     * Autosaves when the screen goes away without a save or a cancel, such as on a disconnect.
+     */
+    @Override
+    public void removed() {
+        super.removed();
+        autosave();
+    }
+
+    /**
+     * Searches every note for the query of the search field.
+     * Results are displayed once the search index answers.
+     */
+    private void search() {
+        if (searchField.getText().isBlank()) {
+            showResults(null);
+            return;
+        }
+        NoteSearchIndex.getInstance().search(searchField.getText(), MAX_RESULTS)
+                .thenAccept(results -> this.client.execute(() -> {
+                    if (this.client.currentScreen == this) {
+                        showResults(results);
+                    }
+                }));
+    }
+
+    /**
+     * Displays search results in place of the EditBox, or hides them.
+     * Also shows the EditBox and enables the buttons acting on the note once it is opened.
+     *
+     * @param results The results to display, or null to show the EditBox again
+     */
+    private void showResults(List<NoteSearchResult> results) {
+        resultButtons.forEach(this::remove);
+        resultButtons.clear();
+        searchResults = results;
+        editBox.visible = results == null && loadState == LoadState.LOADED;
+        saveButton.active = loadState == LoadState.LOADED;
+        clearButton.active = loadState == LoadState.LOADED;
+        historyButton.active = loadState == LoadState.LOADED;
+        updateFindBar();
+        if (results == null) {
+            return;
+        }
+        int y = editBox.getY();
+        for (NoteSearchResult result : results) {
+            int line = result.lines().isEmpty() ? 0 : result.lines().getFirst();
+            Text label = Text.translatable("fullbright.note.search.result", result.note().title(), line + 1);
+            resultButtons.add(this.addDrawableChild(ButtonWidget.builder(label, button -> openResult(result.note(), line))
+                    .dimensions(editBox.getX(), y, editBox.getWidth(), 20)
+                    .build()));
+            y += 24;
+        }
+    }
+
+    /**
+     * Shows the find bar, taking its rows from the bottom of the EditBox.
+     *
+     * @param mode Which rows to show
+     */
+    private void openFind(FindMode mode) {
+        findMode = mode;
+        updateFindBar();
+        setFocused(findField);
+    }
+
+    /**
+     * Hides the find bar and its highlights, and gives the focus back to the EditBox.
+     */
+    private void closeFind() {
+        findMode = FindMode.HIDDEN;
+        updateFindBar();
+        setFocused(editBox);
+    }
+
+    /**
+     * Lays out the rows of the find bar for the current mode, below the EditBox, and shows or hides them.
+     * The find bar is hidden along with the EditBox while search results are displayed.
+     */
+    private void updateFindBar() {
+        boolean find = findMode != FindMode.HIDDEN && editBox.visible;
+        boolean replace = findMode == FindMode.REPLACE && editBox.visible;
+        editBox.setHeight(EDIT_BOX_HEIGHT - findMode.rows * FIND_ROW_HEIGHT);
+        int y = editBox.getY() + editBox.getHeight() + 2;
+        findField.setVisible(find);
+        findField.setY(y);
+        findNextButton.visible = find;
+        findNextButton.setY(y);
+        regexButton.visible = find;
+        regexButton.setY(y);
+        replaceField.setVisible(replace);
+        replaceField.setY(y + FIND_ROW_HEIGHT);
+        replaceButton.visible = replace;
+        replaceButton.setY(y + FIND_ROW_HEIGHT);
+        replaceAllButton.visible = replace;
+        replaceAllButton.setY(y + FIND_ROW_HEIGHT);
+        updateFindPattern();
+    }
+
+    /**
+     * Hands the query of the find field to the EditBox, which highlights its matches.
+     * An invalid regular expression is shown in red and highlights nothing.
+     */
+    private void updateFindPattern() {
+        String query = findField.getText();
+        TextPattern pattern = null;
+        findField.setEditableColor(VALID_COLOR);
+        if (findMode != FindMode.HIDDEN && !query.isEmpty()) {
+            try {
+                pattern = findRegex ? TextPattern.regex(query) : TextPattern.literal(query);
+            } catch (PatternSyntaxException e) {
+                findField.setEditableColor(INVALID_COLOR);
+            }
+        }
+        editBox.setFindPattern(pattern);
+    }
+
+    /**
+     * Switches the find query between a plain string and a regular expression.
+     */
+    private void toggleRegex() {
+        findRegex = !findRegex;
+        regexButton.setMessage(getRegexLabel());
+        updateFindPattern();
+    }
+
+    /**
+     * Gets the label of the regular expression toggle.
+     *
+     * @return The label, showing whether the query is a regular expression
+     */
+    private Text getRegexLabel() {
+        return Text.translatable("fullbright.button.regex", Text.translatable(findRegex ? "fullbright.button.on" : "fullbright.button.off"));
+    }
+
+    /**
+     * Opens a search result, asking first if unsaved edits of this note would be lost.
+     *
+     * @param target The note of the result
+     * @param line The 0-based line of the result
+     */
+    private void openResult(NoteEntry target, int line) {
+        if (target.id().equals(note.id()) && loadState == LoadState.LOADED) {
+            showResults(null);
+            editBox.setCursor(line, 0);
+            setFocused(editBox);
+            return;
+        }
+        if (unsavedEdits.isEmpty()) {
+            this.client.setScreen(new SimpleTextEditorScreen(parent, target, line));
+            return;
+        }
+        this.client.setScreen(new ConfirmScreen(confirmed -> {
+            if (confirmed) {
+                discardSwap();
+                this.client.setScreen(new SimpleTextEditorScreen(parent, target, line));
+            } else {
+                this.client.setScreen(this);
+            }
+        },
+                Text.translatable("fullbright.note.discard.title"), Text.translatable("fullbright.note.discard.message", note.title())));
+    }
+
+    /**
+     * Returns to the parent screen.
+     */
+    @Override
+    public void close() {
+        this.client.setScreen(parent);
+    }
+
     /**
      * Handles key press events for the EditBox.
      *
@@ -84,7 +581,42 @@ public class SimpleTextEditorScreen extends Screen {
      */
     @Override
     public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
-        if (this.editBox.keyPressed(keyCode, scanCode, modifiers)) {
+        if (this.searchField.isFocused()) {
+            if (keyCode == GLFW.GLFW_KEY_ENTER || keyCode == GLFW.GLFW_KEY_KP_ENTER) {
+                search();
+                return true;
+            }
+            return super.keyPressed(keyCode, scanCode, modifiers);
+        }
+        if (this.searchResults != null && keyCode == GLFW.GLFW_KEY_ESCAPE) {
+            showResults(null); // Back to the note rather than closing the screen
+            return true;
+        }
+        if ((modifiers & GLFW.GLFW_MOD_CONTROL) != 0 && this.editBox.visible
+                && (keyCode == GLFW.GLFW_KEY_F || keyCode == GLFW.GLFW_KEY_H)) {
+            openFind(keyCode == GLFW.GLFW_KEY_H ? FindMode.REPLACE : FindMode.FIND);
+            return true;
+        }
+        if (this.findField.isFocused() || this.replaceField.isFocused()) {
+            if (keyCode == GLFW.GLFW_KEY_ENTER || keyCode == GLFW.GLFW_KEY_KP_ENTER) {
+                if (this.replaceField.isFocused()) {
+                    editBox.replaceMatch(replaceField.getText());
+                } else {
+                    editBox.findNext((modifiers & GLFW.GLFW_MOD_SHIFT) == 0); // Shift+Enter finds the previous match
+                }
+                return true;
+            }
+            if (keyCode == GLFW.GLFW_KEY_ESCAPE) {
+                closeFind();
+                return true;
+            }
+            return super.keyPressed(keyCode, scanCode, modifiers);
+        }
+        if (this.findMode != FindMode.HIDDEN && keyCode == GLFW.GLFW_KEY_ESCAPE) {
+            closeFind(); // Close the find bar rather than the screen
+            return true;
+        }
+        if (this.editBox.visible && this.editBox.keyPressed(keyCode, scanCode, modifiers)) {
             return true;
         }
         return super.keyPressed(keyCode, scanCode, modifiers);
@@ -99,7 +631,7 @@ public class SimpleTextEditorScreen extends Screen {
      */
     @Override
     public boolean charTyped(char chr, int modifiers) {
-        if (this.editBox.charTyped(chr, modifiers)) {
+        if (!this.searchField.isFocused() && !this.findField.isFocused() && !this.replaceField.isFocused() && this.editBox.visible && this.editBox.charTyped(chr, modifiers)) {
             return true;
         }
         return super.charTyped(chr, modifiers);
@@ -116,8 +648,15 @@ public class SimpleTextEditorScreen extends Screen {
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
         this.renderBackground(context, mouseX, mouseY, delta);
-        context.drawTextWithShadow(this.textRenderer, Text.translatable("fullbright.screen.text_editor.name"), this.width / 2 - 150, this.height / 2 - 120, 0xFFFFFF);
+        context.drawTextWithShadow(this.textRenderer, Text.literal(note.title()), this.width / 2 - 150, this.height / 2 - 110, 0xFFFFFF);
         super.render(context, mouseX, mouseY, delta);
+        if (searchResults != null && searchResults.isEmpty()) {
+            context.drawCenteredTextWithShadow(this.textRenderer, Text.translatable("fullbright.note.search.empty"), this.width / 2, this.height / 2 - 20, 0xA0A0A0);
+        } else if (searchResults == null && loadState == LoadState.LOADING) {
+            context.drawCenteredTextWithShadow(this.textRenderer, Text.translatable("fullbright.note.loading"), this.width / 2, this.height / 2 - 20, 0xA0A0A0);
+        } else if (searchResults == null && loadState == LoadState.FAILED) {
+            context.drawCenteredTextWithShadow(this.textRenderer, Text.translatable("fullbright.note.open.error"), this.width / 2, this.height / 2 - 20, 0xFF5555);
+        }
     }
 
     /**
@@ -129,4 +668,63 @@ public class SimpleTextEditorScreen extends Screen {
     public boolean shouldPause() {
         return false;
     }
+
+    /**
+     * The progress of opening the note.
+     */
+    private enum LoadState {
+        LOADING,
+        LOADED,
+        FAILED
+    }
+
+    /**
+     * The rows of the find bar that are shown.
+     */
+    private enum FindMode {
+        HIDDEN(0),
+        FIND(1),
+        REPLACE(2);
+
+        /**
+         * Number of rows taken from the EditBox.
+         */
+        final int rows;
+
+        /**
+         * Constructs a new FindMode.
+         *
+         * @param rows The number of rows taken from the EditBox
+         */
+        FindMode(int rows) {
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * Records the edits made in the EditBox until they are saved.
+     */
+    private class EditRecorder implements EditBox.EditListener {
+        /**
+         * Records an edit for the note journal.
+         */
+        @Override
+        public void onEdit(int offset, int removedLength, String inserted) {
+            unsavedEdits.add(new NoteEdit(offset, removedLength, inserted));
+        }
+
+        /**
+         * Records the lines changed by an edit for the search index, folding it into the previous change when possible.
+         */
+        @Override
+        public void onLinesChanged(int line, int removedLines, List<String> lines) {
+            NoteLineChange change = new NoteLineChange(line, removedLines, List.copyOf(lines));
+            NoteLineChange merged = unsavedLineChanges.isEmpty() ? null : unsavedLineChanges.getLast().merge(change);
+            if (merged != null) {
+                unsavedLineChanges.set(unsavedLineChanges.size() - 1, merged);
+            } else {
+                unsavedLineChanges.add(change);
+            }
+        }
+    }
 }
@@ -0,0 +1,340 @@
+package fr.quentin.fullbright.text;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A document backed by a memory-mapped UTF-8 file, for notes too large to hold in memory.
+ * The file is scanned once to index where each line starts, then lines are decoded only when asked for,
+ * and only the most recently used ones are kept. Heap use follows the lines on screen and the edited lines,
+ * not the size of the file.
+ * <p>
+ * The file is never written: edits are kept as a list of pieces, each either a run of lines of the file
+ * or a list of edited lines.
+ */
+public final class MappedTextDocument implements TextDocument {
+    /**
+     * Number of decoded lines of the file kept in memory.
+     */
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * The mapped file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Byte offset of the start of each line of the file, followed by the size of the file plus one,
+     * as if the last line ended with a line break.
+     */
+    private final int[] byteStarts;
+
+    /**
+     * Character offset of the start of each line of the file, followed by the length of the file plus one.
+     */
+    private final int[] charStarts;
+
+    /**
+     * The pieces making up the document, in order.
+     */
+    private final List<Piece> pieces = new ArrayList<>();
+
+    /**
+     * Recently decoded lines of the file, keyed by line of the file, least recently used first.
+     */
+    private final Map<Integer, String> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Number of lines of the document.
+     */
+    private int lineCount;
+
+    /**
+     * Number of characters of the document, plus one for the virtual line break of the last line.
+     */
+    private int chars;
+
+    /**
+     * Constructs a new MappedTextDocument over a mapped file.
+     *
+     * @param buffer The contents of the file
+     * @param byteStarts The byte offset of each line, followed by the size plus one
+     * @param charStarts The character offset of each line, followed by the length plus one
+     */
+    private MappedTextDocument(ByteBuffer buffer, int[] byteStarts, int[] charStarts) {
+        this.buffer = buffer;
+        this.byteStarts = byteStarts;
+        this.charStarts = charStarts;
+        this.lineCount = byteStarts.length - 1;
+        this.chars = charStarts[lineCount];
+        pieces.add(new Piece(0, lineCount, null, chars));
+    }
+
+    /**
+     * Maps a file and indexes its lines.
+     *
+     * @param file The UTF-8 file to map, at most 2 GiB
+     * @return The document
+     * @throws IOException If the file cannot be mapped
+     */
+    public static MappedTextDocument map(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid once the channel is closed
+        }
+
+        // One pass over the bytes, counting characters as UTF-16 units, like String.length()
+        int size = buffer.limit();
+        int[] byteStarts = new int[1024];
+        int[] charStarts = new int[1024];
+        int lines = 1;
+        int charCount = 0;
+        for (int i = 0; i < size; i++) {
+            byte b = buffer.get(i);
+            if ((b & 0xC0) != 0x80) {
+                charCount += (b & 0xF8) == 0xF0 ? 2 : 1; // Four-byte sequences are surrogate pairs
+            }
+            if (b == '\n') {
+                if (lines == byteStarts.length) {
+                    byteStarts = Arrays.copyOf(byteStarts, lines * 2);
+                    charStarts = Arrays.copyOf(charStarts, lines * 2);
+                }
+                byteStarts[lines] = i + 1;
+                charStarts[lines] = charCount;
+                lines++;
+            }
+        }
+        byteStarts = Arrays.copyOf(byteStarts, lines + 1);
+        charStarts = Arrays.copyOf(charStarts, lines + 1);
+        byteStarts[lines] = size + 1;
+        charStarts[lines] = charCount + 1;
+        return new MappedTextDocument(buffer, byteStarts, charStarts);
+    }
+
+    /**
+     * Gets the contents of the mapped file, as they were when it was mapped.
+     *
+     * @return A read-only view of the file, independent of the position of other views
+     */
+    public ByteBuffer getContents() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the number of lines.
+     */
+    @Override
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Gets a line, decoding it from the file if it was not edited.
+     */
+    @Override
+    public String getLine(int line) {
+        int index = 0;
+        for (Piece piece : pieces) {
+            if (line < index + piece.lineCount()) {
+                return piece.edited() != null ? piece.edited().get(line - index) : getFileLine(piece.from() + line - index);
+            }
+            index += piece.lineCount();
+        }
+        throw new IndexOutOfBoundsException("Line " + line + " out of " + lineCount);
+    }
+
+    /**
+     * Gets the length, tracked on every replacement.
+     */
+    @Override
+    public int getLength() {
+        return chars - 1;
+    }
+
+    /**
+     * Sums the lengths of the pieces before a line, without decoding lines of the file.
+     */
+    @Override
+    public int getOffset(int line) {
+        int index = 0;
+        int offset = 0;
+        for (Piece piece : pieces) {
+            if (line < index + piece.lineCount()) {
+                int within = line - index;
+                if (piece.edited() != null) {
+                    for (int i = 0; i < within; i++) {
+                        offset += piece.edited().get(i).length() + 1;
+                    }
+                    return offset;
+                }
+                return offset + charStarts[piece.from() + within] - charStarts[piece.from()];
+            }
+            index += piece.lineCount();
+            offset += piece.chars();
+        }
+        return offset;
+    }
+
+    /**
+     * Replaces a range of lines with an edited piece, merged with the edited pieces around it.
+     */
+    @Override
+    public void replaceLines(int line, int removedLines, List<String> lines) {
+        int start = split(line);
+        int end = split(line + removedLines);
+        List<Piece> range = pieces.subList(start, end);
+        List<String> edited = new ArrayList<>(lines);
+        for (Piece piece : range) {
+            lineCount -= piece.lineCount();
+            chars -= piece.chars();
+        }
+        range.clear();
+
+        // Merge with the edited neighbours, so typing does not fragment the document
+        if (start > 0 && pieces.get(start - 1).edited() != null) {
+            Piece previous = pieces.remove(--start);
+            edited.addAll(0, previous.edited());
+            lineCount -= previous.lineCount();
+            chars -= previous.chars();
+        }
+        if (start < pieces.size() && pieces.get(start).edited() != null) {
+            Piece next = pieces.remove(start);
+            edited.addAll(next.edited());
+            lineCount -= next.lineCount();
+            chars -= next.chars();
+        }
+        Piece piece = Piece.edited(edited);
+        pieces.add(start, piece);
+        lineCount += piece.lineCount();
+        chars += piece.chars();
+    }
+
+    /**
+     * Checksums the runs of lines of the file straight from the mapping, without decoding them.
+     */
+    @Override
+    public long getChecksum() {
+        CRC32 crc = new CRC32();
+        boolean first = true;
+        for (Piece piece : pieces) {
+            if (piece.lineCount() == 0) {
+                continue;
+            }
+            if (!first) {
+                crc.update('\n');
+            }
+            first = false;
+            if (piece.edited() != null) {
+                for (int i = 0; i < piece.edited().size(); i++) {
+                    if (i > 0) {
+                        crc.update('\n');
+                    }
+                    crc.update(piece.edited().get(i).getBytes(StandardCharsets.UTF_8));
+                }
+            } else {
+                int start = byteStarts[piece.from()];
+                crc.update(buffer.slice(start, byteStarts[piece.to()] - 1 - start)); // Without the line break after the run
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Splits the piece containing a line, so a piece starts at that line.
+     *
+     * @param line The line, up to the number of lines
+     * @return The index of the piece starting at the line, or the number of pieces for the end of the document
+     */
+    private int split(int line) {
+        int index = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            Piece piece = pieces.get(i);
+            if (line == index) {
+                return i;
+            }
+            if (line < index + piece.lineCount()) {
+                int within = line - index;
+                Piece head;
+                Piece tail;
+                if (piece.edited() != null) {
+                    head = Piece.edited(new ArrayList<>(piece.edited().subList(0, within)));
+                    tail = Piece.edited(new ArrayList<>(piece.edited().subList(within, piece.lineCount())));
+                } else {
+                    int middle = piece.from() + within;
+                    head = new Piece(piece.from(), middle, null, charStarts[middle] - charStarts[piece.from()]);
+                    tail = new Piece(middle, piece.to(), null, charStarts[piece.to()] - charStarts[middle]);
+                }
+                pieces.set(i, head);
+                pieces.add(i + 1, tail);
+                return i + 1;
+            }
+            index += piece.lineCount();
+        }
+        return pieces.size();
+    }
+
+    /**
+     * Decodes a line of the file, or gets it from the cache.
+     *
+     * @param line The line of the file
+     * @return The decoded line
+     */
+    private String getFileLine(int line) {
+        String cached = cache.get(line);
+        if (cached == null) {
+            int start = byteStarts[line];
+            int length = byteStarts[line + 1] - 1 - start;
+            cached = StandardCharsets.UTF_8.decode(buffer.slice(start, length)).toString();
+            cache.put(line, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * A run of lines of the document.
+     *
+     * @param from The first line of the file, when not edited
+     * @param to The line of the file after the last one, when not edited
+     * @param edited The edited lines, or null for lines of the file
+     * @param chars The number of characters of the lines, counting a line break after each
+     */
+    private record Piece(int from, int to, List<String> edited, int chars) {
+        /**
+         * Creates a piece of edited lines.
+         *
+         * @param lines The lines
+         * @return The piece
+         */
+        static Piece edited(List<String> lines) {
+            int chars = 0;
+            for (String line : lines) {
+                chars += line.length() + 1;
+            }
+            return new Piece(0, 0, lines, chars);
+        }
+
+        /**
+         * Gets the number of lines of the piece.
+         *
+         * @return The number of lines
+         */
+        int lineCount() {
+            return edited != null ? edited.size() : to - from;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package fr.quentin.fullbright.text;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A document holding every line in memory as a rope, for notes of ordinary size.
+ * The lines are the nodes of a balanced tree (a treap keyed by position), each node counting the lines
+ * and characters below it, so finding a line, its offset or the line at an offset descends the tree once
+ * instead of walking every line before it. Replacing lines touches only the path to them, where a list
+ * would shift every following line.
+ */
+public final class RopeDocument implements TextDocument {
+    /**
+     * The root of the tree, never null since a document has at least one line.
+     */
+    private Node root;
+
+    /**
+     * Constructs a new RopeDocument.
+     *
+     * @param text The initial text, split at line breaks
+     */
+    public RopeDocument(String text) {
+        root = build(text.split("\n", -1)); // Keep trailing empty lines, so getText returns the same text
+    }
+
+    /**
+     * Gets the number of lines, counted at the root.
+     */
+    @Override
+    public int getLineCount() {
+        return root.lines;
+    }
+
+    /**
+     * Gets a line by descending the tree.
+     */
+    @Override
+    public String getLine(int line) {
+        return find(line).line;
+    }
+
+    /**
+     * Gets the length, counted at the root.
+     */
+    @Override
+    public int getLength() {
+        return root.chars - 1; // No line break after the last line
+    }
+
+    /**
+     * Sums the characters left of the path to a line.
+     */
+    @Override
+    public int getOffset(int line) {
+        if (line >= root.lines) {
+            return root.chars; // Past the last line, as if it ended with a line break
+        }
+        int offset = 0;
+        Node node = root;
+        while (true) {
+            int left = count(node.left);
+            if (line < left) {
+                node = node.left;
+            } else {
+                offset += chars(node.left);
+                if (line == left) {
+                    return offset;
+                }
+                offset += node.line.length() + 1;
+                line -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Replaces a range of lines. Lines replaced one for one, as when typing in a line, are updated in place;
+     * otherwise the range is split out of the tree and the new lines are merged in.
+     */
+    @Override
+    public void replaceLines(int line, int removedLines, List<String> lines) {
+        if (removedLines == lines.size()) {
+            for (int i = 0; i < removedLines; i++) {
+                set(line + i, lines.get(i));
+            }
+            return;
+        }
+        Node[] head = split(root, line);
+        Node[] tail = split(head[1], removedLines);
+        root = merge(merge(head[0], build(lines.toArray(String[]::new))), tail[1]);
+    }
+
+    /**
+     * Copies the lines in order into a single buffer of the final size.
+     */
+    @Override
+    public String getText() {
+        StringBuilder text = new StringBuilder(getLength());
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        boolean first = true;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            if (!first) {
+                text.append('\n');
+            }
+            first = false;
+            text.append(node.line);
+            node = node.right;
+        }
+        return text.toString();
+    }
+
+    /**
+     * Finds the node of a line.
+     *
+     * @param line The 0-based index of the line
+     * @return The node holding the line
+     */
+    private Node find(int line) {
+        if (line < 0 || line >= root.lines) {
+            throw new IndexOutOfBoundsException("Line " + line + " out of " + root.lines);
+        }
+        Node node = root;
+        while (true) {
+            int left = count(node.left);
+            if (line < left) {
+                node = node.left;
+            } else if (line == left) {
+                return node;
+            } else {
+                line -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Replaces the text of a line and updates the character counts on the path to it.
+     *
+     * @param line The 0-based index of the line
+     * @param text The new text of the line
+     */
+    private void set(int line, String text) {
+        int delta = text.length() - find(line).line.length();
+        Node node = root;
+        while (true) {
+            node.chars += delta;
+            int left = count(node.left);
+            if (line < left) {
+                node = node.left;
+            } else if (line == left) {
+                node.line = text;
+                return;
+            } else {
+                line -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Builds a balanced tree from lines in linear time.
+     * Priorities are drawn at random, sorted, and handed out level by level, so every parent outranks
+     * its children and later merges keep the tree balanced.
+     *
+     * @param lines The lines, at least 1
+     * @return The root of the tree
+     */
+    private static Node build(String[] lines) {
+        Node root = build(lines, 0, lines.length);
+        int[] priorities = ThreadLocalRandom.current().ints(lines.length).toArray();
+        Arrays.sort(priorities);
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        for (int i = priorities.length - 1; i >= 0; i--) {
+            Node node = queue.poll();
+            node.priority = priorities[i];
+            if (node.left != null) {
+                queue.add(node.left);
+            }
+            if (node.right != null) {
+                queue.add(node.right);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Builds a balanced tree from a range of lines, without priorities.
+     *
+     * @param lines The lines
+     * @param from The first line of the range
+     * @param to The line after the last one of the range
+     * @return The root of the tree, or null for an empty range
+     */
+    private static Node build(String[] lines, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node node = new Node(lines[middle]);
+        node.left = build(lines, from, middle);
+        node.right = build(lines, middle + 1, to);
+        node.update();
+        return node;
+    }
+
+    /**
+     * Splits a tree after a number of lines.
+     *
+     * @param node The root of the tree, or null
+     * @param lines The number of lines of the first part
+     * @return The roots of the first and second parts, either may be null
+     */
+    private static Node[] split(Node node, int lines) {
+        if (node == null) {
+            return new Node[2];
+        }
+        int left = count(node.left);
+        if (lines <= left) {
+            Node[] parts = split(node.left, lines);
+            node.left = parts[1];
+            node.update();
+            parts[1] = node;
+            return parts;
+        }
+        Node[] parts = split(node.right, lines - left - 1);
+        node.right = parts[0];
+        node.update();
+        parts[0] = node;
+        return parts;
+    }
+
+    /**
+     * Concatenates two trees, keeping the higher priority nodes on top.
+     *
+     * @param left The root of the first tree, or null
+     * @param right The root of the second tree, or null
+     * @return The root of the concatenation
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    /**
+     * Gets the number of lines of a tree.
+     *
+     * @param node The root of the tree, or null
+     * @return The number of lines
+     */
+    private static int count(Node node) {
+        return node != null ? node.lines : 0;
+    }
+
+    /**
+     * Gets the number of characters of a tree.
+     *
+     * @param node The root of the tree, or null
+     * @return The number of characters, counting a line break after each line
+     */
+    private static int chars(Node node) {
+        return node != null ? node.chars : 0;
+    }
+
+    /**
+     * A line of the document, and the root of the lines around it.
+     */
+    private static final class Node {
+        /**
+         * The text of the line.
+         */
+        String line;
+
+        /**
+         * Rank of the node in the heap order of the tree, assigned when the tree is built.
+         */
+        int priority;
+
+        /**
+         * The lines before and after this one in the subtree, or null.
+         */
+        Node left;
+        Node right;
+
+        /**
+         * Number of lines of the subtree.
+         */
+        int lines;
+
+        /**
+         * Number of characters of the subtree, counting a line break after each line.
+         */
+        int chars;
+
+        /**
+         * Constructs a new Node.
+         *
+         * @param line The text of the line
+         */
+        Node(String line) {
+            this.line = line;
+        }
+
+        /**
+         * Recomputes the counts from the children.
+         */
+        void update() {
+            lines = count(left) + 1 + count(right);
+            chars = chars(left) + line.length() + 1 + chars(right);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package fr.quentin.fullbright.text;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The text edited by an {@link fr.quentin.fullbright.widget.EditBox}, as a sequence of lines.
+ * Lines never contain line breaks, and a document always has at least one line.
+ * Implementations only need to materialize the lines that are asked for.
+ */
+public interface TextDocument {
+    /**
+     * Gets the number of lines.
+     *
+     * @return The number of lines, at least 1
+     */
+    int getLineCount();
+
+    /**
+     * Gets a line.
+     *
+     * @param line The 0-based index of the line
+     * @return The line, without its line break
+     */
+    String getLine(int line);
+
+    /**
+     * Gets the number of characters in the document.
+     *
+     * @return The length of the text, line breaks included
+     */
+    int getLength();
+
+    /**
+     * Gets the offset of the start of a line.
+     *
+     * @param line The 0-based index of the line
+     * @return The number of characters before the line, line breaks included
+     */
+    int getOffset(int line);
+
+    /**
+     * Replaces a range of lines.
+     *
+     * @param line The first line to replace
+     * @param removedLines The number of lines to replace, at least 1
+     * @param lines The lines to put in their place, at least 1
+     */
+    void replaceLines(int line, int removedLines, List<String> lines);
+
+    /**
+     * Gets the whole text. Materializes every line, so it is only meant for small documents and explicit copies.
+     *
+     * @return The lines joined with line breaks
+     */
+    default String getText() {
+        StringBuilder text = new StringBuilder(getLength());
+        for (int i = 0; i < getLineCount(); i++) {
+            if (i > 0) {
+                text.append('\n');
+            }
+            text.append(getLine(i));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Computes the CRC32 of the text encoded as UTF-8, which identifies a saved version of a note.
+     *
+     * @return The checksum of the lines joined with line breaks
+     */
+    default long getChecksum() {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < getLineCount(); i++) {
+            if (i > 0) {
+                crc.update('\n');
+            }
+            crc.update(getLine(i).getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,242 @@
+package fr.quentin.fullbright.text;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What find and replace looks for in the lines of a document: a plain string or a regular expression.
+ * Lines are searched one at a time, so matches never span a line break.
+ * <p>
+ * Plain strings are found with Boyer-Moore-Horspool, which skips ahead by up to the length of the query on
+ * each mismatch, instead of trying every position of the line.
+ */
+public abstract sealed class TextPattern {
+    /**
+     * Creates a pattern matching a plain string.
+     *
+     * @param query The string to find, not empty
+     * @return The pattern
+     */
+    public static TextPattern literal(String query) {
+        return new Literal(query);
+    }
+
+    /**
+     * Creates a pattern matching a regular expression. Empty matches are ignored.
+     *
+     * @param regex The regular expression
+     * @return The pattern
+     * @throws java.util.regex.PatternSyntaxException If the expression is not valid
+     */
+    public static TextPattern regex(String regex) {
+        return new Regex(Pattern.compile(regex));
+    }
+
+    /**
+     * Finds the first match in a line at or after a column.
+     *
+     * @param line  The line
+     * @param from  The column to search from
+     * @param match Receives the start and end of the match
+     * @return True if a match was found
+     */
+    public abstract boolean find(String line, int from, int[] match);
+
+    /**
+     * Finds every match in a line, without overlaps.
+     *
+     * @param line The line
+     * @return The start and end of each match, in pairs
+     */
+    public int[] findAll(String line) {
+        int[] matches = new int[0];
+        int[] match = new int[2];
+        int count = 0;
+        int from = 0;
+        while (find(line, from, match)) {
+            if (count == matches.length) {
+                matches = Arrays.copyOf(matches, Math.max(4, count * 2));
+            }
+            matches[count++] = match[0];
+            matches[count++] = match[1];
+            from = match[1];
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Gets the text replacing a match. Regular expressions expand group references such as {@code $1}.
+     *
+     * @param line        The line holding the match
+     * @param start       The start of the match
+     * @param replacement The replacement as entered
+     * @return The text to put in place of the match
+     */
+    public abstract String expand(String line, int start, String replacement);
+
+    /**
+     * Replaces every match of a line.
+     *
+     * @param line        The line
+     * @param replacement The replacement as entered
+     * @return The line with every match replaced
+     */
+    public abstract String replaceAll(String line, String replacement);
+
+    /**
+     * A plain string, found with Boyer-Moore-Horspool.
+     */
+    private static final class Literal extends TextPattern {
+        /**
+         * Number of buckets of the skip table. Characters are bucketed by their low byte;
+         * characters sharing a bucket share the smallest of their shifts, which only shortens skips.
+         */
+        private static final int BUCKETS = 256;
+
+        /**
+         * The string to find.
+         */
+        private final String query;
+
+        /**
+         * How far the query can move when the line character under its last character falls in a bucket.
+         */
+        private final int[] shifts = new int[BUCKETS];
+
+        /**
+         * Constructs a new Literal and builds its skip table.
+         *
+         * @param query The string to find, not empty
+         */
+        Literal(String query) {
+            this.query = query;
+            int last = query.length() - 1;
+            Arrays.fill(shifts, query.length());
+            for (int i = 0; i < last; i++) {
+                shifts[query.charAt(i) & (BUCKETS - 1)] = last - i; // Later characters give smaller shifts
+            }
+        }
+
+        /**
+         * Compares the query from its last character, and skips by the shift of the line character under it on a mismatch.
+         */
+        @Override
+        public boolean find(String line, int from, int[] match) {
+            int last = query.length() - 1;
+            int position = Math.max(0, from);
+            while (position + last < line.length()) {
+                int i = last;
+                while (line.charAt(position + i) == query.charAt(i)) {
+                    if (i == 0) {
+                        match[0] = position;
+                        match[1] = position + query.length();
+                        return true;
+                    }
+                    i--;
+                }
+                position += shifts[line.charAt(position + last) & (BUCKETS - 1)];
+            }
+            return false;
+        }
+
+        /**
+         * Uses the replacement as entered.
+         */
+        @Override
+        public String expand(String line, int start, String replacement) {
+            return replacement;
+        }
+
+        /**
+         * Copies the line between the matches into a single buffer.
+         */
+        @Override
+        public String replaceAll(String line, String replacement) {
+            int[] matches = findAll(line);
+            if (matches.length == 0) {
+                return line;
+            }
+            StringBuilder replaced = new StringBuilder(line.length() + (replacement.length() - query.length()) * (matches.length / 2));
+            int copied = 0;
+            for (int i = 0; i < matches.length; i += 2) {
+                replaced.append(line, copied, matches[i]).append(replacement);
+                copied = matches[i + 1];
+            }
+            return replaced.append(line, copied, line.length()).toString();
+        }
+    }
+
+    /**
+     * A regular expression, matched with {@link Pattern}.
+     */
+    private static final class Regex extends TextPattern {
+        /**
+         * The compiled expression.
+         */
+        private final Pattern pattern;
+
+        /**
+         * Constructs a new Regex.
+         *
+         * @param pattern The compiled expression
+         */
+        Regex(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        /**
+         * Finds the first match that is not empty.
+         */
+        @Override
+        public boolean find(String line, int from, int[] match) {
+            Matcher matcher = pattern.matcher(line);
+            int position = from;
+            while (position <= line.length() && matcher.find(position)) {
+                if (matcher.end() > matcher.start()) {
+                    match[0] = matcher.start();
+                    match[1] = matcher.end();
+                    return true;
+                }
+                position = matcher.end() + 1; // Step over an empty match
+            }
+            return false;
+        }
+
+        /**
+         * Expands the group references of the replacement against the match.
+         */
+        @Override
+        public String expand(String line, int start, String replacement) {
+            Matcher matcher = pattern.matcher(line);
+            if (!matcher.find(start) || matcher.start() != start) {
+                return replacement;
+            }
+            StringBuilder expanded = new StringBuilder();
+            matcher.appendReplacement(expanded, replacement); // Appends the line before the match, then the replacement
+            return expanded.substring(start);
+        }
+
+        /**
+         * Replaces every match that is not empty, expanding group references.
+         */
+        @Override
+        public String replaceAll(String line, String replacement) {
+            Matcher matcher = pattern.matcher(line);
+            StringBuilder replaced = new StringBuilder(line.length());
+            boolean found = false;
+            while (matcher.find()) {
+                if (matcher.end() == matcher.start()) {
+                    continue; // Empty matches are ignored, as when finding
+                }
+                matcher.appendReplacement(replaced, replacement);
+                found = true;
+            }
+            if (!found) {
+                return line;
+            }
+            matcher.appendTail(replaced);
+            return replaced.toString();
+        }
+    }
+}
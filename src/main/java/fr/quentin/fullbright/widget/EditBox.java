@@ -1,5 +1,9 @@
 package fr.quentin.fullbright.widget;
 
+import fr.quentin.fullbright.metrics.Metrics;
+import fr.quentin.fullbright.text.RopeDocument;
+import fr.quentin.fullbright.text.TextDocument;
+import fr.quentin.fullbright.text.TextPattern;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.narration.NarrationMessageBuilder;
@@ -9,7 +13,9 @@ import org.lwjgl.glfw.GLFW;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A custom editable text box widget for the Fullbright mod.
@@ -17,9 +23,9 @@ import java.util.List;
  */
 public class EditBox extends ClickableWidget {
     /**
-     * List of lines of text in the edit box.
+     * The text in the edit box, as lines.
      */
-    private final List<String> lines = new ArrayList<>();
+    private TextDocument document = new RopeDocument("");
 
     /**
      * Current cursor position (X coordinate).
@@ -32,20 +38,35 @@ public class EditBox extends ClickableWidget {
     private int cursorY = 0;
 
     /**
-     * Vertical scroll offset for the edit box.
+     * Vertical scroll offset for the edit box, in rows.
      */
     private int scrollOffset = 0;
 
     /**
-     * Maximum number of visible lines in the edit box.
+     * Height of a row of text, in pixels.
      */
-    private static final int MAX_VISIBLE_LINES = 10;
+    private static final int ROW_HEIGHT = 15;
 
     /**
      * Reference to the Minecraft client instance.
      */
     private final MinecraftClient client;
 
+    /**
+     * Cumulative glyph widths of the shown lines, for cursor positions and hit testing.
+     */
+    private final GlyphWidths glyphWidths;
+
+    /**
+     * Prepared text of the shown rows, drawn without parsing the lines again on every frame.
+     */
+    private final RowTextCache rowTexts = new RowTextCache();
+
+    /**
+     * The rows the lines are wrapped into, use {@link #layout()} to read it at the current width.
+     */
+    private final WrapLayout layout;
+
     /**
      * Flag indicating if the scrollbar is being dragged.
      */
@@ -91,6 +112,57 @@ public class EditBox extends ClickableWidget {
      */
     private static final long CURSOR_BLINK_RATE = 500;
 
+    /**
+     * Maximum number of characters in the edit box, or 0 for no limit.
+     */
+    private int maxLength = 0;
+
+    /**
+     * Listener notified of every edit, or null.
+     */
+    private EditListener editListener;
+
+    /**
+     * Default memory budget of the undo history, in bytes.
+     */
+    private static final long DEFAULT_UNDO_BUDGET = 4L * 1024 * 1024;
+
+    /**
+     * The undo and redo stacks.
+     */
+    private EditHistory history = new EditHistory(DEFAULT_UNDO_BUDGET);
+
+    /**
+     * Whether an edit is being undone or redone, so it is not recorded as a new edit.
+     */
+    private boolean reverting;
+
+    /**
+     * Number of lines above and below the visible rows whose matches are found ahead of scrolling.
+     */
+    private static final int MATCH_MARGIN = 5;
+
+    /**
+     * Number of lines whose matches are kept, more than the lines visible at once and their margin.
+     */
+    private static final int MATCH_CACHE_SIZE = 256;
+
+    /**
+     * The pattern whose matches are highlighted, or null.
+     */
+    private TextPattern findPattern;
+
+    /**
+     * Matches of recently shown lines, least recently used first, as start and end pairs.
+     * Keyed by the text of the line, so an edited line simply misses and only it is searched again.
+     */
+    private final Map<String, int[]> matches = new LinkedHashMap<>(MATCH_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            return size() > MATCH_CACHE_SIZE;
+        }
+    };
+
     /**
      * Constructs a new EditBox widget.
      *
@@ -102,7 +174,9 @@ public class EditBox extends ClickableWidget {
     public EditBox(int x, int y, int width, int height) {
         super(x, y, width, height, Text.of(""));
         this.client = MinecraftClient.getInstance();
-        lines.add(""); // Initialize with an empty line
+        this.glyphWidths = new GlyphWidths(client != null ? client.textRenderer.getTextHandler() : null); // No client in benchmarks
+        this.layout = new WrapLayout(glyphWidths);
+        this.layout.reset(document);
         this.cursorBlinkTime = System.currentTimeMillis();
     }
 
@@ -112,9 +186,22 @@ public class EditBox extends ClickableWidget {
      * @param text The text to set.
      */
     public void setText(String text) {
-        lines.clear();
-        Collections.addAll(lines, text.split("\n"));
-        if (lines.isEmpty()) lines.add("");
+        setDocument(new RopeDocument(text));
+    }
+
+    /**
+     * Sets the document edited in the edit box, such as a memory-mapped document for a large note.
+     * Like {@link #setText(String)}, this is not reported to the edit listener.
+     *
+     * @param document The document to edit.
+     */
+    public void setDocument(TextDocument document) {
+        this.document = document;
+        glyphWidths.clear();
+        rowTexts.clear();
+        matches.clear();
+        layout.reset(document);
+        history.clear();
         cursorX = 0;
         cursorY = 0;
         scrollOffset = 0;
@@ -127,7 +214,429 @@ public class EditBox extends ClickableWidget {
      * @return The text content.
      */
     public String getText() {
-        return String.join("\n", lines);
+        return document.getText();
+    }
+
+    /**
+     * Gets the document edited in the edit box, so it can be handed to another edit box without copying it.
+     *
+     * @return The document.
+     */
+    public TextDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Gets the undo history, so it can be handed to another edit box along with the document.
+     *
+     * @return The history.
+     */
+    public EditHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Sets the undo history, after {@link #setDocument(TextDocument)} when the document is handed over.
+     *
+     * @param history The history of the current document.
+     */
+    public void setHistory(EditHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Reverts the most recent edit, or run of keystrokes.
+     *
+     * @return True if an edit was undone.
+     */
+    public boolean undo() {
+        EditHistory.Edit edit = history.popUndo();
+        if (edit == null) {
+            return false;
+        }
+        history.pushRedo(revert(edit));
+        return true;
+    }
+
+    /**
+     * Reapplies the most recently undone edit.
+     *
+     * @return True if an edit was redone.
+     */
+    public boolean redo() {
+        EditHistory.Edit edit = history.popRedo();
+        if (edit == null) {
+            return false;
+        }
+        history.pushUndo(revert(edit));
+        return true;
+    }
+
+    /**
+     * Applies an entry of the history, as an edit reported to the listener but not recorded in the history.
+     *
+     * @param edit The entry to apply.
+     * @return The entry reverting it.
+     */
+    private EditHistory.Edit revert(EditHistory.Edit edit) {
+        int end = edit.offset() + edit.insertedLength();
+        int startLine = getLineAt(edit.offset());
+        int endLine = getLineAt(end);
+        int startColumn = edit.offset() - document.getOffset(startLine);
+        int endColumn = end - document.getOffset(endLine);
+        String inserted = getRangeText(startLine, startColumn, endLine, endColumn);
+        reverting = true;
+        try {
+            replace(startLine, startColumn, endLine, endColumn, edit.removed());
+        } finally {
+            reverting = false;
+        }
+        return new EditHistory.Edit(edit.offset(), inserted, edit.removed().length());
+    }
+
+    /**
+     * Sets the pattern whose matches are highlighted and found by {@link #findNext(boolean)}.
+     *
+     * @param pattern The pattern, or null to stop highlighting.
+     */
+    public void setFindPattern(TextPattern pattern) {
+        this.findPattern = pattern;
+        matches.clear();
+    }
+
+    /**
+     * Selects the next or previous match of the find pattern, from the cursor, wrapping around the text.
+     * Only the lines up to the match are searched.
+     *
+     * @param forward True to find the next match, false the previous one.
+     * @return True if a match was selected, false if there is none.
+     */
+    public boolean findNext(boolean forward) {
+        if (findPattern == null) {
+            return false;
+        }
+        int lineCount = document.getLineCount();
+        int line = cursorY;
+        if (forward) {
+            int[] match = new int[2];
+            int from = cursorX; // The end of the selected match
+            for (int n = 0; n <= lineCount; n++) { // The cursor line twice, before and after wrapping
+                if (findPattern.find(document.getLine(line), from, match)) {
+                    selectRange(line, match[0], match[1]);
+                    return true;
+                }
+                line = (line + 1) % lineCount;
+                from = 0;
+            }
+        } else {
+            int before = hasSelection() && selectionStartLine == cursorY && selectionEndLine == cursorY
+                    ? Math.min(selectionStart, selectionEnd) : cursorX; // The start of the selected match
+            for (int n = 0; n <= lineCount; n++) {
+                int[] lineMatches = findPattern.findAll(document.getLine(line));
+                for (int k = lineMatches.length - 2; k >= 0; k -= 2) {
+                    if (lineMatches[k] < before) {
+                        selectRange(line, lineMatches[k], lineMatches[k + 1]);
+                        return true;
+                    }
+                }
+                line = (line - 1 + lineCount) % lineCount;
+                before = Integer.MAX_VALUE;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the selected match of the find pattern, then selects the next match.
+     * If the selection is not a match, only selects the next match, so the replacement is seen before it is made.
+     *
+     * @param replacement The replacement, with group references for a regular expression.
+     * @return True if a match is selected afterwards.
+     */
+    public boolean replaceMatch(String replacement) {
+        if (findPattern == null) {
+            return false;
+        }
+        if (hasSelection() && selectionStartLine == selectionEndLine) {
+            int start = Math.min(selectionStart, selectionEnd);
+            int end = Math.max(selectionStart, selectionEnd);
+            String line = document.getLine(selectionStartLine);
+            int[] match = new int[2];
+            if (findPattern.find(line, start, match) && match[0] == start && match[1] == end) {
+                replace(selectionStartLine, start, selectionStartLine, end, findPattern.expand(line, start, replacement));
+            }
+        }
+        return findNext(true);
+    }
+
+    /**
+     * Replaces every match of the find pattern.
+     * The lines from the first to the last match are rebuilt into one text and swapped in with a single edit,
+     * so the listener sees one operation and one undo reverts it, whatever the number of matches.
+     *
+     * @param replacement The replacement, with group references for a regular expression.
+     * @return The number of matches replaced.
+     */
+    public int replaceAll(String replacement) {
+        if (findPattern == null) {
+            return 0;
+        }
+        StringBuilder text = null;
+        int first = -1;
+        int last = -1;
+        int kept = 0;
+        int count = 0;
+        for (int i = 0; i < document.getLineCount(); i++) {
+            String line = document.getLine(i);
+            int[] lineMatches = findPattern.findAll(line);
+            if (lineMatches.length == 0) {
+                if (text != null) {
+                    text.append('\n').append(line);
+                }
+                continue;
+            }
+            if (text == null) {
+                text = new StringBuilder();
+                first = i;
+            } else {
+                text.append('\n');
+            }
+            text.append(findPattern.replaceAll(line, replacement));
+            last = i;
+            kept = text.length();
+            count += lineMatches.length / 2;
+        }
+        if (text == null) {
+            return 0;
+        }
+        text.setLength(kept); // Drop the lines after the last match
+        replace(first, 0, last, document.getLine(last).length(), text.toString());
+        return count;
+    }
+
+    /**
+     * Selects a range of a line, with the cursor at its end, and scrolls to show it.
+     *
+     * @param line  The line.
+     * @param start The column where the range starts.
+     * @param end   The column where the range ends.
+     */
+    private void selectRange(int line, int start, int end) {
+        selectionStartLine = line;
+        selectionEndLine = line;
+        selectionStart = start;
+        selectionEnd = end;
+        isSelecting = true;
+        cursorY = line;
+        cursorX = end;
+        history.seal();
+        adjustScroll();
+        resetCursorBlink();
+    }
+
+    /**
+     * Gets the matches of the find pattern in a line, searching it on a miss.
+     *
+     * @param line The line.
+     * @return The start and end of each match, in pairs.
+     */
+    private int[] getMatches(String line) {
+        int[] lineMatches = matches.get(line);
+        if (lineMatches == null) {
+            lineMatches = findPattern.findAll(line);
+            matches.put(line, lineMatches);
+        }
+        return lineMatches;
+    }
+
+    /**
+     * Moves the cursor and scrolls to show it, clearing the selection.
+     * The position is clamped to the text.
+     *
+     * @param line   The line to move to.
+     * @param column The column to move to.
+     */
+    public void setCursor(int line, int column) {
+        cursorY = Math.clamp(line, 0, document.getLineCount() - 1);
+        cursorX = Math.clamp(column, 0, document.getLine(cursorY).length());
+        clearSelection();
+        adjustScroll();
+        resetCursorBlink();
+    }
+
+    /**
+     * Replaces a range given as offsets in the text, as an edit reported to the listener.
+     * Used to replay recorded edits, such as the ones recovered from a swap file.
+     *
+     * @param offset        The offset where the range starts.
+     * @param removedLength The number of characters to remove.
+     * @param inserted      The text to insert at the offset.
+     * @return True if the edit was applied, false if the range is outside of the text.
+     */
+    public boolean applyEdit(int offset, int removedLength, String inserted) {
+        int end = offset + removedLength;
+        if (offset < 0 || removedLength < 0 || end > document.getLength()) {
+            return false;
+        }
+        int startLine = getLineAt(offset);
+        int endLine = getLineAt(end);
+        replace(startLine, offset - document.getOffset(startLine), endLine, end - document.getOffset(endLine), inserted);
+        return true;
+    }
+
+    /**
+     * Finds the line holding an offset, by binary search over the line offsets.
+     *
+     * @param offset The offset, at most the length of the text.
+     * @return The line whose range, line break included, holds the offset.
+     */
+    private int getLineAt(int offset) {
+        int low = 0;
+        int high = document.getLineCount() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (document.getOffset(middle) <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Removes all text, as an edit reported to the listener.
+     */
+    public void clear() {
+        int lastLine = document.getLineCount() - 1;
+        replace(0, 0, lastLine, document.getLine(lastLine).length(), "");
+    }
+
+    /**
+     * Gets the number of characters in the edit box.
+     *
+     * @return The length of the text, line breaks included
+     */
+    public int getLength() {
+        return document.getLength();
+    }
+
+    /**
+     * Sets the maximum number of characters in the edit box.
+     * Insertions going over the limit are truncated.
+     *
+     * @param maxLength The maximum length, or 0 for no limit
+     */
+    public void setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Sets the listener notified of every edit.
+     * {@link #setText(String)} replaces the document and is not reported.
+     *
+     * @param editListener The listener, or null
+     */
+    public void setEditListener(EditListener editListener) {
+        this.editListener = editListener;
+    }
+
+    /**
+     * Replaces a range of text and moves the cursor to the end of the inserted text.
+     *
+     * @param startLine   The line where the range starts.
+     * @param startColumn The column where the range starts.
+     * @param endLine     The line where the range ends, at or after the start.
+     * @param endColumn   The column where the range ends.
+     * @param text        The text to insert in place of the range, may contain line breaks.
+     */
+    private void replace(int startLine, int startColumn, int endLine, int endColumn, String text) {
+        replace(startLine, startColumn, endLine, endColumn, text, false);
+    }
+
+    /**
+     * Replaces a range of text and moves the cursor to the end of the inserted text.
+     * Every edit goes through this method, so the listener and the history see each change as one operation.
+     *
+     * @param startLine   The line where the range starts.
+     * @param startColumn The column where the range starts.
+     * @param endLine     The line where the range ends, at or after the start.
+     * @param endColumn   The column where the range ends.
+     * @param text        The text to insert in place of the range, may contain line breaks.
+     * @param typing      Whether the edit is a keystroke, merged in the history with the keystrokes before it.
+     */
+    private void replace(int startLine, int startColumn, int endLine, int endColumn, String text, boolean typing) {
+        int removed = getRangeLength(startLine, startColumn, endLine, endColumn);
+        int length = document.getLength();
+        if (maxLength > 0 && length - removed + text.length() > maxLength) {
+            text = text.substring(0, Math.max(0, maxLength - (length - removed))); // Truncate what does not fit
+        }
+        if (removed == 0 && text.isEmpty()) {
+            return;
+        }
+        boolean recorded = !reverting && history.isEnabled();
+        int offset = editListener != null || recorded ? getOffset(startLine, startColumn) : 0;
+        String removedText = recorded ? getRangeText(startLine, startColumn, endLine, endColumn) : null;
+
+        // Rebuild the edited lines, then swap them into the document
+        String first = document.getLine(startLine);
+        String last = document.getLine(endLine);
+        String prefix = first.substring(0, startColumn);
+        String suffix = last.substring(endColumn);
+        String[] inserted = text.split("\n", -1);
+        List<String> replacement = new ArrayList<>(inserted.length);
+        Collections.addAll(replacement, inserted);
+        replacement.set(0, prefix + inserted[0]);
+        replacement.set(inserted.length - 1, replacement.get(inserted.length - 1) + suffix);
+        document.replaceLines(startLine, endLine - startLine + 1, replacement);
+        layout.replaceLines(startLine, endLine - startLine + 1, replacement.size());
+        glyphWidths.invalidate(first);
+        glyphWidths.invalidate(last);
+        rowTexts.invalidate(first);
+        rowTexts.invalidate(last);
+        matches.remove(first);
+        matches.remove(last);
+
+        cursorY = startLine + inserted.length - 1;
+        cursorX = (inserted.length == 1 ? startColumn : 0) + inserted[inserted.length - 1].length();
+        clearSelection();
+        adjustScroll();
+        resetCursorBlink();
+
+        if (recorded) {
+            history.record(offset, removedText, text.length(), typing);
+        }
+        if (editListener != null) {
+            editListener.onEdit(offset, removed, text);
+            editListener.onLinesChanged(startLine, endLine - startLine + 1, Collections.unmodifiableList(replacement));
+        }
+    }
+
+    /**
+     * Gets the number of characters in a range, line breaks included.
+     *
+     * @param startLine   The line where the range starts.
+     * @param startColumn The column where the range starts.
+     * @param endLine     The line where the range ends.
+     * @param endColumn   The column where the range ends.
+     * @return The length of the range.
+     */
+    private int getRangeLength(int startLine, int startColumn, int endLine, int endColumn) {
+        if (startLine == endLine) {
+            return endColumn - startColumn;
+        }
+        return getOffset(endLine, endColumn) - getOffset(startLine, startColumn);
+    }
+
+    /**
+     * Converts a line and column into an offset in the text.
+     *
+     * @param line   The line.
+     * @param column The column in the line.
+     * @return The offset of the position, line breaks included.
+     */
+    private int getOffset(int line, int column) {
+        return document.getOffset(line) + column;
     }
 
     /**
@@ -149,20 +658,38 @@ public class EditBox extends ClickableWidget {
     private String getSelectedText() {
         if (!hasSelection()) return "";
 
-        StringBuilder selectedText = new StringBuilder();
-        int startLine = Math.min(selectionStartLine, selectionEndLine);
-        int endLine = Math.max(selectionStartLine, selectionEndLine);
+        // Order the selection ends, the selection may have been made backwards
+        boolean forward = selectionStartLine < selectionEndLine
+                || (selectionStartLine == selectionEndLine && selectionStart <= selectionEnd);
+        if (forward) {
+            return getRangeText(selectionStartLine, selectionStart, selectionEndLine, selectionEnd);
+        }
+        return getRangeText(selectionEndLine, selectionEnd, selectionStartLine, selectionStart);
+    }
 
+    /**
+     * Gets the text of a range.
+     *
+     * @param startLine   The line where the range starts.
+     * @param startColumn The column where the range starts.
+     * @param endLine     The line where the range ends, at or after the start.
+     * @param endColumn   The column where the range ends.
+     * @return The text of the range, with line breaks.
+     */
+    private String getRangeText(int startLine, int startColumn, int endLine, int endColumn) {
+        if (startLine == endLine) {
+            return document.getLine(startLine).substring(startColumn, endColumn);
+        }
+        StringBuilder text = new StringBuilder(getRangeLength(startLine, startColumn, endLine, endColumn));
         for (int i = startLine; i <= endLine; i++) {
-            String line = lines.get(i);
-            int start = (i == selectionStartLine) ? Math.min(selectionStart, selectionEnd) : 0;
-            int end = (i == selectionEndLine) ? Math.max(selectionStart, selectionEnd) : line.length();
+            String line = document.getLine(i);
+            int start = i == startLine ? startColumn : 0;
+            int end = i == endLine ? endColumn : line.length();
 
-            if (i > startLine) selectedText.append("\n");
-            selectedText.append(line, start, end);
+            if (i > startLine) text.append('\n');
+            text.append(line, start, end);
         }
-
-        return selectedText.toString();
+        return text.toString();
     }
 
     /**
@@ -186,11 +713,22 @@ public class EditBox extends ClickableWidget {
      */
     @Override
     public boolean mouseScrolled(double mouseX, double mouseY, double horizontalAmount, double verticalAmount) {
+        long start = Metrics.EDITOR_INPUT.start();
+        try {
+            return handleMouseScrolled(mouseX, mouseY, horizontalAmount, verticalAmount);
+        } finally {
+            Metrics.EDITOR_INPUT.stop(start);
+        }
+    }
+
+    /**
+     * Handles mouse scroll events, timed by {@link #mouseScrolled}.
+     */
+    private boolean handleMouseScrolled(double mouseX, double mouseY, double horizontalAmount, double verticalAmount) {
         if (mouseX >= this.getX() && mouseX <= this.getX() + this.width &&
                 mouseY >= this.getY() && mouseY <= this.getY() + this.height) {
             // Scroll up (amount > 0) or down (amount < 0)
-            int maxScrollOffset = Math.max(0, lines.size() - MAX_VISIBLE_LINES);
-            scrollOffset = (int) Math.max(0, Math.min(maxScrollOffset, scrollOffset - verticalAmount));
+            scrollOffset = (int) Math.max(0, Math.min(getMaxScroll(), scrollOffset - verticalAmount));
             return true;
         }
         return super.mouseScrolled(mouseX, mouseY, horizontalAmount, verticalAmount);
@@ -206,6 +744,18 @@ public class EditBox extends ClickableWidget {
      */
     @Override
     public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
+        long start = Metrics.EDITOR_INPUT.start();
+        try {
+            return handleKeyPressed(keyCode, scanCode, modifiers);
+        } finally {
+            Metrics.EDITOR_INPUT.stop(start);
+        }
+    }
+
+    /**
+     * Handles key press events, timed by {@link #keyPressed}.
+     */
+    private boolean handleKeyPressed(int keyCode, int scanCode, int modifiers) {
         boolean isControlDown = (modifiers & GLFW.GLFW_MOD_CONTROL) != 0;
 
         // Reset cursor blink timer on key press to make cursor visible
@@ -235,6 +785,11 @@ public class EditBox extends ClickableWidget {
             } else if (keyCode == GLFW.GLFW_KEY_A) {
                 selectAll();
                 return true;
+            } else if (keyCode == GLFW.GLFW_KEY_Z) {
+                // Ctrl+Shift+Z redoes, like Ctrl+Y
+                return (modifiers & GLFW.GLFW_MOD_SHIFT) != 0 ? redo() : undo();
+            } else if (keyCode == GLFW.GLFW_KEY_Y) {
+                return redo();
             }
         }
 
@@ -242,11 +797,7 @@ public class EditBox extends ClickableWidget {
             if (hasSelection()) {
                 deleteSelectedText();
             }
-            lines.add(cursorY + 1, "");
-            cursorY++;
-            cursorX = 0;
-            adjustScroll();
-            clearSelection();
+            replace(cursorY, cursorX, cursorY, cursorX, "\n");
             return true;
         } else if (keyCode == GLFW.GLFW_KEY_BACKSPACE) {
             if (hasSelection()) {
@@ -254,47 +805,46 @@ public class EditBox extends ClickableWidget {
                 return true;
             }
             if (cursorX > 0) {
-                lines.set(cursorY, lines.get(cursorY).substring(0, cursorX - 1) + lines.get(cursorY).substring(cursorX));
-                cursorX--;
+                replace(cursorY, cursorX - 1, cursorY, cursorX, "", true);
             } else if (cursorY > 0) {
-                String previousLine = lines.remove(cursorY);
-                cursorY--;
-                cursorX = lines.get(cursorY).length();
-                lines.set(cursorY, lines.get(cursorY) + previousLine);
+                replace(cursorY - 1, document.getLine(cursorY - 1).length(), cursorY, 0, "", true); // Join with the previous line
             }
-            adjustScroll();
             return true;
         } else if (keyCode == GLFW.GLFW_KEY_DELETE) {
             if (hasSelection()) {
                 deleteSelectedText();
                 return true;
             }
-            if (cursorX < lines.get(cursorY).length()) {
-                String currentLine = lines.get(cursorY);
-                lines.set(cursorY, currentLine.substring(0, cursorX) + currentLine.substring(cursorX + 1));
-            } else if (cursorY < lines.size() - 1) {
-                String nextLine = lines.remove(cursorY + 1);
-                lines.set(cursorY, lines.get(cursorY) + nextLine);
+            if (cursorX < document.getLine(cursorY).length()) {
+                replace(cursorY, cursorX, cursorY, cursorX + 1, "", true);
+            } else if (cursorY < document.getLineCount() - 1) {
+                replace(cursorY, cursorX, cursorY + 1, 0, "", true); // Join with the next line
             }
             return true;
         }
 
+        // Moving the cursor ends the current run of keystrokes in the undo history
+        if (keyCode == GLFW.GLFW_KEY_UP || keyCode == GLFW.GLFW_KEY_DOWN
+                || keyCode == GLFW.GLFW_KEY_LEFT || keyCode == GLFW.GLFW_KEY_RIGHT) {
+            history.seal();
+        }
+
         if ((modifiers & GLFW.GLFW_MOD_SHIFT) != 0) {
             if (keyCode == GLFW.GLFW_KEY_UP && cursorY > 0) {
                 if (!isSelecting) {
                     startSelection();
                 }
                 cursorY--;
-                cursorX = Math.min(cursorX, lines.get(cursorY).length());
+                cursorX = Math.min(cursorX, document.getLine(cursorY).length());
                 updateSelection();
                 adjustScroll();
                 return true;
-            } else if (keyCode == GLFW.GLFW_KEY_DOWN && cursorY < lines.size() - 1) {
+            } else if (keyCode == GLFW.GLFW_KEY_DOWN && cursorY < document.getLineCount() - 1) {
                 if (!isSelecting) {
                     startSelection();
                 }
                 cursorY++;
-                cursorX = Math.min(cursorX, lines.get(cursorY).length());
+                cursorX = Math.min(cursorX, document.getLine(cursorY).length());
                 updateSelection();
                 adjustScroll();
                 return true;
@@ -305,7 +855,7 @@ public class EditBox extends ClickableWidget {
                 cursorX--;
                 updateSelection();
                 return true;
-            } else if (keyCode == GLFW.GLFW_KEY_RIGHT && cursorX < lines.get(cursorY).length()) {
+            } else if (keyCode == GLFW.GLFW_KEY_RIGHT && cursorX < document.getLine(cursorY).length()) {
                 if (!isSelecting) {
                     startSelection();
                 }
@@ -317,18 +867,18 @@ public class EditBox extends ClickableWidget {
             clearSelection();
             if (keyCode == GLFW.GLFW_KEY_UP && cursorY > 0) {
                 cursorY--;
-                cursorX = Math.min(cursorX, lines.get(cursorY).length());
+                cursorX = Math.min(cursorX, document.getLine(cursorY).length());
                 adjustScroll();
                 return true;
-            } else if (keyCode == GLFW.GLFW_KEY_DOWN && cursorY < lines.size() - 1) {
+            } else if (keyCode == GLFW.GLFW_KEY_DOWN && cursorY < document.getLineCount() - 1) {
                 cursorY++;
-                cursorX = Math.min(cursorX, lines.get(cursorY).length());
+                cursorX = Math.min(cursorX, document.getLine(cursorY).length());
                 adjustScroll();
                 return true;
             } else if (keyCode == GLFW.GLFW_KEY_LEFT && cursorX > 0) {
                 cursorX--;
                 return true;
-            } else if (keyCode == GLFW.GLFW_KEY_RIGHT && cursorX < lines.get(cursorY).length()) {
+            } else if (keyCode == GLFW.GLFW_KEY_RIGHT && cursorX < document.getLine(cursorY).length()) {
                 cursorX++;
                 return true;
             }
@@ -350,28 +900,14 @@ public class EditBox extends ClickableWidget {
     private void deleteSelectedText() {
         if (!hasSelection()) return;
 
-        int startLine = Math.min(selectionStartLine, selectionEndLine);
-        int endLine = Math.max(selectionStartLine, selectionEndLine);
-        int startX = Math.min(selectionStart, selectionEnd);
-        int endX = Math.max(selectionStart, selectionEnd);
-
-        if (startLine == endLine) {
-            String line = lines.get(startLine);
-            lines.set(startLine, line.substring(0, startX) + line.substring(endX));
+        // Order the selection ends, the selection may have been made backwards
+        boolean forward = selectionStartLine < selectionEndLine
+                || (selectionStartLine == selectionEndLine && selectionStart <= selectionEnd);
+        if (forward) {
+            replace(selectionStartLine, selectionStart, selectionEndLine, selectionEnd, "");
         } else {
-            String firstLine = lines.get(startLine);
-            String lastLine = lines.get(endLine);
-            String newLine = firstLine.substring(0, startX) + lastLine.substring(endX);
-            lines.set(startLine, newLine);
-
-            if (endLine >= startLine + 1) {
-                lines.subList(startLine + 1, endLine + 1).clear();
-            }
+            replace(selectionEndLine, selectionEnd, selectionStartLine, selectionStart, "");
         }
-
-        cursorX = startX;
-        cursorY = startLine;
-        clearSelection();
     }
 
     /**
@@ -379,30 +915,8 @@ public class EditBox extends ClickableWidget {
      *
      * @param text The text to insert.
      */
-    private void insertText(String text) {
-        String[] newLines = text.split("\n");
-        String currentLine = lines.get(cursorY);
-        if (newLines.length == 1) {
-            lines.set(cursorY, currentLine.substring(0, cursorX) + text + currentLine.substring(cursorX));
-            cursorX += text.length();
-        } else {
-            String firstNewLine = newLines[0];
-            String lastNewLine = newLines[newLines.length - 1];
-
-            lines.set(cursorY, currentLine.substring(0, cursorX) + firstNewLine);
-
-            for (int i = 1; i < newLines.length - 1; i++) {
-                lines.add(cursorY + i, newLines[i]);
-            }
-
-            lines.add(cursorY + newLines.length - 1,
-                    lastNewLine + currentLine.substring(cursorX));
-
-            cursorY += newLines.length - 1;
-            cursorX = lastNewLine.length();
-        }
-        adjustScroll();
-        resetCursorBlink();
+    public void insertText(String text) {
+        replace(cursorY, cursorX, cursorY, cursorX, text);
     }
 
     /**
@@ -410,11 +924,11 @@ public class EditBox extends ClickableWidget {
      */
     private void selectAll() {
         selectionStartLine = 0;
-        selectionEndLine = lines.size() - 1;
+        selectionEndLine = document.getLineCount() - 1;
         selectionStart = 0;
-        selectionEnd = lines.getLast().length();
-        cursorY = lines.size() - 1;
-        cursorX = lines.get(cursorY).length();
+        selectionEnd = document.getLine(document.getLineCount() - 1).length();
+        cursorY = document.getLineCount() - 1;
+        cursorX = document.getLine(cursorY).length();
         isSelecting = true;
     }
 
@@ -447,14 +961,23 @@ public class EditBox extends ClickableWidget {
      */
     @Override
     public boolean charTyped(char chr, int modifiers) {
+        long start = Metrics.EDITOR_INPUT.start();
+        try {
+            return handleCharTyped(chr, modifiers);
+        } finally {
+            Metrics.EDITOR_INPUT.stop(start);
+        }
+    }
+
+    /**
+     * Handles character typed events, timed by {@link #charTyped}.
+     */
+    private boolean handleCharTyped(char chr, int modifiers) {
         if (chr >= 32 && chr <= 126) {
             if (hasSelection()) {
                 deleteSelectedText();
             }
-            String currentLine = lines.get(cursorY);
-            lines.set(cursorY, currentLine.substring(0, cursorX) + chr + currentLine.substring(cursorX));
-            cursorX++;
-            resetCursorBlink();
+            replace(cursorY, cursorX, cursorY, cursorX, String.valueOf(chr), true);
             return true;
         }
         return false;
@@ -470,10 +993,23 @@ public class EditBox extends ClickableWidget {
      */
     @Override
     public boolean mouseClicked(double mouseX, double mouseY, int button) {
+        long start = Metrics.EDITOR_INPUT.start();
+        try {
+            return handleMouseClicked(mouseX, mouseY, button);
+        } finally {
+            Metrics.EDITOR_INPUT.stop(start);
+        }
+    }
+
+    /**
+     * Handles mouse click events, timed by {@link #mouseClicked}.
+     */
+    private boolean handleMouseClicked(double mouseX, double mouseY, int button) {
         int scrollbarWidth = 6;
         int scrollbarX = this.getX() + this.width - scrollbarWidth;
 
         resetCursorBlink();
+        history.seal();
 
         if (mouseX >= scrollbarX && mouseX <= scrollbarX + scrollbarWidth &&
                 mouseY >= this.getY() && mouseY <= this.getY() + this.height) {
@@ -482,7 +1018,7 @@ public class EditBox extends ClickableWidget {
 
             float availableScrollSpace = this.height;
             float relativeClickPosition = (float)(mouseY - this.getY()) / availableScrollSpace;
-            int maxScrollOffset = Math.max(0, lines.size() - MAX_VISIBLE_LINES);
+            int maxScrollOffset = getMaxScroll();
             scrollOffset = (int)(relativeClickPosition * maxScrollOffset);
 
             scrollOffset = Math.max(0, Math.min(scrollOffset, maxScrollOffset));
@@ -492,13 +1028,7 @@ public class EditBox extends ClickableWidget {
 
         if (mouseX >= this.getX() && mouseX <= this.getX() + this.width &&
                 mouseY >= this.getY() && mouseY <= this.getY() + this.height) {
-            int line = (int)((mouseY - this.getY()) / 15) + scrollOffset;
-            if (line >= 0 && line < lines.size()) {
-                int clickX = (int)(mouseX - this.getX() - 5);
-                String lineText = lines.get(line);
-                cursorX = getCharacterIndexAtPosition(clickX, lineText);
-                cursorY = line;
-
+            if (moveCursorTo(mouseX, mouseY)) {
                 long window = client.getWindow().getHandle();
                 if (GLFW.glfwGetKey(window, GLFW.GLFW_KEY_LEFT_SHIFT) == GLFW.GLFW_PRESS ||
                         GLFW.glfwGetKey(window, GLFW.GLFW_KEY_RIGHT_SHIFT) == GLFW.GLFW_PRESS) {
@@ -517,22 +1047,29 @@ public class EditBox extends ClickableWidget {
     }
 
     /**
-     * Gets the character index at a specific position in the text.
+     * Moves the cursor to the character under a position, in the row shown there.
      *
-     * @param x    The x-coordinate of the position.
-     * @param text The text to measure.
-     * @return The character index at the position.
+     * @param mouseX The x-coordinate of the position.
+     * @param mouseY The y-coordinate of the position.
+     * @return True if the cursor moved, false if there is no row at the position.
      */
-    private int getCharacterIndexAtPosition(int x, String text) {
-        int totalWidth = 0;
-        for (int i = 0; i < text.length(); i++) {
-            int charWidth = client.textRenderer.getWidth(String.valueOf(text.charAt(i)));
-            if (totalWidth + charWidth / 2 > x) {
-                return i;
-            }
-            totalWidth += charWidth;
+    private boolean moveCursorTo(double mouseX, double mouseY) {
+        WrapLayout layout = layout();
+        int row = (int)((mouseY - this.getY()) / ROW_HEIGHT) + scrollOffset;
+        if (row < 0 || row >= layout.getRowCount()) {
+            return false;
         }
-        return text.length();
+        int line = layout.getLineAtRow(row);
+        int[] rowStarts = layout.getRowStarts(line);
+        int rowInLine = Math.min(row - layout.getFirstRow(line), rowStarts.length - 1);
+        String lineText = document.getLine(line);
+
+        // Past the end of a wrapped row, stop before the first character of the next row
+        int rowEnd = rowInLine + 1 < rowStarts.length ? rowStarts[rowInLine + 1] - 1 : lineText.length();
+        int clickX = (int)(mouseX - this.getX() - 5);
+        cursorX = glyphWidths.getColumnAt(lineText, clickX, rowStarts[rowInLine], rowEnd);
+        cursorY = line;
+        return true;
     }
 
     /**
@@ -547,10 +1084,22 @@ public class EditBox extends ClickableWidget {
      */
     @Override
     public boolean mouseDragged(double mouseX, double mouseY, int button, double deltaX, double deltaY) {
+        long start = Metrics.EDITOR_INPUT.start();
+        try {
+            return handleMouseDragged(mouseX, mouseY, button, deltaX, deltaY);
+        } finally {
+            Metrics.EDITOR_INPUT.stop(start);
+        }
+    }
+
+    /**
+     * Handles mouse drag events, timed by {@link #mouseDragged}.
+     */
+    private boolean handleMouseDragged(double mouseX, double mouseY, int button, double deltaX, double deltaY) {
         if (isDraggingScrollbar) {
             float availableScrollSpace = this.height;
             float relativeClickPosition = (float)(mouseY - this.getY()) / availableScrollSpace;
-            int maxScrollOffset = Math.max(0, lines.size() - MAX_VISIBLE_LINES);
+            int maxScrollOffset = getMaxScroll();
             scrollOffset = (int)(relativeClickPosition * maxScrollOffset);
 
             scrollOffset = Math.max(0, Math.min(scrollOffset, maxScrollOffset));
@@ -558,13 +1107,7 @@ public class EditBox extends ClickableWidget {
             return true;
         } else if (mouseX >= this.getX() && mouseX <= this.getX() + this.width &&
                 mouseY >= this.getY() && mouseY <= this.getY() + this.height) {
-            int line = (int)((mouseY - this.getY()) / 15) + scrollOffset;
-            if (line >= 0 && line < lines.size()) {
-                int clickX = (int)(mouseX - this.getX() - 5);
-                String lineText = lines.get(line);
-                cursorX = getCharacterIndexAtPosition(clickX, lineText);
-                cursorY = line;
-
+            if (moveCursorTo(mouseX, mouseY)) {
                 if (!isSelecting) {
                     startSelection();
                 }
@@ -602,11 +1145,43 @@ public class EditBox extends ClickableWidget {
      * Adjusts the scroll offset to ensure the cursor is visible.
      */
     private void adjustScroll() {
-        if (cursorY < scrollOffset) {
-            scrollOffset = Math.max(0, cursorY);
-        } else if (cursorY >= scrollOffset + MAX_VISIBLE_LINES) {
-            scrollOffset = Math.min(lines.size() - MAX_VISIBLE_LINES, cursorY - MAX_VISIBLE_LINES + 1);
+        WrapLayout layout = layout();
+        int cursorRow = layout.getFirstRow(cursorY) + layout.getRowOf(cursorY, cursorX);
+        int visibleRows = getVisibleRows();
+        if (cursorRow < scrollOffset) {
+            scrollOffset = cursorRow;
+        } else if (cursorRow >= scrollOffset + visibleRows) {
+            scrollOffset = cursorRow - visibleRows + 1;
         }
+        scrollOffset = Math.max(0, Math.min(scrollOffset, getMaxScroll()));
+    }
+
+    /**
+     * Gets the layout of the rows, wrapped again first if the width or the fonts changed.
+     *
+     * @return The layout.
+     */
+    private WrapLayout layout() {
+        layout.sync(this.width - 15); // Left padding, scrollbar and a margin before it
+        return layout;
+    }
+
+    /**
+     * Gets the number of rows that fit in the edit box.
+     *
+     * @return The number of visible rows, at least 1.
+     */
+    private int getVisibleRows() {
+        return Math.max(1, this.height / ROW_HEIGHT);
+    }
+
+    /**
+     * Gets the largest scroll offset, showing the last row at the bottom.
+     *
+     * @return The largest scroll offset, in rows.
+     */
+    private int getMaxScroll() {
+        return Math.max(0, layout().getRowCount() - getVisibleRows());
     }
 
     /**
@@ -630,19 +1205,35 @@ public class EditBox extends ClickableWidget {
      */
     @Override
     protected void renderWidget(DrawContext context, int mouseX, int mouseY, float delta) {
+        long start = Metrics.EDITOR_RENDER.start();
+        try {
+            drawWidget(context);
+        } finally {
+            Metrics.EDITOR_RENDER.stop(start);
+        }
+    }
+
+    /**
+     * Draws the edit box, timed by {@link #renderWidget}.
+     *
+     * @param context The drawing context provided by the game.
+     */
+    private void drawWidget(DrawContext context) {
         // Update cursor blink state
         updateCursorBlink();
 
         context.fill(this.getX(), this.getY(), this.getX() + this.width, this.getY() + this.height, 0xFF222222);
 
         int scrollbarWidth = 6;
-        int totalLines = Math.max(1, lines.size());
+        WrapLayout layout = layout();
+        int visibleRows = getVisibleRows();
+        int totalRows = Math.max(1, layout.getRowCount());
 
-        float visibleRatio = (float) MAX_VISIBLE_LINES / totalLines;
+        float visibleRatio = (float) visibleRows / totalRows;
         int scrollbarHeight = Math.max(20, (int) (visibleRatio * this.height));
         scrollbarHeight = Math.min(scrollbarHeight, this.height);
 
-        int maxScroll = Math.max(0, totalLines - MAX_VISIBLE_LINES);
+        int maxScroll = Math.max(0, totalRows - visibleRows);
         float scrollFraction = maxScroll > 0 ? (float) scrollOffset / maxScroll : 0;
         int scrollbarY = this.getY() + (int) (scrollFraction * (this.height - scrollbarHeight));
         int scrollbarX = this.getX() + this.width - scrollbarWidth;
@@ -651,39 +1242,106 @@ public class EditBox extends ClickableWidget {
 
         context.fill(scrollbarX, scrollbarY, scrollbarX + scrollbarWidth, scrollbarY + scrollbarHeight, 0xFFAAAAAA);
 
-        int y = this.getY() + 5;
-        for (int i = scrollOffset; i < Math.min(lines.size(), scrollOffset + MAX_VISIBLE_LINES); i++) {
-            String line = lines.get(i);
-            int lineX = this.getX() + 5;
+        // Order the selection ends, the selection may have been made backwards
+        boolean selection = hasSelection();
+        boolean forward = selectionStartLine < selectionEndLine
+                || (selectionStartLine == selectionEndLine && selectionStart <= selectionEnd);
+        int selStartLine = forward ? selectionStartLine : selectionEndLine;
+        int selStartColumn = forward ? selectionStart : selectionEnd;
+        int selEndLine = forward ? selectionEndLine : selectionStartLine;
+        int selEndColumn = forward ? selectionEnd : selectionStart;
 
-            if (hasSelection() && i >= Math.min(selectionStartLine, selectionEndLine) &&
-                    i <= Math.max(selectionStartLine, selectionEndLine)) {
-
-                int selStart = (i == selectionStartLine) ? selectionStart : 0;
-                int selEnd = (i == selectionEndLine) ? selectionEnd : line.length();
+        // Walk the visible rows, from the line holding the first one
+        int y = this.getY() + 5;
+        int lineX = this.getX() + 5;
+        int i = layout.getLineAtRow(scrollOffset);
+        int rowInLine = scrollOffset - layout.getFirstRow(i);
+        for (int row = 0; row < visibleRows && i < document.getLineCount(); row++) {
+            String line = document.getLine(i);
+            int[] rowStarts = layout.getRowStarts(i);
+            rowInLine = Math.min(rowInLine, rowStarts.length - 1);
+            int rowStart = rowStarts[rowInLine];
+            int rowEnd = rowInLine + 1 < rowStarts.length ? rowStarts[rowInLine + 1] : line.length();
+
+            if (findPattern != null) {
+                int[] lineMatches = getMatches(line);
+                for (int k = 0; k < lineMatches.length && lineMatches[k] < rowEnd; k += 2) {
+                    int matchStart = Math.max(rowStart, lineMatches[k]);
+                    int matchEnd = Math.min(rowEnd, lineMatches[k + 1]);
+                    if (matchStart < matchEnd) {
+                        int startX = lineX + glyphWidths.getWidth(line, rowStart, matchStart);
+                        int endX = lineX + glyphWidths.getWidth(line, rowStart, matchEnd);
+                        context.fill(startX, y, endX, y + 12, 0x80AA8800);
+                    }
+                }
+            }
 
-                if (selectionStartLine > selectionEndLine ||
-                        (selectionStartLine == selectionEndLine && selectionStart > selectionEnd)) {
-                    int temp = selStart;
-                    selStart = selEnd;
-                    selEnd = temp;
+            if (selection && i >= selStartLine && i <= selEndLine) {
+                int selStart = Math.max(rowStart, i == selStartLine ? selStartColumn : 0);
+                int selEnd = Math.min(rowEnd, i == selEndLine ? selEndColumn : line.length());
+                if (selStart < selEnd) {
+                    int startX = lineX + glyphWidths.getWidth(line, rowStart, selStart);
+                    int endX = lineX + glyphWidths.getWidth(line, rowStart, selEnd);
+                    context.fill(startX, y, endX, y + 12, 0x80808080);
                 }
+            }
 
-                int startX = lineX + client.textRenderer.getWidth(line.substring(0, selStart));
-                int endX = lineX + client.textRenderer.getWidth(line.substring(0, selEnd));
+            context.drawTextWithShadow(this.client.textRenderer, rowTexts.get(line, rowStarts, rowInLine), lineX, y, 0xFFFFFF);
+            y += ROW_HEIGHT;
 
-                context.fill(startX, y, endX, y + 12, 0x80808080);
+            if (++rowInLine >= rowStarts.length) {
+                i++;
+                rowInLine = 0;
             }
+        }
 
-            context.drawTextWithShadow(this.client.textRenderer, line, lineX, y, 0xFFFFFF);
-            y += 15;
+        // Search the lines around the visible rows too, so scrolling a little does not search while drawing
+        if (findPattern != null) {
+            int firstLine = layout.getLineAtRow(scrollOffset);
+            int lastLine = Math.min(i, document.getLineCount() - 1);
+            for (int line = Math.max(0, firstLine - MATCH_MARGIN); line < firstLine; line++) {
+                getMatches(document.getLine(line));
+            }
+            for (int line = lastLine + 1; line <= Math.min(lastLine + MATCH_MARGIN, document.getLineCount() - 1); line++) {
+                getMatches(document.getLine(line));
+            }
         }
 
         // Draw cursor only if it should be visible according to blink state
-        if (isCursorVisible && cursorY >= scrollOffset && cursorY < scrollOffset + MAX_VISIBLE_LINES) {
-            int cursorPosY = this.getY() + 5 + (cursorY - scrollOffset) * 15;
-            int cursorPosX = this.getX() + 5 + this.client.textRenderer.getWidth(lines.get(cursorY).substring(0, cursorX));
-            context.fill(cursorPosX, cursorPosY, cursorPosX + 2, cursorPosY + 12, 0xFFFFAA00);
+        if (isCursorVisible) {
+            int cursorRowInLine = layout.getRowOf(cursorY, cursorX);
+            int cursorRow = layout.getFirstRow(cursorY) + cursorRowInLine;
+            if (cursorRow >= scrollOffset && cursorRow < scrollOffset + visibleRows) {
+                int cursorPosY = this.getY() + 5 + (cursorRow - scrollOffset) * ROW_HEIGHT;
+                int rowStart = layout.getRowStarts(cursorY)[cursorRowInLine];
+                int cursorPosX = lineX + glyphWidths.getWidth(document.getLine(cursorY), rowStart, cursorX);
+                context.fill(cursorPosX, cursorPosY, cursorPosX + 2, cursorPosY + 12, 0xFFFFAA00);
+            }
+        }
+    }
+
+    /**
+     * Receives the edits made in an edit box, as offsets in its text.
+     */
+    @FunctionalInterface
+    public interface EditListener {
+        /**
+         * Called after a range of text was replaced.
+         *
+         * @param offset        The offset where the edit starts.
+         * @param removedLength The number of characters removed at the offset.
+         * @param inserted      The text inserted at the offset, empty for a deletion.
+         */
+        void onEdit(int offset, int removedLength, String inserted);
+
+        /**
+         * Called after the same edit, with the lines it replaced.
+         *
+         * @param line         The first replaced line.
+         * @param removedLines The number of lines replaced.
+         * @param lines        The lines in place of the replaced lines.
+         */
+        default void onLinesChanged(int line, int removedLines, List<String> lines) {
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,333 @@
+package fr.quentin.fullbright.widget;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The undo and redo stacks of an edit box, bounded by a memory budget.
+ * <p>
+ * Each entry records how to revert one edit: the offset, the text the edit removed, and only the length of
+ * the text it inserted, which is still in the document. Undoing a paste therefore keeps nothing but its
+ * length, whatever its size. Consecutive keystrokes are merged into a single entry, so one undo reverts a run
+ * of typing rather than a character. The run being typed collects the deleted characters in buffers, and its
+ * entry is built once the run ends, so a long run of deletions is not copied on every keystroke.
+ * When the entries outgrow the budget, the oldest are dropped.
+ * <p>
+ * Handed from an edit box to its replacement when the screen is resized, like the document.
+ */
+public final class EditHistory {
+    /**
+     * Estimated size of an entry without its text, in bytes.
+     */
+    private static final int ENTRY_OVERHEAD = 48;
+
+    /**
+     * Entries reverting the edits, most recent first.
+     */
+    private final Deque<Edit> undo = new ArrayDeque<>();
+
+    /**
+     * Entries reapplying the undone edits, most recently undone first.
+     */
+    private final Deque<Edit> redo = new ArrayDeque<>();
+
+    /**
+     * The run of keystrokes still being typed, newer than every undo entry, or null.
+     */
+    private Run run;
+
+    /**
+     * Largest estimated size of both stacks, in bytes, or 0 to keep no history.
+     */
+    private long budget;
+
+    /**
+     * Estimated size of both stacks, in bytes.
+     */
+    private long size;
+
+    /**
+     * Constructs a new EditHistory.
+     *
+     * @param budget The largest estimated size of the history, in bytes, or 0 to keep no history
+     */
+    public EditHistory(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Sets the largest estimated size of the history, dropping the oldest entries that no longer fit.
+     *
+     * @param budget The size in bytes, or 0 to keep no history
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        trim();
+    }
+
+    /**
+     * Checks whether edits are recorded, so the removed text only needs to be read when it is.
+     *
+     * @return True if the budget allows any history
+     */
+    boolean isEnabled() {
+        return budget > 0;
+    }
+
+    /**
+     * Records an edit, merging a keystroke into the run of keystrokes before it.
+     * Recording an edit forgets the undone edits.
+     *
+     * @param offset         The offset where the edit starts.
+     * @param removed        The text the edit removed.
+     * @param insertedLength The length of the text the edit inserted.
+     * @param typing         Whether the edit is a keystroke that may extend the previous one.
+     */
+    void record(int offset, String removed, int insertedLength, boolean typing) {
+        if (!isEnabled()) {
+            return;
+        }
+        clear(redo);
+        if (typing && run != null && run.extend(offset, removed, insertedLength)) {
+            size += 2L * removed.length();
+        } else {
+            closeRun();
+            if (typing) {
+                run = new Run(offset, removed, insertedLength);
+                size += run.size();
+            } else {
+                push(undo, new Edit(offset, removed, insertedLength));
+            }
+        }
+        trim();
+    }
+
+    /**
+     * Ends the current run of keystrokes, so the next one starts a new entry.
+     */
+    void seal() {
+        closeRun();
+    }
+
+    /**
+     * Takes the entry reverting the most recent edit.
+     *
+     * @return The entry, or null if there is nothing to undo
+     */
+    Edit popUndo() {
+        closeRun(); // The run being typed is the most recent edit
+        return pop(undo);
+    }
+
+    /**
+     * Takes the entry reapplying the most recently undone edit.
+     *
+     * @return The entry, or null if there is nothing to redo
+     */
+    Edit popRedo() {
+        return pop(redo);
+    }
+
+    /**
+     * Records the entry reapplying an edit that was just undone.
+     *
+     * @param edit The entry
+     */
+    void pushRedo(Edit edit) {
+        push(redo, edit);
+        trim();
+    }
+
+    /**
+     * Records the entry reverting an edit that was just redone, keeping the other undone edits.
+     *
+     * @param edit The entry
+     */
+    void pushUndo(Edit edit) {
+        push(undo, edit);
+        trim();
+    }
+
+    /**
+     * Forgets every entry, when the document is replaced.
+     */
+    void clear() {
+        clear(undo);
+        clear(redo);
+        if (run != null) {
+            size -= run.size();
+            run = null;
+        }
+    }
+
+    /**
+     * Builds the entry of the run of keystrokes, if any, and pushes it on the undo stack.
+     * Its size was already counted while it was typed.
+     */
+    private void closeRun() {
+        if (run != null) {
+            undo.push(run.toEdit());
+            run = null;
+        }
+    }
+
+    /**
+     * Pushes an entry and counts its size.
+     *
+     * @param stack The stack
+     * @param edit  The entry
+     */
+    private void push(Deque<Edit> stack, Edit edit) {
+        stack.push(edit);
+        size += edit.size();
+    }
+
+    /**
+     * Pops an entry and uncounts its size.
+     *
+     * @param stack The stack
+     * @return The entry, or null if the stack is empty
+     */
+    private Edit pop(Deque<Edit> stack) {
+        Edit edit = stack.poll();
+        if (edit != null) {
+            size -= edit.size();
+        }
+        return edit;
+    }
+
+    /**
+     * Empties a stack and uncounts its entries.
+     *
+     * @param stack The stack
+     */
+    private void clear(Deque<Edit> stack) {
+        for (Edit edit : stack) {
+            size -= edit.size();
+        }
+        stack.clear();
+    }
+
+    /**
+     * Drops the oldest edits, then the furthest undone ones, until the history fits in the budget.
+     */
+    private void trim() {
+        while (size > budget && !undo.isEmpty()) {
+            size -= undo.removeLast().size();
+        }
+        if (size > budget && run != null) {
+            size -= run.size(); // A single run larger than the budget
+            run = null;
+        }
+        while (size > budget && !redo.isEmpty()) {
+            size -= redo.removeLast().size();
+        }
+    }
+
+    /**
+     * How to revert an edit: replace the inserted text, at the offset, with the removed text.
+     *
+     * @param offset         The offset where the edit starts.
+     * @param removed        The text the edit removed, to put back.
+     * @param insertedLength The length of the text the edit inserted, to take out.
+     */
+    record Edit(int offset, String removed, int insertedLength) {
+        /**
+         * Gets the estimated size of the entry.
+         *
+         * @return The size in bytes
+         */
+        long size() {
+            return ENTRY_OVERHEAD + 2L * removed.length();
+        }
+    }
+
+    /**
+     * A run of keystrokes being typed: characters inserted one after the other, or deleted backwards
+     * or forwards. Deleted characters are appended to buffers rather than prepended to a string.
+     */
+    private static final class Run {
+        /**
+         * The offset where the run starts, moving back with each backspace.
+         */
+        private int offset;
+
+        /**
+         * The length of the text inserted by the run.
+         */
+        private int insertedLength;
+
+        /**
+         * The characters removed by backspaces, the last removed first, so each backspace appends.
+         */
+        private final StringBuilder backward = new StringBuilder();
+
+        /**
+         * The characters removed by deletes, in order.
+         */
+        private final StringBuilder forward = new StringBuilder();
+
+        /**
+         * Constructs a new Run from its first keystroke.
+         *
+         * @param offset         The offset where the keystroke's edit starts.
+         * @param removed        The text the keystroke removed.
+         * @param insertedLength The length of the text the keystroke inserted.
+         */
+        Run(int offset, String removed, int insertedLength) {
+            this.offset = offset;
+            this.insertedLength = insertedLength;
+            forward.append(removed);
+        }
+
+        /**
+         * Extends the run with the next keystroke, if it continues the run.
+         *
+         * @param offset         The offset where the keystroke's edit starts.
+         * @param removed        The text the keystroke removed.
+         * @param insertedLength The length of the text the keystroke inserted.
+         * @return True if the keystroke was added, false if it starts a new run
+         */
+        boolean extend(int offset, String removed, int insertedLength) {
+            boolean removedNothing = backward.isEmpty() && forward.isEmpty();
+            if (removed.isEmpty() && removedNothing && offset == this.offset + this.insertedLength) {
+                this.insertedLength += insertedLength; // Typing on
+                return true;
+            }
+            if (insertedLength == 0 && this.insertedLength == 0) {
+                if (offset + removed.length() == this.offset) {
+                    for (int i = removed.length() - 1; i >= 0; i--) {
+                        backward.append(removed.charAt(i)); // Backspace
+                    }
+                    this.offset = offset;
+                    return true;
+                }
+                if (offset == this.offset) {
+                    forward.append(removed); // Delete
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Gets the estimated size of the entry the run builds.
+         *
+         * @return The size in bytes
+         */
+        long size() {
+            return ENTRY_OVERHEAD + 2L * (backward.length() + forward.length());
+        }
+
+        /**
+         * Builds the entry reverting the run.
+         *
+         * @return The entry
+         */
+        Edit toEdit() {
+            String removed = new StringBuilder(backward.length() + forward.length())
+                    .append(backward).reverse().append(forward).toString();
+            return new Edit(offset, removed, insertedLength);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package fr.quentin.fullbright.widget;
+
+import fr.quentin.fullbright.Fullbright;
+import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
+import net.fabricmc.fabric.api.resource.ResourceReloadListenerKeys;
+import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
+import net.minecraft.client.font.TextHandler;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.Identifier;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the cumulative glyph widths of the lines shown in an edit box, so the pixel position of a column
+ * is an array lookup and the column under the mouse is a binary search, without measuring substrings.
+ * <p>
+ * Entries are keyed by the text of the line, so an edited line simply misses and is measured again.
+ * Widths depend on the loaded fonts, every cache is dropped when the resources are reloaded.
+ */
+public final class GlyphWidths {
+    /**
+     * Number of lines whose widths are kept, more than the lines visible at once.
+     */
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Width given to every glyph without a running client, such as in benchmarks.
+     */
+    private static final float DEFAULT_WIDTH = 6;
+
+    /**
+     * Width of each ASCII character, measured once per font reload.
+     * Notes are mostly ASCII, so most glyphs are measured once rather than once per line.
+     */
+    private static final float[] ASCII_WIDTHS = new float[128];
+
+    /**
+     * Incremented when the fonts are reloaded, to drop the widths measured with the previous fonts.
+     */
+    private static int generation = 1;
+
+    /**
+     * The generation the ASCII widths were measured with, 0 before they are measured.
+     */
+    private static int asciiGeneration;
+
+    /**
+     * The text handler measuring glyphs, or null without a running client.
+     */
+    private final TextHandler handler;
+
+    /**
+     * Cumulative widths of recently shown lines, least recently used first.
+     * The array of a line holds the width of its first {@code i} characters at index {@code i}.
+     */
+    private final Map<String, float[]> prefixes = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * The generation the cached lines were measured with.
+     */
+    private int prefixGeneration = generation;
+
+    /**
+     * Constructs a new GlyphWidths.
+     *
+     * @param handler The text handler measuring glyphs, or null to give every glyph the same width
+     */
+    GlyphWidths(TextHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Registers a reload listener running after the fonts are reloaded, which drops the widths of every edit box.
+     */
+    public static void register() {
+        ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES).registerReloadListener(new SimpleSynchronousResourceReloadListener() {
+            @Override
+            public Identifier getFabricId() {
+                return Identifier.of(Fullbright.MOD_ID, "glyph_widths");
+            }
+
+            @Override
+            public Collection<Identifier> getFabricDependencies() {
+                return List.of(ResourceReloadListenerKeys.FONTS);
+            }
+
+            @Override
+            public void reload(ResourceManager manager) {
+                generation++; // Checked on the next lookup, on the render thread like this listener
+            }
+        });
+    }
+
+    /**
+     * Gets the current font generation, so layouts built from the widths can tell when to rebuild.
+     *
+     * @return The generation, incremented on every font reload
+     */
+    static int generation() {
+        return generation;
+    }
+
+    /**
+     * Gets the width of the start of a line, rounded up like {@link net.minecraft.client.font.TextRenderer#getWidth(String)}.
+     *
+     * @param line The line
+     * @param column The number of characters to measure, at most the length of the line
+     * @return The width in pixels
+     */
+    int getWidth(String line, int column) {
+        return (int) Math.ceil(getPrefixes(line)[column]);
+    }
+
+    /**
+     * Gets the width of a range of a line, such as the start of a wrapped row, rounded up.
+     *
+     * @param line The line
+     * @param from The first column of the range
+     * @param to The column after the range
+     * @return The width in pixels
+     */
+    int getWidth(String line, int from, int to) {
+        float[] widths = getPrefixes(line);
+        return (int) Math.ceil(widths[to] - widths[from]);
+    }
+
+    /**
+     * Finds the column closest to a position in a range of a line, the first character whose middle is past the position.
+     *
+     * @param line The line
+     * @param x The position, in pixels from the start of the range
+     * @param from The first column of the range, such as the start of a wrapped row
+     * @param to The last column that may be returned
+     * @return The column, from {@code from} to {@code to}
+     */
+    int getColumnAt(String line, int x, int from, int to) {
+        float[] widths = getPrefixes(line);
+        float target = widths[from] + x;
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((widths[middle] + widths[middle + 1]) / 2 > target) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Forgets the widths of a line that was edited.
+     *
+     * @param line The text of the line before the edit
+     */
+    void invalidate(String line) {
+        prefixes.remove(line);
+    }
+
+    /**
+     * Forgets the widths of every line, when the whole document is replaced.
+     */
+    void clear() {
+        prefixes.clear();
+    }
+
+    /**
+     * Gets the cumulative widths of a line, measuring it on a miss.
+     *
+     * @param line The line
+     * @return The widths, with one more entry than the line has characters
+     */
+    float[] getPrefixes(String line) {
+        if (prefixGeneration != generation) {
+            prefixes.clear();
+            prefixGeneration = generation;
+        }
+        float[] widths = prefixes.get(line);
+        if (widths == null) {
+            widths = measure(line);
+            prefixes.put(line, widths);
+        }
+        return widths;
+    }
+
+    /**
+     * Measures the cumulative widths of a line, one glyph at a time.
+     * A surrogate pair is measured as one glyph, on its first character. A formatting code is not drawn,
+     * so its {@code §} and the character after it take no width, like in the text renderer.
+     *
+     * @param line The line
+     * @return The widths, with one more entry than the line has characters
+     */
+    private float[] measure(String line) {
+        if (asciiGeneration != generation) {
+            for (char c = 0; c < ASCII_WIDTHS.length; c++) {
+                ASCII_WIDTHS[c] = handler != null ? handler.getWidth(String.valueOf(c)) : DEFAULT_WIDTH;
+            }
+            asciiGeneration = generation;
+        }
+        float[] widths = new float[line.length() + 1];
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            float width;
+            if (c == Formatting.FORMATTING_CODE_PREFIX) {
+                width = 0;
+                if (i + 1 < line.length()) {
+                    widths[i + 1] = widths[i];
+                    i++; // The code character is not drawn either
+                }
+            } else if (c < ASCII_WIDTHS.length) {
+                width = ASCII_WIDTHS[c];
+            } else if (Character.isLowSurrogate(c) && i > 0 && Character.isHighSurrogate(line.charAt(i - 1))) {
+                width = 0; // Measured with the high surrogate
+            } else if (handler == null) {
+                width = DEFAULT_WIDTH;
+            } else {
+                width = handler.getWidth(Character.toString(line.codePointAt(i)));
+            }
+            widths[i + 1] = widths[i] + width;
+        }
+        return widths;
+    }
+}
@@ -0,0 +1,212 @@
+package fr.quentin.fullbright.widget;
+
+import net.minecraft.text.CharacterVisitor;
+import net.minecraft.text.OrderedText;
+import net.minecraft.text.Style;
+import net.minecraft.text.TextVisitFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the text drawn for each row of the lines shown in an edit box.
+ * Drawing a String parses its formatting codes and styles every glyph again on each frame; the rows are
+ * prepared once instead, as code points with runs of styles, and replayed as they are. Drawing an unchanged
+ * screen of text then allocates nothing.
+ * <p>
+ * Entries are keyed by the text of the line, so an edited line simply misses, and are dropped when the line
+ * is wrapped differently or the resources are reloaded.
+ */
+public final class RowTextCache {
+    /**
+     * Number of lines whose rows are kept, more than the lines visible at once.
+     */
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Prepared rows of recently shown lines, least recently used first.
+     */
+    private final Map<String, Entry> lines = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * The resource generation the rows were prepared with.
+     */
+    private int generation = GlyphWidths.generation();
+
+    /**
+     * Gets the text of a row of a line, preparing every row of the line on a miss.
+     *
+     * @param line      The line
+     * @param rowStarts The column where each row of the line starts, as laid out
+     * @param row       The row within the line
+     * @return The prepared text of the row
+     */
+    public OrderedText get(String line, int[] rowStarts, int row) {
+        if (generation != GlyphWidths.generation()) {
+            lines.clear();
+            generation = GlyphWidths.generation();
+        }
+        Entry entry = lines.get(line);
+        if (entry == null || entry.rowStarts() != rowStarts) {
+            entry = new Entry(rowStarts, prepare(line, rowStarts));
+            lines.put(line, entry);
+        }
+        return entry.rows()[row];
+    }
+
+    /**
+     * Forgets the rows of a line that was edited.
+     *
+     * @param line The text of the line before the edit
+     */
+    void invalidate(String line) {
+        lines.remove(line);
+    }
+
+    /**
+     * Forgets every line, when the whole document is replaced.
+     */
+    void clear() {
+        lines.clear();
+    }
+
+    /**
+     * Parses the formatting codes of a line once and splits it into rows.
+     * Styles carry over from one row to the next, as if the line was drawn in one piece.
+     *
+     * @param line      The line
+     * @param rowStarts The column where each row starts
+     * @return The text of each row
+     */
+    private static OrderedText[] prepare(String line, int[] rowStarts) {
+        StyledLine styled = new StyledLine(line.length());
+        TextVisitFactory.visitFormatted(line, Style.EMPTY, styled);
+        styled.finish();
+
+        OrderedText[] rows = new OrderedText[rowStarts.length];
+        int glyph = 0;
+        int run = 0;
+        for (int row = 0; row < rows.length; row++) {
+            int end = row + 1 < rowStarts.length ? rowStarts[row + 1] : line.length();
+            int from = glyph;
+            while (run < styled.runCount - 1 && styled.runEnds[run] <= from) {
+                run++;
+            }
+            while (glyph < styled.count && styled.indices[glyph] < end) {
+                glyph++;
+            }
+            rows[row] = new Row(styled, from, glyph, run, rowStarts[row]);
+        }
+        return rows;
+    }
+
+    /**
+     * The rows prepared for a line.
+     *
+     * @param rowStarts The layout the rows were split with
+     * @param rows      The text of each row
+     */
+    private record Entry(int[] rowStarts, OrderedText[] rows) {
+    }
+
+    /**
+     * The glyphs of a line with their styles, shared by its rows.
+     */
+    private static final class StyledLine implements CharacterVisitor {
+        /**
+         * Code point of each glyph, formatting codes excluded.
+         */
+        int[] codePoints;
+
+        /**
+         * Column of each glyph in the line.
+         */
+        int[] indices;
+
+        /**
+         * Number of glyphs.
+         */
+        int count;
+
+        /**
+         * Style of each run of glyphs, and the glyph after the end of each run.
+         */
+        Style[] runStyles = new Style[1];
+        int[] runEnds = new int[1];
+
+        /**
+         * Number of runs.
+         */
+        int runCount;
+
+        /**
+         * Constructs a new StyledLine.
+         *
+         * @param length The length of the line, an upper bound of its glyphs
+         */
+        StyledLine(int length) {
+            codePoints = new int[length];
+            indices = new int[length];
+        }
+
+        /**
+         * Records a glyph, starting a new run when its style changes.
+         */
+        @Override
+        public boolean accept(int index, Style style, int codePoint) {
+            if (runCount == 0 || !runStyles[runCount - 1].equals(style)) {
+                if (runCount == runStyles.length) {
+                    runStyles = Arrays.copyOf(runStyles, runCount * 2);
+                    runEnds = Arrays.copyOf(runEnds, runCount * 2);
+                }
+                runStyles[runCount++] = style;
+            }
+            codePoints[count] = codePoint;
+            indices[count] = index;
+            runEnds[runCount - 1] = ++count;
+            return true;
+        }
+
+        /**
+         * Trims the arrays to the glyphs found, formatting codes and surrogate pairs take less than their length.
+         */
+        void finish() {
+            codePoints = Arrays.copyOf(codePoints, count);
+            indices = Arrays.copyOf(indices, count);
+        }
+    }
+
+    /**
+     * A row of a line, replaying its glyphs without parsing or allocating.
+     *
+     * @param line   The glyphs of the line
+     * @param from   The first glyph of the row
+     * @param to     The glyph after the last one of the row
+     * @param run    The run of the first glyph of the row
+     * @param column The column where the row starts, so glyph indices are relative to the row
+     */
+    private record Row(StyledLine line, int from, int to, int run, int column) implements OrderedText {
+        /**
+         * Visits the glyphs of the row with their styles.
+         */
+        @Override
+        public boolean accept(CharacterVisitor visitor) {
+            int run = this.run;
+            for (int glyph = from; glyph < to; glyph++) {
+                while (line.runEnds[run] <= glyph) {
+                    run++;
+                }
+                if (!visitor.accept(line.indices[glyph] - column, line.runStyles[run], line.codePoints[glyph])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package fr.quentin.fullbright.widget;
+
+import fr.quentin.fullbright.text.TextDocument;
+
+import java.util.Arrays;
+
+/**
+ * Maps the lines of a document to the rows they are wrapped into, in an edit box of a given width.
+ * <p>
+ * A line is wrapped the first time it is needed, usually when it scrolls into view, and again only when it
+ * is edited or the width or fonts change. Until then it counts as a single row, so opening a large note does
+ * not measure every line. Row counts are kept in a Fenwick tree, so the first row of a line and the line at a
+ * row are both found in logarithmic time.
+ */
+final class WrapLayout {
+    /**
+     * The rows of a line that fits on a single row.
+     */
+    private static final int[] SINGLE_ROW = {0};
+
+    /**
+     * The widths used to wrap lines.
+     */
+    private final GlyphWidths glyphWidths;
+
+    /**
+     * The document being laid out.
+     */
+    private TextDocument document;
+
+    /**
+     * The width available to a row, in pixels.
+     */
+    private int width;
+
+    /**
+     * The font generation the lines were wrapped with.
+     */
+    private int generation;
+
+    /**
+     * The column where each row of each line starts, the first row starting at 0,
+     * or null for a line that was not wrapped yet.
+     */
+    private int[][] rowStarts = new int[16][];
+
+    /**
+     * Number of lines of the document.
+     */
+    private int lineCount;
+
+    /**
+     * Fenwick tree over the number of rows of each line, 1-based.
+     */
+    private int[] tree = new int[17];
+
+    /**
+     * Constructs a new WrapLayout.
+     *
+     * @param glyphWidths The widths used to wrap lines
+     */
+    WrapLayout(GlyphWidths glyphWidths) {
+        this.glyphWidths = glyphWidths;
+    }
+
+    /**
+     * Lays out a new document, without wrapping any line yet.
+     *
+     * @param document The document
+     */
+    void reset(TextDocument document) {
+        this.document = document;
+        lineCount = document.getLineCount();
+        if (rowStarts.length < lineCount) {
+            rowStarts = new int[lineCount][];
+        }
+        invalidateAll();
+    }
+
+    /**
+     * Wraps the lines again if the width or the fonts changed since they were wrapped.
+     *
+     * @param width The width available to a row, in pixels
+     */
+    void sync(int width) {
+        int current = GlyphWidths.generation();
+        if (width != this.width || current != generation) {
+            this.width = width;
+            this.generation = current;
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Updates the layout after the document replaced a range of lines. Only the new lines are wrapped again.
+     * Adding or removing lines rebuilds the row counts, a linear pass over plain integers.
+     *
+     * @param line         The first replaced line.
+     * @param removedLines The number of lines replaced.
+     * @param addedLines   The number of lines in their place.
+     */
+    void replaceLines(int line, int removedLines, int addedLines) {
+        if (removedLines == addedLines) {
+            for (int i = line; i < line + addedLines; i++) {
+                add(i, 1 - getRows(i));
+                rowStarts[i] = null;
+            }
+            return;
+        }
+        int newCount = lineCount - removedLines + addedLines;
+        if (rowStarts.length < newCount) {
+            rowStarts = Arrays.copyOf(rowStarts, Math.max(newCount, rowStarts.length * 2));
+        }
+        System.arraycopy(rowStarts, line + removedLines, rowStarts, line + addedLines, lineCount - line - removedLines);
+        Arrays.fill(rowStarts, line, line + addedLines, null);
+        if (newCount < lineCount) {
+            Arrays.fill(rowStarts, newCount, lineCount, null);
+        }
+        lineCount = newCount;
+        rebuild();
+    }
+
+    /**
+     * Gets the number of rows of the document, counting lines not wrapped yet as one row.
+     *
+     * @return The number of rows
+     */
+    int getRowCount() {
+        return sum(lineCount);
+    }
+
+    /**
+     * Gets the row where a line starts.
+     *
+     * @param line The line
+     * @return The row of the first row of the line
+     */
+    int getFirstRow(int line) {
+        return sum(line);
+    }
+
+    /**
+     * Finds the line shown at a row.
+     *
+     * @param row The row, clamped to the rows of the document
+     * @return The line
+     */
+    int getLineAtRow(int row) {
+        // Descend the tree for the last line starting at or before the row
+        int line = 0;
+        int remaining = Math.max(0, row);
+        for (int step = Integer.highestOneBit(lineCount); step > 0; step >>= 1) {
+            if (line + step <= lineCount && tree[line + step] <= remaining) {
+                line += step;
+                remaining -= tree[line];
+            }
+        }
+        return Math.min(line, lineCount - 1);
+    }
+
+    /**
+     * Gets the rows of a line, wrapping it if needed.
+     *
+     * @param line The line
+     * @return The column where each row starts, the first being 0
+     */
+    int[] getRowStarts(int line) {
+        int[] starts = rowStarts[line];
+        if (starts == null) {
+            starts = wrap(document.getLine(line));
+            rowStarts[line] = starts;
+            add(line, starts.length - 1);
+        }
+        return starts;
+    }
+
+    /**
+     * Finds the row of a line holding a column. A column where a row starts belongs to that row.
+     *
+     * @param line   The line
+     * @param column The column
+     * @return The row within the line, from 0
+     */
+    int getRowOf(int line, int column) {
+        int[] starts = getRowStarts(line);
+        int row = Arrays.binarySearch(starts, column);
+        return row >= 0 ? row : -row - 2;
+    }
+
+    /**
+     * Gets the number of rows of a line, 1 if it was not wrapped yet.
+     *
+     * @param line The line
+     * @return The number of rows
+     */
+    private int getRows(int line) {
+        int[] starts = rowStarts[line];
+        return starts != null ? starts.length : 1;
+    }
+
+    /**
+     * Wraps a line at the last space before the edge of the row, or at the edge for a word too long for a row.
+     * Spaces stay at the end of the row they follow.
+     *
+     * @param line The line
+     * @return The column where each row starts
+     */
+    private int[] wrap(String line) {
+        float[] widths = glyphWidths.getPrefixes(line);
+        if (widths[line.length()] <= width || width <= 0) {
+            return SINGLE_ROW;
+        }
+        int[] starts = new int[4];
+        int rows = 1;
+        int start = 0;
+        while (widths[line.length()] - widths[start] > width) {
+            // Last column whose width from the start of the row fits
+            int end = Arrays.binarySearch(widths, start + 1, line.length() + 1, widths[start] + width);
+            end = end >= 0 ? end : -end - 2;
+            while (end < line.length() && widths[end + 1] == widths[end]) {
+                end++; // Keep zero-width characters, such as the second half of a surrogate pair, on the row
+            }
+            end = Math.max(end, start + 1);
+            if (end < line.length() && line.charAt(end) != ' ') {
+                int space = line.lastIndexOf(' ', end - 1);
+                if (space > start) {
+                    end = space + 1; // Move the cut word to the next row
+                }
+            }
+            while (end < line.length() && line.charAt(end) == ' ') {
+                end++; // Spaces past the edge are not drawn, keep them on the row
+            }
+            if (end == line.length()) {
+                break;
+            }
+            if (rows == starts.length) {
+                starts = Arrays.copyOf(starts, rows * 2);
+            }
+            starts[rows++] = end;
+            start = end;
+        }
+        return Arrays.copyOf(starts, rows);
+    }
+
+    /**
+     * Forgets how every line was wrapped, and counts every line as a single row.
+     */
+    private void invalidateAll() {
+        Arrays.fill(rowStarts, 0, lineCount, null);
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the Fenwick tree from the row counts in linear time.
+     */
+    private void rebuild() {
+        if (tree.length < lineCount + 1) {
+            tree = new int[Math.max(lineCount + 1, tree.length * 2)];
+        }
+        for (int i = 1; i <= lineCount; i++) {
+            tree[i] = getRows(i - 1);
+        }
+        for (int i = 1; i <= lineCount; i++) {
+            int parent = i + (i & -i);
+            if (parent <= lineCount) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Adds to the row count of a line.
+     *
+     * @param line  The line
+     * @param delta The number of rows to add
+     */
+    private void add(int line, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        for (int i = line + 1; i <= lineCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sums the row counts of the lines before a line.
+     *
+     * @param line The line
+     * @return The number of rows before the line
+     */
+    private int sum(int line) {
+        int rows = 0;
+        for (int i = line; i > 0; i -= i & -i) {
+            rows += tree[i];
+        }
+        return rows;
+    }
+}
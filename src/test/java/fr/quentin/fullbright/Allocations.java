@@ -0,0 +1,96 @@
+package fr.quentin.fullbright;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextHandler;
+import net.minecraft.client.font.TextRenderer;
+import sun.misc.Unsafe;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+
+/**
+ * Helpers for the allocation tests: measures what a hook allocates per call,
+ * and stands in the game objects the hooks read, without a running client.
+ */
+public final class Allocations {
+    /**
+     * Calls made before measuring, so the hook is compiled and its caches are filled.
+     */
+    private static final int WARMUP_CALLS = 20_000;
+
+    /**
+     * Calls measured, the allocation is averaged over them.
+     */
+    private static final int MEASURED_CALLS = 10_000;
+
+    /**
+     * Width of every glyph measured by the text renderer of the installed client.
+     */
+    private static final float GLYPH_WIDTH = 6;
+
+    /**
+     * The HotSpot extension of the thread bean, reading the bytes allocated by a thread.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Allocations() {
+    }
+
+    /**
+     * Calls a hook thousands of times, then measures what its next calls allocate.
+     *
+     * @param hook The hook, created once by the caller so it does not count
+     * @return The bytes allocated per call, on average
+     */
+    public static long perCall(Runnable hook) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            hook.run();
+        }
+        long thread = Thread.currentThread().threadId();
+        long before = THREADS.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            hook.run();
+        }
+        return (THREADS.getThreadAllocatedBytes(thread) - before) / MEASURED_CALLS;
+    }
+
+    /**
+     * Installs a client that was never initialized as the game instance, for hooks reading its fields.
+     * Its text renderer has no font storage and measures every glyph with the same width.
+     *
+     * @return The client, with no world, player nor screen
+     * @throws ReflectiveOperationException If the instance cannot be allocated or installed
+     */
+    public static MinecraftClient installClient() throws ReflectiveOperationException {
+        TextRenderer renderer = allocate(TextRenderer.class);
+        Field handler = TextRenderer.class.getDeclaredField("handler");
+        handler.setAccessible(true);
+        handler.set(renderer, new TextHandler((codePoint, style) -> GLYPH_WIDTH));
+
+        MinecraftClient client = allocate(MinecraftClient.class);
+        Field textRenderer = MinecraftClient.class.getDeclaredField("textRenderer");
+        textRenderer.setAccessible(true);
+        textRenderer.set(client, renderer);
+        Field instance = MinecraftClient.class.getDeclaredField("instance");
+        instance.setAccessible(true);
+        instance.set(null, client);
+        return client;
+    }
+
+    /**
+     * Allocates an instance without running any constructor, like the benchmarks do for the player.
+     *
+     * @param type The class to allocate
+     * @param <T> The type of the instance
+     * @return The instance, with every field at its default value
+     * @throws ReflectiveOperationException If the instance cannot be allocated
+     */
+    public static <T> T allocate(Class<T> type) throws ReflectiveOperationException {
+        Field field = Unsafe.class.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        return type.cast(((Unsafe) field.get(null)).allocateInstance(type));
+    }
+}
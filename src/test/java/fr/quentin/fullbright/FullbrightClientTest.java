@@ -0,0 +1,50 @@
+package fr.quentin.fullbright;
+
+import fr.quentin.fullbright.metrics.Metrics;
+import fr.quentin.fullbright.option.KeyBindings;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.client.option.KeyBinding;
+import net.minecraft.client.util.InputUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.glfw.GLFW;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the END_CLIENT_TICK handler against the allocation budget of {@link Metrics#CLIENT_TICK}.
+ */
+class FullbrightClientTest {
+    /**
+     * The installed client, with a player that is never initialized, so every step of the tick runs.
+     */
+    private static MinecraftClient client;
+
+    /**
+     * Bootstraps the registries, installs the client and the key bindings read by the tick.
+     *
+     * @throws ReflectiveOperationException If the client or the player cannot be allocated
+     */
+    @BeforeAll
+    static void setUp() throws ReflectiveOperationException {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        client = Allocations.installClient();
+        client.player = Allocations.allocate(ClientPlayerEntity.class);
+        KeyBindings.configurationKey = new KeyBinding("key.fullbright.test.configuration", InputUtil.Type.KEYSYM, GLFW.GLFW_KEY_G, "key.category.fullbright");
+        KeyBindings.textEditorKey = new KeyBinding("key.fullbright.test.text_editor", InputUtil.Type.KEYSYM, GLFW.GLFW_KEY_N, "key.category.fullbright");
+    }
+
+    /**
+     * A tick where nothing changed stays within the budget.
+     */
+    @Test
+    void steadyStateTickStaysWithinBudget() {
+        long bytes = Allocations.perCall(() -> FullbrightClient.onEndTick(client));
+        long budget = Metrics.CLIENT_TICK.getAllocationBudget();
+        assertTrue(bytes <= budget, "The client tick allocates " + bytes + " bytes per call, over its budget of " + budget);
+    }
+}
@@ -0,0 +1,120 @@
+package fr.quentin.fullbright;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.text.CharacterVisitor;
+import net.minecraft.text.OrderedText;
+import net.minecraft.text.Style;
+import net.minecraft.text.Text;
+import net.minecraft.text.TextVisitFactory;
+import net.minecraft.util.Identifier;
+
+import java.util.function.Function;
+
+/**
+ * A drawing context that counts the draw calls of the mod instead of building vertices, so a frame runs without a render thread.
+ * Texts are still visited glyph by glyph like the text renderer does, so lazily built texts are built and counted.
+ * What is left to allocate is what the mod itself allocates.
+ */
+public class StubDrawContext extends DrawContext {
+    /**
+     * Number of draw calls received.
+     */
+    private long drawCalls;
+
+    /**
+     * Number of glyphs visited in the texts received.
+     */
+    private long glyphs;
+
+    /**
+     * Counts the glyphs of the visited texts, created once so visiting does not allocate.
+     */
+    private final CharacterVisitor glyphCounter = (index, style, codePoint) -> {
+        glyphs++;
+        return true;
+    };
+
+    /**
+     * Constructs a new StubDrawContext.
+     *
+     * @param client The installed client, see {@link Allocations#installClient()}
+     */
+    public StubDrawContext(MinecraftClient client) {
+        super(client, null);
+    }
+
+    /**
+     * Counts a filled rectangle.
+     */
+    @Override
+    public void fill(int x1, int y1, int x2, int y2, int color) {
+        drawCalls++;
+    }
+
+    /**
+     * Counts a string and visits its glyphs, formatting codes applied, like the text renderer does.
+     *
+     * @return The x-coordinate after the text, the same as the start as nothing is measured
+     */
+    @Override
+    public int drawTextWithShadow(TextRenderer textRenderer, String text, int x, int y, int color) {
+        drawCalls++;
+        if (text != null) {
+            TextVisitFactory.visitFormatted(text, Style.EMPTY, glyphCounter);
+        }
+        return x;
+    }
+
+    /**
+     * Counts a text and visits its glyphs through its ordered form, like the drawing context does.
+     *
+     * @return The x-coordinate after the text, the same as the start as nothing is measured
+     */
+    @Override
+    public int drawTextWithShadow(TextRenderer textRenderer, Text text, int x, int y, int color) {
+        drawCalls++;
+        text.asOrderedText().accept(glyphCounter);
+        return x;
+    }
+
+    /**
+     * Counts a row of glyphs and visits them.
+     *
+     * @return The x-coordinate after the text, the same as the start as nothing is measured
+     */
+    @Override
+    public int drawTextWithShadow(TextRenderer textRenderer, OrderedText text, int x, int y, int color) {
+        drawCalls++;
+        text.accept(glyphCounter);
+        return x;
+    }
+
+    /**
+     * Counts a texture.
+     */
+    @Override
+    public void drawTexture(Function<Identifier, RenderLayer> renderLayers, Identifier sprite, int x, int y, float u, float v, int width, int height, int textureWidth, int textureHeight) {
+        drawCalls++;
+    }
+
+    /**
+     * Gets the number of draw calls received.
+     *
+     * @return The draw calls since the context was created
+     */
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Gets the number of glyphs visited in the texts received.
+     *
+     * @return The glyphs since the context was created
+     */
+    public long getGlyphs() {
+        return glyphs;
+    }
+}
@@ -0,0 +1,177 @@
+package fr.quentin.fullbright.light;
+
+import fr.quentin.fullbright.Allocations;
+import fr.quentin.fullbright.config.FullbrightConfig;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.effect.StatusEffect;
+import net.minecraft.entity.effect.StatusEffectInstance;
+import net.minecraft.entity.effect.StatusEffects;
+import net.minecraft.registry.entry.RegistryEntry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that the Night Vision controller allocates nothing and leaves the effects alone in steady state,
+ * and changes the effect exactly once per transition.
+ */
+class NightVisionControllerTest {
+    /**
+     * Ticks run after a transition, all of which must be no-ops.
+     */
+    private static final int TICKS = 1000;
+
+    /**
+     * The defaults, with the effect disabled.
+     */
+    private static FullbrightConfig disabled;
+
+    /**
+     * The defaults with the effect enabled, in the Night Vision mode.
+     */
+    private static FullbrightConfig enabled;
+
+    /**
+     * Bootstraps the registries, for the Night Vision effect, and sets up both configurations.
+     */
+    @BeforeAll
+    static void setUp() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        disabled = new FullbrightConfig();
+        enabled = new FullbrightConfig();
+        enabled.setEnabled(true);
+    }
+
+    /**
+     * A tick where nothing changed allocates nothing, reconciles nothing and touches no effect.
+     *
+     * @throws ReflectiveOperationException If the player cannot be allocated
+     */
+    @Test
+    void steadyStateTickDoesNothing() throws ReflectiveOperationException {
+        EffectCountingPlayer player = Allocations.allocate(EffectCountingPlayer.class);
+        ActiveProfile.update(null, enabled);
+        NightVisionController.tick(player, enabled); // First sight of the player
+        long transitions = NightVisionController.getTransitionCount();
+        int changes = player.changes;
+
+        long bytes = Allocations.perCall(() -> NightVisionController.tick(player, enabled));
+
+        assertEquals(0, bytes, "A steady-state tick allocates");
+        assertEquals(transitions, NightVisionController.getTransitionCount(), "A steady-state tick reconciles");
+        assertEquals(changes, player.changes, "A steady-state tick changes the effects");
+    }
+
+    /**
+     * Enabling, disabling and the server removing the effect each change the effect once, whatever the ticks after.
+     *
+     * @throws ReflectiveOperationException If the player cannot be allocated
+     */
+    @Test
+    void transitionChangesTheEffectOnce() throws ReflectiveOperationException {
+        EffectCountingPlayer player = Allocations.allocate(EffectCountingPlayer.class);
+        ActiveProfile.update(null, disabled);
+        NightVisionController.tick(player, disabled);
+        assertEquals(0, player.changes, "A new player got effect changes while disabled");
+
+        tick(player, enabled);
+        assertEquals(1, player.changes);
+        assertNotNull(player.effect, "Enabling did not add the effect");
+
+        tick(player, disabled);
+        assertEquals(2, player.changes);
+        assertNull(player.effect, "Disabling did not remove the effect");
+
+        tick(player, enabled);
+        assertEquals(3, player.changes);
+
+        // The server removes the effect, the next tick adds it back
+        player.removeStatusEffect(StatusEffects.NIGHT_VISION);
+        NightVisionController.markDirty();
+        tick(player, enabled);
+        assertEquals(5, player.changes);
+        assertNotNull(player.effect, "The removed effect was not added back");
+    }
+
+    /**
+     * Resolves a configuration, then runs many ticks with it.
+     *
+     * @param player The player
+     * @param config The configuration
+     */
+    private static void tick(ClientPlayerEntity player, FullbrightConfig config) {
+        ActiveProfile.update(null, config);
+        for (int i = 0; i < TICKS; i++) {
+            NightVisionController.tick(player, config);
+        }
+    }
+
+    /**
+     * A player that is never initialized, holding at most the Night Vision effect and counting its changes.
+     * Allocated without running its constructor, like the player of the benchmarks.
+     */
+    private static final class EffectCountingPlayer extends ClientPlayerEntity {
+        /**
+         * The Night Vision effect, or null.
+         */
+        private StatusEffectInstance effect;
+
+        /**
+         * Number of effects added or removed.
+         */
+        private int changes;
+
+        /**
+         * Never called, instances are allocated by {@link Allocations#allocate(Class)}.
+         */
+        private EffectCountingPlayer() {
+            super(null, null, null, null, null, null, false);
+        }
+
+        /**
+         * Checks for the Night Vision effect.
+         */
+        @Override
+        public boolean hasStatusEffect(RegistryEntry<StatusEffect> effect) {
+            return getStatusEffect(effect) != null;
+        }
+
+        /**
+         * Gets the Night Vision effect.
+         */
+        @Override
+        public StatusEffectInstance getStatusEffect(RegistryEntry<StatusEffect> effect) {
+            return effect == StatusEffects.NIGHT_VISION ? this.effect : null;
+        }
+
+        /**
+         * Adds the Night Vision effect.
+         */
+        @Override
+        public boolean addStatusEffect(StatusEffectInstance effect, Entity source) {
+            this.effect = effect;
+            changes++;
+            return true;
+        }
+
+        /**
+         * Removes the Night Vision effect.
+         */
+        @Override
+        public boolean removeStatusEffect(RegistryEntry<StatusEffect> effect) {
+            if (getStatusEffect(effect) == null) {
+                return false;
+            }
+            this.effect = null;
+            changes++;
+            return true;
+        }
+    }
+}
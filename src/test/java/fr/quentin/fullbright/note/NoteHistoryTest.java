@@ -0,0 +1,92 @@
+package fr.quentin.fullbright.note;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that every recorded version of a note is restored as it was saved.
+ */
+class NoteHistoryTest {
+    /**
+     * The notes directory of the test.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Versions on both sides of the periodic keyframes are restored, and no keyframe reads the note.
+     *
+     * @throws IOException If the history cannot be read or written
+     */
+    @Test
+    void versionsAreRestoredAcrossKeyframes() throws IOException {
+        Path file = directory.resolve("note.history");
+        List<String> lines = new ArrayList<>(List.of("Base at 120 64 -300", "Chest: iron", "Todo: farm"));
+        List<String> saved = new ArrayList<>(List.of(String.join("\n", lines)));
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 1; i <= 40; i++) {
+            String base = saved.getLast();
+            NoteLineChange change = i % 3 == 0
+                    ? new NoteLineChange(lines.size(), 0, List.of("Line " + i))
+                    : new NoteLineChange(i % 2, 1, List.of(lines.get(i % 2) + " " + i));
+            List<String> range = lines.subList(change.line(), change.line() + change.removedLines());
+            range.clear();
+            range.addAll(change.lines());
+            String body = String.join("\n", lines);
+            saved.add(body);
+            NoteHistory.record(file, i == 1 ? base : null, NoteHistory.checksum(base), List.of(change), body.length(), NoteHistory.checksum(body), () -> {
+                loads.incrementAndGet();
+                return body;
+            });
+        }
+
+        List<NoteVersion> versions = NoteHistory.list(file);
+        assertEquals(saved.size(), versions.size());
+        assertEquals(List.of(0, 16, 32), versions.stream().filter(NoteVersion::keyframe).map(NoteVersion::number).toList());
+        assertEquals(0, loads.get(), "A keyframe was read from the note");
+        for (int i = 0; i < saved.size(); i++) {
+            assertEquals(saved.get(i), NoteHistory.restore(file, i), "Version " + i);
+        }
+    }
+
+    /**
+     * A save that did not start from the last recorded version, even one of the same length, is recorded in full.
+     *
+     * @throws IOException If the history cannot be read or written
+     */
+    @Test
+    void saveFromAnotherBodyIsAKeyframe() throws IOException {
+        Path file = directory.resolve("note.history");
+        String first = "Base: 120 64 -300";
+        String second = "Base: 120 64 -310";
+        NoteHistory.record(file, first, NoteHistory.checksum(first), List.of(new NoteLineChange(0, 1, List.of(second))),
+                second.length(), NoteHistory.checksum(second), () -> second);
+
+        // Edited elsewhere to a body of the same length, then saved from it
+        String other = "Farm: 120 64 -310";
+        String third = "Farm: 120 64 -310\nTodo";
+        AtomicInteger loads = new AtomicInteger();
+        NoteHistory.record(file, null, NoteHistory.checksum(other), List.of(new NoteLineChange(0, 1, List.of(other, "Todo"))),
+                third.length(), NoteHistory.checksum(third), () -> {
+                    loads.incrementAndGet();
+                    return third;
+                });
+
+        List<NoteVersion> versions = NoteHistory.list(file);
+        assertEquals(3, versions.size());
+        assertTrue(versions.getLast().keyframe(), "A diff was recorded over another body");
+        assertEquals(1, loads.get());
+        assertEquals(second, NoteHistory.restore(file, 1));
+        assertEquals(third, NoteHistory.restore(file, 2));
+    }
+}
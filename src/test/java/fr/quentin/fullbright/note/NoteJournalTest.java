@@ -0,0 +1,145 @@
+package fr.quentin.fullbright.note;
+
+import fr.quentin.fullbright.text.MappedTextDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that a note journal replays its edits, and recovers from a crash while appending or compacting.
+ */
+class NoteJournalTest {
+    /**
+     * The notes directory of the test.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Edits appended over several saves are replayed on top of the note file, and survive a compaction.
+     *
+     * @throws IOException If a file cannot be read or written
+     */
+    @Test
+    void appendedEditsAreReplayed() throws IOException {
+        Path noteFile = directory.resolve("note.txt");
+        Path journalFile = directory.resolve("note.journal");
+        Files.writeString(noteFile, "Base 1\nBase 2");
+        assertEquals("Base 1\nBase 2", NoteJournal.load(noteFile, journalFile));
+
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(13, 0, "\nBase 3")));
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(5, 1, "one"), new NoteEdit(0, 0, "# ")));
+        assertEquals("# Base one\nBase 2\nBase 3", NoteJournal.load(noteFile, journalFile));
+
+        NoteJournal.compact(noteFile, journalFile);
+        assertFalse(Files.exists(journalFile), "The journal was kept after a compaction");
+        assertEquals("# Base one\nBase 2\nBase 3", Files.readString(noteFile));
+
+        // The first append after a compaction starts a journal matching the compacted file
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(0, 2, "")));
+        assertEquals("Base one\nBase 2\nBase 3", NoteJournal.load(noteFile, journalFile));
+    }
+
+    /**
+     * A record torn by a crash is cut off on load, and the next save appends after the last valid record.
+     *
+     * @throws IOException If a file cannot be read or written
+     */
+    @Test
+    void tornTailIsTruncatedAndReplayed() throws IOException {
+        Path noteFile = directory.resolve("note.txt");
+        Path journalFile = directory.resolve("note.journal");
+        Files.writeString(noteFile, "Base");
+        NoteJournal.load(noteFile, journalFile);
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(4, 0, " 1")));
+        long valid = Files.size(journalFile);
+
+        // A record whose length was written, but not its payload
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(6, 0, ", 2")));
+        byte[] journal = Files.readAllBytes(journalFile);
+        Files.write(journalFile, Arrays.copyOf(journal, (int) valid + 6));
+
+        assertEquals("Base 1", NoteJournal.load(noteFile, journalFile));
+        assertEquals(valid, Files.size(journalFile), "The torn record was not cut off");
+
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(6, 0, ", 3")));
+        assertEquals("Base 1, 3", NoteJournal.load(noteFile, journalFile));
+    }
+
+    /**
+     * A record whose checksum does not match is cut off with everything after it.
+     *
+     * @throws IOException If a file cannot be read or written
+     */
+    @Test
+    void corruptRecordIsTruncated() throws IOException {
+        Path noteFile = directory.resolve("note.txt");
+        Path journalFile = directory.resolve("note.journal");
+        Files.writeString(noteFile, "Base");
+        NoteJournal.load(noteFile, journalFile);
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(4, 0, " 1")));
+        long valid = Files.size(journalFile);
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(6, 0, ", 2")));
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(9, 0, ", 3")));
+
+        byte[] journal = Files.readAllBytes(journalFile);
+        journal[(int) valid + 10] ^= 0x20; // Inside the inserted text of the second record
+        Files.write(journalFile, journal);
+
+        assertEquals("Base 1", NoteJournal.load(noteFile, journalFile));
+        assertEquals(valid, Files.size(journalFile), "The corrupt record was not cut off");
+    }
+
+    /**
+     * A crash after a compaction replaced the note file, but before it removed the journal, loses nothing
+     * and does not apply the journal twice.
+     *
+     * @throws IOException If a file cannot be read or written
+     */
+    @Test
+    void journalLeftByAnInterruptedCompactionIsDropped() throws IOException {
+        Path noteFile = directory.resolve("note.txt");
+        Path journalFile = directory.resolve("note.journal");
+        Files.writeString(noteFile, "Base");
+        NoteJournal.load(noteFile, journalFile);
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(4, 0, " 1")));
+
+        // The compaction replaced the note file, then the game stopped
+        Files.writeString(noteFile, NoteJournal.load(noteFile, journalFile), StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING);
+
+        assertEquals("Base 1", NoteJournal.load(noteFile, journalFile));
+        assertEquals(0, Files.size(journalFile), "The stale journal was kept");
+
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(6, 0, ", 2")));
+        assertEquals("Base 1, 2", NoteJournal.load(noteFile, journalFile));
+    }
+
+    /**
+     * A journal replayed over a mapping of the note file gives the same body as a load, without rewriting the file.
+     *
+     * @throws IOException If a file cannot be read or written
+     */
+    @Test
+    void journalIsReplayedOverAMapping() throws IOException {
+        Path noteFile = directory.resolve("note.txt");
+        Path journalFile = directory.resolve("note.journal");
+        Files.writeString(noteFile, "Line 1\nLine 2\nLine 3");
+        NoteJournal.load(noteFile, journalFile);
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(5, 8, "one\nLine two"), new NoteEdit(20, 0, "\nLine 4")));
+
+        MappedTextDocument mapped = MappedTextDocument.map(noteFile);
+        NoteJournal.replay(noteFile, journalFile, mapped.getContents(), mapped);
+        assertEquals(NoteJournal.load(noteFile, journalFile), mapped.getText());
+        assertEquals("Line 1\nLine 2\nLine 3", Files.readString(noteFile), "The mapped note file was rewritten");
+    }
+}
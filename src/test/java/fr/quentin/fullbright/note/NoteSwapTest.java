@@ -0,0 +1,86 @@
+package fr.quentin.fullbright.note;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that a swap file gives back the autosaved edits, only while they still apply to the saved note.
+ */
+class NoteSwapTest {
+    /**
+     * The notes directory of the test.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Edits autosaved over several appends are read back in order, a replacement as a deletion then an insertion.
+     *
+     * @throws IOException If a file cannot be read or written
+     */
+    @Test
+    void autosavedEditsAreReadBack() throws IOException {
+        Path noteFile = directory.resolve("note.txt");
+        Path journalFile = directory.resolve("note.journal");
+        Path swapFile = directory.resolve("note.swap");
+        Files.writeString(noteFile, "Base");
+        byte[] header = NoteSwap.header(noteFile, journalFile);
+
+        NoteSwap.append(swapFile, header, List.of(new NoteEdit(4, 0, " 1")));
+        NoteSwap.append(swapFile, header, List.of(new NoteEdit(0, 4, "Note")));
+
+        List<NoteEdit> expected = List.of(new NoteEdit(4, 0, " 1"), new NoteEdit(0, 4, ""), new NoteEdit(0, 0, "Note"));
+        assertEquals(expected, NoteSwap.read(swapFile, NoteSwap.header(noteFile, journalFile)));
+    }
+
+    /**
+     * A swap file written before the note was saved again does not apply anymore, and is deleted.
+     *
+     * @throws IOException If a file cannot be read or written
+     */
+    @Test
+    void swapOfAnOlderSaveIsDeleted() throws IOException {
+        Path noteFile = directory.resolve("note.txt");
+        Path journalFile = directory.resolve("note.journal");
+        Path swapFile = directory.resolve("note.swap");
+        Files.writeString(noteFile, "Base");
+        NoteJournal.load(noteFile, journalFile);
+        NoteSwap.append(swapFile, NoteSwap.header(noteFile, journalFile), List.of(new NoteEdit(4, 0, " 1")));
+
+        // Saved from another editor since
+        NoteJournal.append(noteFile, journalFile, List.of(new NoteEdit(4, 0, " 2")));
+
+        assertEquals(List.of(), NoteSwap.read(swapFile, NoteSwap.header(noteFile, journalFile)));
+        assertFalse(Files.exists(swapFile), "The stale swap file was kept");
+    }
+
+    /**
+     * An autosave torn by a crash keeps the edits of the earlier autosaves.
+     *
+     * @throws IOException If a file cannot be read or written
+     */
+    @Test
+    void tornAutosaveKeepsEarlierEdits() throws IOException {
+        Path noteFile = directory.resolve("note.txt");
+        Path journalFile = directory.resolve("note.journal");
+        Path swapFile = directory.resolve("note.swap");
+        Files.writeString(noteFile, "Base");
+        byte[] header = NoteSwap.header(noteFile, journalFile);
+        NoteSwap.append(swapFile, header, List.of(new NoteEdit(4, 0, " 1")));
+        long valid = Files.size(swapFile);
+        NoteSwap.append(swapFile, header, List.of(new NoteEdit(6, 0, ", 2")));
+        Files.write(swapFile, Arrays.copyOf(Files.readAllBytes(swapFile), (int) valid + 6));
+
+        assertEquals(List.of(new NoteEdit(4, 0, " 1")), NoteSwap.read(swapFile, header));
+        assertEquals(valid, Files.size(swapFile), "The torn autosave was not cut off");
+    }
+}
@@ -0,0 +1,40 @@
+package fr.quentin.fullbright.overlay;
+
+import fr.quentin.fullbright.Allocations;
+import fr.quentin.fullbright.StubDrawContext;
+import fr.quentin.fullbright.metrics.Metrics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the status overlay against the allocation budget of {@link Metrics#HUD_OVERLAY}.
+ */
+class FullbrightOverlayTest {
+    /**
+     * The context the overlay is drawn to.
+     */
+    private static StubDrawContext context;
+
+    /**
+     * Installs the client read by the overlay.
+     *
+     * @throws ReflectiveOperationException If the client cannot be allocated
+     */
+    @BeforeAll
+    static void setUp() throws ReflectiveOperationException {
+        context = new StubDrawContext(Allocations.installClient());
+    }
+
+    /**
+     * Drawing the icon and the label stays within the budget of the HUD layer.
+     */
+    @Test
+    void overlayFrameStaysWithinBudget() {
+        long bytes = Allocations.perCall(() -> FullbrightOverlay.renderOverlay(context));
+        long budget = Metrics.HUD_OVERLAY.getAllocationBudget();
+        assertTrue(context.getGlyphs() > 0, "The overlay drew no label");
+        assertTrue(bytes <= budget, "The overlay allocates " + bytes + " bytes per frame, over its budget of " + budget);
+    }
+}
@@ -0,0 +1,69 @@
+package fr.quentin.fullbright.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks a rope document against a plain list of lines, over random replacements that split and merge the tree.
+ */
+class RopeDocumentTest {
+    /**
+     * Every line, offset and length of the rope matches the list after each replacement.
+     */
+    @Test
+    void ropeMatchesAListOfLines() {
+        Random random = new Random(17);
+        List<String> expected = new ArrayList<>(List.of("Base at 120 64 -300", "", "Chest: iron"));
+        RopeDocument document = new RopeDocument(String.join("\n", expected));
+        assertMatches(expected, document);
+
+        for (int i = 0; i < 2000; i++) {
+            int line = random.nextInt(expected.size());
+            int removedLines = 1 + random.nextInt(Math.min(expected.size() - line, 4));
+            List<String> lines = new ArrayList<>();
+            int added = random.nextInt(10) == 0 ? 20 + random.nextInt(40) : 1 + random.nextInt(4);
+            for (int j = 0; j < added; j++) {
+                lines.add(random.nextInt(5) == 0 ? "" : "Line " + i + "." + j);
+            }
+
+            document.replaceLines(line, removedLines, lines);
+            List<String> range = expected.subList(line, line + removedLines);
+            range.clear();
+            range.addAll(lines);
+            assertMatches(expected, document);
+        }
+    }
+
+    /**
+     * Trailing and leading empty lines are kept, so the text reads back as it was given.
+     */
+    @Test
+    void textIsReadBackWithEmptyLines() {
+        assertEquals("", new RopeDocument("").getText());
+        assertEquals("\nNote\n\n", new RopeDocument("\nNote\n\n").getText());
+        assertEquals(4, new RopeDocument("\nNote\n\n").getLineCount());
+    }
+
+    /**
+     * Checks every line of a document against the list of lines it should hold.
+     *
+     * @param expected The lines
+     * @param document The document
+     */
+    private static void assertMatches(List<String> expected, TextDocument document) {
+        assertEquals(expected.size(), document.getLineCount());
+        int offset = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), document.getLine(i), "Line " + i);
+            assertEquals(offset, document.getOffset(i), "Offset of line " + i);
+            offset += expected.get(i).length() + 1;
+        }
+        assertEquals(offset - 1, document.getLength());
+        assertEquals(String.join("\n", expected), document.getText());
+    }
+}
@@ -0,0 +1,91 @@
+package fr.quentin.fullbright.widget;
+
+import fr.quentin.fullbright.Allocations;
+import fr.quentin.fullbright.StubDrawContext;
+import fr.quentin.fullbright.metrics.Metrics;
+import fr.quentin.fullbright.text.TextPattern;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what the frames of the text editor allocate: nothing when idle, and the find highlights
+ * within the allocation budget of {@link Metrics#EDITOR_RENDER}.
+ */
+class EditBoxRenderTest {
+    /**
+     * The context the editor is drawn to.
+     */
+    private static StubDrawContext context;
+
+    /**
+     * A note of short lines and wrapped long lines, longer than the editor.
+     */
+    private static String text;
+
+    /**
+     * The editor under test, filled with the note before each test.
+     */
+    private EditBox editBox;
+
+    /**
+     * Installs the client read by the editor and builds the note.
+     *
+     * @throws ReflectiveOperationException If the client cannot be allocated
+     */
+    @BeforeAll
+    static void setUp() throws ReflectiveOperationException {
+        context = new StubDrawContext(Allocations.installClient());
+        StringBuilder note = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            note.append(i % 10 == 0 ? "Coordinates: 120 64 -300 ".repeat(20) : "Base " + i + ": 120 64 -300").append('\n');
+        }
+        text = note.toString();
+    }
+
+    /**
+     * Creates the editor, with the note scrolled to the top.
+     */
+    @BeforeEach
+    void createEditBox() {
+        editBox = new EditBox(0, 0, 300, 150);
+        editBox.setText(text);
+    }
+
+    /**
+     * An idle frame draws the cached rows of the note without allocating.
+     */
+    @Test
+    void idleFrameDoesNotAllocate() {
+        assertEquals(0, measureFrame("An idle frame"), "An idle frame allocates");
+    }
+
+    /**
+     * A frame highlighting the matches of a search and the selected match stays within the budget.
+     */
+    @Test
+    void findFrameStaysWithinBudget() {
+        editBox.setFindPattern(TextPattern.literal("64"));
+        editBox.findNext(true);
+        long bytes = measureFrame("A frame with find highlights");
+        long budget = Metrics.EDITOR_RENDER.getAllocationBudget();
+        assertTrue(bytes <= budget, "A frame with find highlights allocates " + bytes + " bytes, over the budget of " + budget);
+    }
+
+    /**
+     * Draws the editor thousands of times and measures what a frame allocates, checking that it drew text.
+     *
+     * @param frame Describes the frame in the failure message
+     * @return The bytes allocated per frame
+     */
+    private long measureFrame(String frame) {
+        long glyphs = context.getGlyphs();
+        EditBox box = editBox;
+        long bytes = Allocations.perCall(() -> box.renderWidget(context, 0, 0, 0));
+        assertTrue(context.getGlyphs() > glyphs, frame + " drew no text");
+        return bytes;
+    }
+}
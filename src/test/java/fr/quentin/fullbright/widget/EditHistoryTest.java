@@ -0,0 +1,197 @@
+package fr.quentin.fullbright.widget;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that an edit history merges runs of keystrokes, and that undoing then redoing gives back every text.
+ */
+class EditHistoryTest {
+    /**
+     * The text being edited, changed and reverted the way an edit box does.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * A run of typed characters is undone in one step, and redone in one step.
+     */
+    @Test
+    void typingRunIsUndoneAtOnce() {
+        EditHistory history = new EditHistory(1 << 20);
+        text.append("Base");
+        for (char c : " camp".toCharArray()) {
+            edit(history, text.length(), 0, String.valueOf(c), true);
+        }
+
+        assertTrue(undo(history));
+        assertEquals("Base", text.toString());
+        assertFalse(undo(history));
+        assertTrue(redo(history));
+        assertEquals("Base camp", text.toString());
+    }
+
+    /**
+     * Backspaces and deletes around the same position are one run, which puts the characters back in order.
+     */
+    @Test
+    void deletionRunRestoresTheText() {
+        EditHistory history = new EditHistory(1 << 20);
+        text.append("Base camp at 120");
+        edit(history, 4, 1, "", true); // Backspace from 5
+        edit(history, 3, 1, "", true);
+        edit(history, 3, 1, "", true); // Delete from 3
+        edit(history, 3, 1, "", true);
+        assertEquals("Basmp at 120", text.toString());
+
+        assertTrue(undo(history));
+        assertEquals("Base camp at 120", text.toString());
+        assertFalse(undo(history));
+    }
+
+    /**
+     * A sealed run is not extended, so the keystrokes on both sides of the seal are undone apart.
+     */
+    @Test
+    void sealEndsTheRun() {
+        EditHistory history = new EditHistory(1 << 20);
+        edit(history, 0, 0, "a", true);
+        history.seal();
+        edit(history, 1, 0, "b", true);
+
+        undo(history);
+        assertEquals("a", text.toString());
+        undo(history);
+        assertEquals("", text.toString());
+    }
+
+    /**
+     * Random typing, deletions, pastes and seals are all undone back to the first text, then redone to the last.
+     */
+    @Test
+    void randomEditsRoundTrip() {
+        Random random = new Random(22);
+        for (int round = 0; round < 50; round++) {
+            EditHistory history = new EditHistory(1 << 20);
+            text.setLength(0);
+            text.append("Base at 120 64 -300");
+            String first = text.toString();
+            int cursor = random.nextInt(text.length() + 1);
+            for (int i = 0; i < 200; i++) {
+                switch (random.nextInt(6)) {
+                    case 0, 1 -> edit(history, cursor++, 0, String.valueOf((char) ('a' + random.nextInt(26))), true);
+                    case 2 -> {
+                        if (cursor > 0) {
+                            edit(history, --cursor, 1, "", true); // Backspace
+                        }
+                    }
+                    case 3 -> {
+                        if (cursor < text.length()) {
+                            edit(history, cursor, 1, "", true); // Delete
+                        }
+                    }
+                    case 4 -> {
+                        String line = "Line " + i + "\n";
+                        edit(history, cursor, random.nextInt(text.length() - cursor + 1), line, false); // Paste over a selection
+                        cursor += line.length();
+                    }
+                    default -> {
+                        history.seal(); // A click elsewhere
+                        cursor = random.nextInt(text.length() + 1);
+                    }
+                }
+            }
+            String last = text.toString();
+
+            while (undo(history)) {
+                // Back to the first text
+            }
+            assertEquals(first, text.toString(), "Round " + round);
+            while (redo(history)) {
+                // Forward to the last text
+            }
+            assertEquals(last, text.toString(), "Round " + round);
+        }
+    }
+
+    /**
+     * Edits that outgrow the budget drop the oldest entries, and the newest are still undone and kept to be redone.
+     */
+    @Test
+    void oldestEditsAreDroppedOverBudget() {
+        EditHistory history = new EditHistory(4 * (48 + 2)); // Four redo entries, each putting back one character
+        for (int i = 0; i < 10; i++) {
+            edit(history, text.length(), 0, String.valueOf(i), false);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(undo(history));
+        }
+        assertFalse(undo(history));
+        assertEquals("012345", text.toString());
+        assertNull(new EditHistory(0).popUndo());
+    }
+
+    /**
+     * Replaces a range of the text and records the edit.
+     *
+     * @param history  The history
+     * @param offset   The start of the range
+     * @param length   The length of the range
+     * @param inserted The text to put in its place
+     * @param typing   Whether the edit is a keystroke
+     */
+    private void edit(EditHistory history, int offset, int length, String inserted, boolean typing) {
+        String removed = text.substring(offset, offset + length);
+        text.replace(offset, offset + length, inserted);
+        history.record(offset, removed, inserted.length(), typing);
+    }
+
+    /**
+     * Undoes the most recent edit, like an edit box.
+     *
+     * @param history The history
+     * @return True if an edit was undone
+     */
+    private boolean undo(EditHistory history) {
+        EditHistory.Edit edit = history.popUndo();
+        if (edit == null) {
+            return false;
+        }
+        history.pushRedo(revert(edit));
+        return true;
+    }
+
+    /**
+     * Redoes the most recently undone edit, like an edit box.
+     *
+     * @param history The history
+     * @return True if an edit was redone
+     */
+    private boolean redo(EditHistory history) {
+        EditHistory.Edit edit = history.popRedo();
+        if (edit == null) {
+            return false;
+        }
+        history.pushUndo(revert(edit));
+        return true;
+    }
+
+    /**
+     * Applies an entry of the history to the text.
+     *
+     * @param edit The entry
+     * @return The entry reverting it
+     */
+    private EditHistory.Edit revert(EditHistory.Edit edit) {
+        int end = edit.offset() + edit.insertedLength();
+        String inserted = text.substring(edit.offset(), end);
+        text.replace(edit.offset(), end, edit.removed());
+        return new EditHistory.Edit(edit.offset(), inserted, edit.removed().length());
+    }
+}
@@ -0,0 +1,163 @@
+package fr.quentin.fullbright.widget;
+
+import fr.quentin.fullbright.text.RopeDocument;
+import net.minecraft.client.font.TextHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks where lines are wrapped, and that the row counts follow edits while lines are only wrapped when asked for.
+ */
+class WrapLayoutTest {
+    /**
+     * Width of every glyph of the test font, in pixels.
+     */
+    private static final int GLYPH_WIDTH = 6;
+
+    /**
+     * Lines are cut after the last space that fits, spaces stay on their row, and a word too long for a row is cut at the edge.
+     */
+    @Test
+    void linesAreWrappedAtSpaces() {
+        RopeDocument document = new RopeDocument("Base 120\nChest: iron ingots\nCoordinates12345678 end");
+        WrapLayout layout = layout(document, 10 * GLYPH_WIDTH);
+
+        assertArrayEquals(new int[] {0}, layout.getRowStarts(0));
+        assertArrayEquals(new int[] {0, 7, 12}, layout.getRowStarts(1));
+        assertArrayEquals(new int[] {0, 10, 20}, layout.getRowStarts(2));
+        assertEquals(7, layout.getRowCount());
+        assertEquals(2, layout.getRowOf(1, 12));
+        assertEquals(1, layout.getRowOf(1, 11));
+    }
+
+    /**
+     * Row counts, first rows and the line at each row match a plain count over random edits and width changes,
+     * with lines counting as a single row until they are wrapped.
+     */
+    @Test
+    void rowsMatchAPlainCount() {
+        Random random = new Random(23);
+        RopeDocument document = new RopeDocument("Base at 120 64 -300");
+        int width = 20 * GLYPH_WIDTH;
+        WrapLayout layout = layout(document, width);
+        List<Boolean> wrapped = new ArrayList<>(List.of(false));
+
+        for (int i = 0; i < 500; i++) {
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    int resized = (5 + random.nextInt(30)) * GLYPH_WIDTH;
+                    layout.sync(resized);
+                    if (resized != width) {
+                        width = resized;
+                        Collections.fill(wrapped, false);
+                    }
+                }
+                case 1 -> {
+                    int line = random.nextInt(wrapped.size());
+                    layout.getRowStarts(line);
+                    wrapped.set(line, true);
+                }
+                default -> {
+                    int line = random.nextInt(wrapped.size());
+                    int removedLines = 1 + random.nextInt(Math.min(wrapped.size() - line, 3));
+                    List<String> lines = new ArrayList<>();
+                    for (int j = random.nextInt(4); j >= 0; j--) {
+                        lines.add(randomLine(random));
+                    }
+                    document.replaceLines(line, removedLines, lines);
+                    layout.replaceLines(line, removedLines, lines.size());
+                    List<Boolean> range = wrapped.subList(line, line + removedLines);
+                    range.clear();
+                    range.addAll(Collections.nCopies(lines.size(), false));
+                }
+            }
+            assertRows(layout, document, wrapped, width);
+        }
+    }
+
+    /**
+     * Checks the rows of a layout against a count of the rows of each line.
+     *
+     * @param layout   The layout
+     * @param document The document laid out
+     * @param wrapped  Whether each line was wrapped, the others counting as a single row
+     * @param width    The width of a row, in pixels
+     */
+    private static void assertRows(WrapLayout layout, RopeDocument document, List<Boolean> wrapped, int width) {
+        int[] rows = new int[wrapped.size()];
+        for (int line = 0; line < rows.length; line++) {
+            if (wrapped.get(line)) {
+                int[] starts = layout.getRowStarts(line);
+                assertRowsFit(document.getLine(line), starts, width);
+                rows[line] = starts.length;
+            } else {
+                rows[line] = 1;
+            }
+        }
+
+        int row = 0;
+        for (int line = 0; line < rows.length; line++) {
+            assertEquals(row, layout.getFirstRow(line), "First row of line " + line);
+            for (int i = 0; i < rows[line]; i++) {
+                assertEquals(line, layout.getLineAtRow(row + i), "Line at row " + (row + i));
+            }
+            row += rows[line];
+        }
+        assertEquals(row, layout.getRowCount());
+    }
+
+    /**
+     * Checks that the rows of a line cover it in order, and that each fits in the width once its trailing spaces are left out.
+     *
+     * @param line   The line
+     * @param starts The column where each row starts
+     * @param width  The width of a row, in pixels
+     */
+    private static void assertRowsFit(String line, int[] starts, int width) {
+        assertEquals(0, starts[0]);
+        for (int i = 0; i < starts.length; i++) {
+            int end = i + 1 < starts.length ? starts[i + 1] : line.length();
+            assertTrue(end > starts[i] || line.isEmpty(), "Empty row in " + Arrays.toString(starts));
+            String row = line.substring(starts[i], end).stripTrailing();
+            assertTrue(row.length() * GLYPH_WIDTH <= width || row.length() == 1, "Row too wide: \"" + row + "\"");
+        }
+    }
+
+    /**
+     * Builds a line of random words, some longer than a row.
+     *
+     * @param random The random source
+     * @return The line
+     */
+    private static String randomLine(Random random) {
+        StringBuilder line = new StringBuilder();
+        for (int words = random.nextInt(12); words > 0; words--) {
+            line.append("x".repeat(1 + random.nextInt(random.nextInt(8) == 0 ? 40 : 8)));
+            line.append(" ".repeat(1 + random.nextInt(2)));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Lays out a document with a font where every glyph has the same width.
+     *
+     * @param document The document
+     * @param width    The width of a row, in pixels
+     * @return The layout, no line wrapped yet
+     */
+    private static WrapLayout layout(RopeDocument document, int width) {
+        WrapLayout layout = new WrapLayout(new GlyphWidths(new TextHandler((codePoint, style) -> GLYPH_WIDTH)));
+        layout.reset(document);
+        layout.sync(width);
+        return layout;
+    }
+}